@@ -0,0 +1,134 @@
+package com.pdffactory.service;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.Image;
+import com.lowagie.text.PageSize;
+import com.lowagie.text.Paragraph;
+import com.lowagie.text.pdf.PdfWriter;
+import com.pdffactory.PdfFactoryApplication;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 效能測試共用工具
+ * 提供 Spring context（不啟動 Web 伺服器）與產生的測試 PDF 語料
+ */
+public final class PdfBenchmarkSupport {
+
+    /**
+     * 語料內容類型
+     */
+    public enum Content {
+        /**
+         * 純文字頁面
+         */
+        TEXT,
+
+        /**
+         * 每頁含一張不同的點陣圖
+         */
+        IMAGE
+    }
+
+    private static final int LINES_PER_PAGE = 40;
+    private static final int IMAGE_SIZE = 160;
+
+    private static final Map<String, byte[]> CORPUS = new ConcurrentHashMap<>();
+    private static volatile ConfigurableApplicationContext context;
+
+    private PdfBenchmarkSupport() {
+    }
+
+    /**
+     * 取得服務 bean（安全性資訊快取停用，避免量測到快取命中）
+     */
+    static <T> T bean(Class<T> type) {
+        if (context == null) {
+            synchronized (PdfBenchmarkSupport.class) {
+                if (context == null) {
+                    context = new SpringApplicationBuilder(PdfFactoryApplication.class)
+                            .web(WebApplicationType.NONE)
+                            .bannerMode(Banner.Mode.OFF)
+                            .properties(
+                                    "pdf-factory.cache.security-info.enabled=false",
+                                    "logging.level.root=WARN",
+                                    "logging.level.com.pdffactory=WARN")
+                            .run();
+                }
+            }
+        }
+        return context.getBean(type);
+    }
+
+    /**
+     * 取得指定頁數與內容類型的測試 PDF（同一 JVM 內只產生一次）
+     */
+    static byte[] corpus(int pages, Content content) {
+        return CORPUS.computeIfAbsent(pages + "-" + content, key -> generate(pages, content));
+    }
+
+    /**
+     * 將測試 PDF 寫入暫存檔
+     */
+    static Path writeTempFile(byte[] pdfBytes) throws IOException {
+        Path file = Files.createTempFile("pdf-bench-", ".pdf");
+        file.toFile().deleteOnExit();
+        return Files.write(file, pdfBytes);
+    }
+
+    private static byte[] generate(int pages, Content content) {
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            Document document = new Document(PageSize.A4);
+            PdfWriter.getInstance(document, baos);
+            document.addTitle("Benchmark " + pages + " pages " + content);
+            document.addCreator("PDF Factory Benchmark");
+            document.open();
+
+            Random random = new Random(pages);
+            for (int page = 1; page <= pages; page++) {
+                if (content == Content.IMAGE) {
+                    document.add(Image.getInstance(noiseImage(random), null));
+                    document.add(new Paragraph("Page " + page));
+                } else {
+                    for (int line = 1; line <= LINES_PER_PAGE; line++) {
+                        document.add(new Paragraph("Page " + page + " line " + line
+                                + " - The quick brown fox jumps over the lazy dog."));
+                    }
+                }
+                document.newPage();
+            }
+
+            document.close();
+            return baos.toByteArray();
+        } catch (DocumentException | IOException e) {
+            throw new IllegalStateException("產生測試 PDF 失敗", e);
+        }
+    }
+
+    /**
+     * 產生每頁不同的圖片（漸層加雜訊，壓縮率接近掃描影像）
+     */
+    private static BufferedImage noiseImage(Random random) {
+        BufferedImage image = new BufferedImage(IMAGE_SIZE, IMAGE_SIZE, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < IMAGE_SIZE; y++) {
+            for (int x = 0; x < IMAGE_SIZE; x++) {
+                int noise = random.nextInt(64);
+                image.setRGB(x, y, ((x + noise) & 0xFF) << 16 | ((y + noise) & 0xFF) << 8 | noise);
+            }
+        }
+        return image;
+    }
+}
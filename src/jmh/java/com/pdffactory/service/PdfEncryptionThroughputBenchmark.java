@@ -0,0 +1,95 @@
+package com.pdffactory.service;
+
+import com.pdffactory.dto.PdfSecuritySettingsDTO;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 加密吞吐量（MB/s）：依加密類型比較 OpenPDF 內建加密與 JCE AES 加密
+ * <p>
+ * 結果中的 {@code megabytes} 為每秒處理的原始文件大小（MB/s）；RC4 不受 engine 參數影響。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdfEncryptionThroughputBenchmark {
+
+    /**
+     * 加密實作
+     */
+    public enum Engine {
+        OPENPDF,
+        JCE
+    }
+
+    /**
+     * 每秒處理的文件大小
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Bytes {
+
+        public double megabytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            megabytes = 0;
+        }
+    }
+
+    @Param({"RC4_40", "RC4_128", "AES_128", "AES_256"})
+    private String encryptionType;
+
+    @Param({"OPENPDF", "JCE"})
+    private Engine engine;
+
+    @Param({"100"})
+    private int pages;
+
+    @Param({"IMAGE"})
+    private PdfBenchmarkSupport.Content content;
+
+    private PdfSecurityService securityService;
+    private byte[] pdfBytes;
+    private double pdfMegabytes;
+    private PdfSecuritySettingsDTO settings;
+
+    @Setup
+    public void setUp() {
+        securityService = PdfBenchmarkSupport.bean(PdfSecurityService.class);
+        ReflectionTestUtils.setField(PdfBenchmarkSupport.bean(PdfEncryptionEngine.class),
+                "jceAesEnabled", engine == Engine.JCE);
+        pdfBytes = PdfBenchmarkSupport.corpus(pages, content);
+        pdfMegabytes = pdfBytes.length / (1024.0 * 1024.0);
+        settings = PdfSecuritySettingsDTO.builder()
+                .allowPrinting("Y")
+                .ownerPassword("owner-password")
+                .encryptionType(encryptionType)
+                .build();
+    }
+
+    @Benchmark
+    public byte[] encrypt(Bytes bytes) throws Exception {
+        byte[] secured = securityService.applySecuritySettings(new ByteArrayInputStream(pdfBytes), settings);
+        bytes.megabytes += pdfMegabytes;
+        return secured;
+    }
+}
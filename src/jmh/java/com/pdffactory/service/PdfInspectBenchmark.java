@@ -0,0 +1,74 @@
+package com.pdffactory.service;
+
+import com.pdffactory.dto.PdfSecurityInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 安全性資訊查詢與 Base64 編解碼效能測試
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdfInspectBenchmark {
+
+    @Param({"1", "100", "1000"})
+    private int pages;
+
+    @Param({"TEXT", "IMAGE"})
+    private PdfBenchmarkSupport.Content content;
+
+    private PdfReaderService readerService;
+    private byte[] pdfBytes;
+    private String pdfPath;
+    private String pdfBase64;
+
+    @Setup
+    public void setUp() throws Exception {
+        readerService = PdfBenchmarkSupport.bean(PdfReaderService.class);
+        pdfBytes = PdfBenchmarkSupport.corpus(pages, content);
+        pdfPath = PdfBenchmarkSupport.writeTempFile(pdfBytes).toString();
+        pdfBase64 = Base64.getEncoder().encodeToString(pdfBytes);
+    }
+
+    /**
+     * 檔案路徑查詢（標頭快速路徑）
+     */
+    @Benchmark
+    public PdfSecurityInfo extractSecurityInfoFromFile() {
+        return readerService.extractSecurityInfo(pdfPath, null);
+    }
+
+    /**
+     * 記憶體內容查詢（PdfReader，不使用標頭快速路徑）
+     */
+    @Benchmark
+    public PdfSecurityInfo extractSecurityInfoFromBytes() {
+        return readerService.extractSecurityInfo(pdfBytes, null);
+    }
+
+    @Benchmark
+    public String base64Encode() {
+        return Base64.getEncoder().encodeToString(pdfBytes);
+    }
+
+    @Benchmark
+    public byte[] base64Decode() {
+        return Base64.getDecoder().decode(pdfBase64);
+    }
+}
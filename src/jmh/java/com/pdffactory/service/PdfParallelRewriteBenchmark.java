@@ -0,0 +1,56 @@
+package com.pdffactory.service;
+
+import com.pdffactory.dto.PdfRewriteRequest;
+import com.pdffactory.dto.PdfRewriteResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 循序複製與平行分段複製的比較（PdfRewriterService.rewritePdf）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdfParallelRewriteBenchmark {
+
+    @Param({"false", "true"})
+    private boolean parallel;
+
+    @Param({"1000"})
+    private int pages;
+
+    @Param({"TEXT", "IMAGE"})
+    private PdfBenchmarkSupport.Content content;
+
+    private PdfRewriterService rewriterService;
+    private byte[] pdfBytes;
+    private PdfRewriteRequest request;
+
+    @Setup
+    public void setUp() {
+        rewriterService = PdfBenchmarkSupport.bean(PdfRewriterService.class);
+        pdfBytes = PdfBenchmarkSupport.corpus(pages, content);
+        request = PdfRewriteRequest.builder().build();
+        ReflectionTestUtils.setField(rewriterService, "parallelMinPages", parallel ? 1 : 0);
+    }
+
+    @Benchmark
+    public PdfRewriteResponse rewritePdf() {
+        return rewriterService.rewritePdf(pdfBytes, request);
+    }
+}
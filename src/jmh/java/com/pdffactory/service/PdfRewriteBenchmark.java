@@ -0,0 +1,74 @@
+package com.pdffactory.service;
+
+import com.lowagie.text.pdf.PdfReader;
+import com.pdffactory.dto.PdfRewriteRequest;
+import com.pdffactory.dto.PdfSecurityInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PDF 重寫效能測試（PdfRewriterService.processPdfRewrite）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdfRewriteBenchmark {
+
+    @Param({"1", "100", "1000"})
+    private int pages;
+
+    @Param({"TEXT", "IMAGE"})
+    private PdfBenchmarkSupport.Content content;
+
+    /**
+     * 壓縮設定（NONE 表示不指定）
+     */
+    @Param({"NONE", "FAST", "BALANCED", "MAX"})
+    private String compressionProfile;
+
+    private PdfRewriterService rewriterService;
+    private byte[] pdfBytes;
+    private PdfSecurityInfo securityInfo;
+    private PdfRewriteRequest request;
+
+    @Setup
+    public void setUp() throws Exception {
+        rewriterService = PdfBenchmarkSupport.bean(PdfRewriterService.class);
+        pdfBytes = PdfBenchmarkSupport.corpus(pages, content);
+        request = PdfRewriteRequest.builder()
+                .compressionProfile("NONE".equals(compressionProfile) ? null : compressionProfile)
+                .build();
+
+        PdfReader reader = new PdfReader(pdfBytes);
+        try {
+            securityInfo = PdfBenchmarkSupport.bean(PdfReaderService.class).extractSecurityInfo(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Benchmark
+    public PdfRewriterService.RewriteResult processPdfRewrite() throws Exception {
+        PdfReader reader = new PdfReader(pdfBytes);
+        try {
+            return rewriterService.processPdfRewrite(reader, OutputStream.nullOutputStream(), request, securityInfo);
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.pdffactory.service;
+
+import com.pdffactory.dto.PdfSecuritySettingsDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 套用安全性設定效能測試（PdfSecurityService.applySecuritySettings，依加密類型）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdfSecurityBenchmark {
+
+    @Param({"RC4_40", "RC4_128", "AES_128", "AES_256"})
+    private String encryptionType;
+
+    @Param({"1", "100", "1000"})
+    private int pages;
+
+    @Param({"TEXT", "IMAGE"})
+    private PdfBenchmarkSupport.Content content;
+
+    private PdfSecurityService securityService;
+    private byte[] pdfBytes;
+    private PdfSecuritySettingsDTO settings;
+
+    @Setup
+    public void setUp() {
+        securityService = PdfBenchmarkSupport.bean(PdfSecurityService.class);
+        pdfBytes = PdfBenchmarkSupport.corpus(pages, content);
+        settings = PdfSecuritySettingsDTO.builder()
+                .allowPrinting("Y")
+                .allowCopy("N")
+                .ownerPassword("owner-password")
+                .encryptionType(encryptionType)
+                .build();
+    }
+
+    @Benchmark
+    public byte[] applySecuritySettings() throws Exception {
+        return securityService.applySecuritySettings(new ByteArrayInputStream(pdfBytes), settings);
+    }
+}
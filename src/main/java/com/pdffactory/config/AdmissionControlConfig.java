@@ -0,0 +1,99 @@
+package com.pdffactory.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdffactory.filter.AdmissionControlFilter;
+import com.pdffactory.filter.EndpointLimiter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 准入控制配置
+ * <p>
+ * 依 pdf-factory.admission.endpoints 為每個端點建立獨立的限制器，並註冊下列指標（tag: endpoint）：
+ * pdf.admission.active（處理中請求數）、pdf.admission.queued（排隊等待數）、
+ * pdf.admission.in-flight-bytes（處理中內容大小）、pdf.admission.rejected（拒絕次數，tag: reason）。
+ * <p>
+ * 處理中與排隊中的請求皆佔用 servlet 執行緒：排隊總數需低於 Tomcat 執行緒數，否則拒絕啟動；
+ * 各端點併發數加上排隊總數達到執行緒數時警告（/health 等不受控端點可能取不到執行緒）。使用 virtual thread 時不檢查。
+ */
+@Slf4j
+@Configuration
+@EnableConfigurationProperties(AdmissionControlProperties.class)
+@ConditionalOnProperty(prefix = "pdf-factory.admission", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionControlConfig {
+
+    @Bean
+    public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilter(AdmissionControlProperties properties,
+                                                                                 ObjectMapper objectMapper,
+                                                                                 MeterRegistry meterRegistry,
+                                                                                 @Value("${server.tomcat.threads.max:200}") int servletThreads,
+                                                                                 @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (!virtualThreads) {
+            checkThreadBudget(properties, servletThreads);
+        }
+
+        Semaphore sharedQueueSlots = new Semaphore(Math.max(0, properties.getMaxQueuedTotal()));
+        Map<String, EndpointLimiter> limiters = new LinkedHashMap<>();
+        properties.getEndpoints().forEach((endpoint, limit) -> {
+            EndpointLimiter limiter = new EndpointLimiter(
+                    limit.getMaxConcurrent(),
+                    limit.getMaxInFlightBytes().toBytes(),
+                    limit.getMaxQueueWait().toNanos(),
+                    limit.getMaxQueueDepth(),
+                    sharedQueueSlots);
+            limiters.put(endpoint, limiter);
+
+            Gauge.builder("pdf.admission.active", limiter, EndpointLimiter::getActive)
+                    .description("處理中的請求數")
+                    .tag("endpoint", endpoint)
+                    .register(meterRegistry);
+            Gauge.builder("pdf.admission.queued", limiter, EndpointLimiter::getQueued)
+                    .description("排隊等待處理的請求數")
+                    .tag("endpoint", endpoint)
+                    .register(meterRegistry);
+            Gauge.builder("pdf.admission.in-flight-bytes", limiter, EndpointLimiter::getInFlightBytes)
+                    .description("處理中請求的內容大小")
+                    .baseUnit("bytes")
+                    .tag("endpoint", endpoint)
+                    .register(meterRegistry);
+        });
+
+        AdmissionControlFilter filter = new AdmissionControlFilter(
+                limiters, Math.max(1L, properties.getRetryAfter().toSeconds()), objectMapper, meterRegistry);
+
+        FilterRegistrationBean<AdmissionControlFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns(AdmissionControlFilter.API_PREFIX + "*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 100);
+        return registration;
+    }
+
+    /**
+     * 檢查排隊與處理中的請求數是否超過 servlet 執行緒數
+     */
+    private static void checkThreadBudget(AdmissionControlProperties properties, int servletThreads) {
+        if (properties.getMaxQueuedTotal() >= servletThreads) {
+            throw new IllegalStateException("pdf-factory.admission.max-queued-total (" + properties.getMaxQueuedTotal()
+                    + ") 必須小於 server.tomcat.threads.max (" + servletThreads + ")");
+        }
+        int concurrent = properties.getEndpoints().values().stream()
+                .mapToInt(AdmissionControlProperties.EndpointLimit::getMaxConcurrent)
+                .filter(max -> max > 0)
+                .sum();
+        if (concurrent + properties.getMaxQueuedTotal() >= servletThreads) {
+            log.warn("各端點併發數合計 {} 加上排隊上限 {} 已達 servlet 執行緒數 {}，未受控端點（例如 /health）可能無法取得執行緒",
+                    concurrent, properties.getMaxQueuedTotal(), servletThreads);
+        }
+    }
+}
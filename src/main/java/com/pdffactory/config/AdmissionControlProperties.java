@@ -0,0 +1,68 @@
+package com.pdffactory.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 端點准入控制設定
+ * <p>
+ * endpoints 的鍵為 /api/pdf/ 之後的路徑（例如 upload-and-rewrite、rewrite/batch），
+ * 未設定的端點（例如 health）不受限制。
+ */
+@Data
+@ConfigurationProperties(prefix = "pdf-factory.admission")
+public class AdmissionControlProperties {
+
+    /**
+     * 是否啟用准入控制
+     */
+    private boolean enabled = true;
+
+    /**
+     * 拒絕請求時 Retry-After header 建議的重試間隔
+     */
+    private Duration retryAfter = Duration.ofSeconds(1);
+
+    /**
+     * 全部端點同時排隊等待的請求數上限（排隊時佔用 servlet 執行緒，需低於 server.tomcat.threads.max）
+     */
+    private int maxQueuedTotal = 16;
+
+    /**
+     * 各端點的限制
+     */
+    private Map<String, EndpointLimit> endpoints = new LinkedHashMap<>();
+
+    /**
+     * 單一端點的限制
+     */
+    @Data
+    public static class EndpointLimit {
+
+        /**
+         * 同時處理的請求數上限（0 表示不限制）
+         */
+        private int maxConcurrent = 0;
+
+        /**
+         * 處理中請求的內容總大小上限，依 Content-Length 估算（0 表示不限制）；
+         * 設定後不接受沒有 Content-Length 的請求
+         */
+        private DataSize maxInFlightBytes = DataSize.ofBytes(0);
+
+        /**
+         * 併發數已滿時最多排隊等待的時間（0 表示立即以 429 拒絕，逾時以 503 拒絕）
+         */
+        private Duration maxQueueWait = Duration.ZERO;
+
+        /**
+         * 此端點同時排隊等待的請求數上限，超過時立即以 429 拒絕（0 表示只受 max-queued-total 限制）
+         */
+        private int maxQueueDepth = 0;
+    }
+}
@@ -0,0 +1,45 @@
+package com.pdffactory.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * PDF 處理執行緒池配置
+ */
+@Configuration
+public class PdfExecutorConfig {
+
+    /**
+     * 批次重寫使用的固定大小執行緒池（預設為 CPU 核心數）
+     */
+    @Bean(name = "pdfBatchExecutor", destroyMethod = "shutdownNow")
+    public ExecutorService pdfBatchExecutor(@Value("${pdf-factory.batch.worker-threads:0}") int workerThreads) {
+        int threads = workerThreads > 0 ? workerThreads : Runtime.getRuntime().availableProcessors();
+        return Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("pdf-batch-"));
+    }
+
+    /**
+     * 非同步重寫工作使用的固定大小執行緒池（預設為 1，長時間的重寫不佔用請求執行緒）
+     * <p>
+     * 排隊中的工作另外保存在工作儲存區，排隊數量由 PdfRewriteJobService 限制。
+     */
+    @Bean(name = "pdfJobExecutor", destroyMethod = "shutdownNow")
+    public ExecutorService pdfJobExecutor(@Value("${pdf-factory.jobs.worker-threads:1}") int workerThreads) {
+        return Executors.newFixedThreadPool(Math.max(workerThreads, 1), new CustomizableThreadFactory("pdf-job-"));
+    }
+
+    /**
+     * 大型文件平行分段複製使用的 ForkJoinPool（預設為 CPU 核心數）
+     */
+    @Bean(name = "pdfSegmentPool", destroyMethod = "shutdownNow")
+    public ForkJoinPool pdfSegmentPool(@Value("${pdf-factory.rewrite.parallel.worker-threads:0}") int workerThreads) {
+        int threads = workerThreads > 0 ? workerThreads : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(threads);
+    }
+}
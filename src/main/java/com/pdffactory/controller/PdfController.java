@@ -1,8 +1,12 @@
 package com.pdffactory.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pdffactory.dto.*;
+import com.pdffactory.service.PdfBulkSecurityService;
 import com.pdffactory.service.PdfReaderService;
+import com.pdffactory.service.PdfRewriteJobService;
 import com.pdffactory.service.PdfRewriterService;
+import com.pdffactory.service.PdfSecurityProfile;
 import com.pdffactory.service.PdfSecurityService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -10,15 +14,37 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * PDF Factory REST Controller
- * 所有 API 均使用 POST mapping 和 @RequestBody
+ * 所有 API 均使用 POST mapping 和 @RequestBody（串流端點除外，其請求體為 PDF 二進位內容）
  */
 @Slf4j
 @RestController
@@ -30,6 +56,15 @@ public class PdfController {
     private final PdfRewriterService pdfRewriterService;
     private final PdfReaderService pdfReaderService;
     private final PdfSecurityService pdfSecurityService;
+    private final PdfBulkSecurityService pdfBulkSecurityService;
+    private final PdfRewriteJobService pdfRewriteJobService;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 批次重寫串流的非同步逾時，取代全域的 spring.mvc.async.request-timeout；0 表示不設逾時
+     */
+    @Value("${pdf-factory.batch.request-timeout:0}")
+    private Duration batchRequestTimeout;
 
     /**
      * 重寫 PDF（從檔案路徑）
@@ -83,6 +118,209 @@ public class PdfController {
         }
     }
 
+    /**
+     * 批次重寫 PDF（檔案路徑）
+     * <p>
+     * POST /api/pdf/rewrite/batch
+     * <p>
+     * 請求體範例：
+     * {
+     *   "items": [
+     *     { "inputPath": "/path/to/a.pdf", "outputPath": "/path/to/a-out.pdf", "ownerPassword": "password123" },
+     *     { "inputPath": "/path/to/b.pdf", "outputPath": "/path/to/b-out.pdf" }
+     *   ]
+     * }
+     * <p>
+     * 回應為 NDJSON，每完成一個項目即輸出一行 PdfBatchRewriteItemResult（完成順序，以 index 對應請求項目）
+     * <p>
+     * 批次處理時間與項目數成正比，串流的逾時由 pdf-factory.batch.request-timeout 控制（預設不設逾時），
+     * 不受全域 spring.mvc.async.request-timeout 限制
+     */
+    @Operation(
+        summary = "批次重寫 PDF（檔案路徑）",
+        description = "一次提交多組輸入/輸出路徑，在伺服器端以 CPU 核心數大小的執行緒池平行重寫。每完成一個項目即以 NDJSON 逐行返回結果，單一項目失敗不影響整個批次。"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "批次已開始處理，逐行返回各項目結果",
+            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                    schema = @Schema(implementation = PdfBatchRewriteItemResult.class))
+        )
+    })
+    @PostMapping(value = "/rewrite/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> rewritePdfBatch(@RequestBody PdfBatchRewriteRequest request,
+                                                                 HttpServletRequest servletRequest) {
+        List<PdfRewriteRequest> items = request.getItems() != null ? request.getItems() : List.of();
+        log.info("收到 PDF 批次重寫請求: {} 個項目", items.size());
+        applyAsyncTimeout(servletRequest, batchRequestTimeout);
+
+        StreamingResponseBody body = outputStream -> {
+            try {
+                pdfRewriterService.rewritePdfBatch(items, result -> {
+                    try {
+                        outputStream.write(objectMapper.writeValueAsBytes(result));
+                        outputStream.write('\n');
+                        outputStream.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("批次重寫被中斷", e);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * 以指定逾時取代此請求的全域非同步逾時
+     * <p>
+     * StreamingResponseBody 的非同步處理一律套用 spring.mvc.async.request-timeout；
+     * 在非同步處理開始前（beforeConcurrentHandling）改寫此請求的逾時，0 表示不設逾時
+     */
+    private static void applyAsyncTimeout(HttpServletRequest servletRequest, Duration timeout) {
+        WebAsyncUtils.getAsyncManager(servletRequest).registerCallableInterceptor(
+                PdfController.class.getName() + ".asyncTimeout",
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void beforeConcurrentHandling(NativeWebRequest webRequest, Callable<T> task) {
+                        if (webRequest instanceof AsyncWebRequest asyncWebRequest) {
+                            asyncWebRequest.setTimeout(timeout.toMillis());
+                        }
+                    }
+                });
+    }
+
+    /**
+     * 提交非同步重寫工作（檔案路徑）
+     * <p>
+     * POST /api/pdf/jobs/rewrite
+     * <p>
+     * 請求體同 /api/pdf/rewrite，outputPath 可省略（結果保存在工作儲存區，以 /api/pdf/jobs/result 取得）：
+     * {
+     *   "inputPath": "/path/to/large.pdf",
+     *   "ownerPassword": "password123",
+     *   "preserveSecurity": true
+     * }
+     */
+    @Operation(
+        summary = "提交非同步重寫工作",
+        description = "提交後立即返回工作 ID，重寫在伺服器端的工作執行緒池上執行，不需保持連線。以 /jobs/status 查詢進度（已複製頁數），完成後以 /jobs/result 取得 PDF。工作保存在本機工作儲存區，服務重新啟動後未完成的工作會重新處理。"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "202",
+            description = "工作已提交",
+            content = @Content(schema = @Schema(implementation = PdfRewriteJobResponse.class))
+        ),
+        @ApiResponse(
+            responseCode = "500",
+            description = "提交失敗（例如輸入檔案不存在或排隊工作已達上限）",
+            content = @Content(schema = @Schema(implementation = PdfRewriteJobResponse.class))
+        )
+    })
+    @PostMapping("/jobs/rewrite")
+    public ResponseEntity<PdfRewriteJobResponse> submitRewriteJob(@RequestBody PdfRewriteRequest request) {
+        log.info("收到非同步重寫工作: {}", request.getInputPath());
+
+        PdfRewriteJobResponse response = pdfRewriteJobService.submit(request);
+        return response.isSuccess()
+                ? ResponseEntity.status(HttpStatus.ACCEPTED).body(response)
+                : ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+    }
+
+    /**
+     * 查詢非同步重寫工作狀態
+     * <p>
+     * POST /api/pdf/jobs/status
+     * <p>
+     * 請求體範例：
+     * {
+     *   "jobId": "3f2c7a9e-1d4b-4c51-9a57-0e6f1b2d8c44"
+     * }
+     */
+    @Operation(
+        summary = "查詢非同步重寫工作狀態",
+        description = "返回工作狀態（QUEUED、RUNNING、SUCCEEDED、FAILED）、已複製頁數 / 總頁數，完成後附上重寫結果（安全性資訊、檔案大小）。"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "查詢成功",
+            content = @Content(schema = @Schema(implementation = PdfRewriteJobResponse.class))
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "找不到工作（或已超過保留時間）",
+            content = @Content(schema = @Schema(implementation = PdfRewriteJobResponse.class))
+        )
+    })
+    @PostMapping("/jobs/status")
+    public ResponseEntity<PdfRewriteJobResponse> getRewriteJobStatus(@RequestBody PdfJobRequest request) {
+        PdfRewriteJobResponse response = pdfRewriteJobService.getStatus(request.getJobId());
+        return response.isSuccess()
+                ? ResponseEntity.ok(response)
+                : ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+    }
+
+    /**
+     * 取得非同步重寫工作的結果 PDF
+     * <p>
+     * POST /api/pdf/jobs/result
+     * <p>
+     * 請求體範例：
+     * {
+     *   "jobId": "3f2c7a9e-1d4b-4c51-9a57-0e6f1b2d8c44"
+     * }
+     */
+    @Operation(
+        summary = "取得非同步重寫工作結果",
+        description = "工作成功完成後以串流返回重寫後的 PDF 二進位內容；工作尚未完成、失敗或不存在時返回 JSON 錯誤。"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "重寫後的 PDF",
+            content = @Content(mediaType = MediaType.APPLICATION_PDF_VALUE)
+        ),
+        @ApiResponse(
+            responseCode = "500",
+            description = "工作尚未成功完成或不存在",
+            content = @Content(schema = @Schema(implementation = PdfRewriteJobResponse.class))
+        )
+    })
+    @PostMapping(value = "/jobs/result", produces = {MediaType.APPLICATION_PDF_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<?> getRewriteJobResult(@RequestBody PdfJobRequest request) {
+        try {
+            Path resultFile = pdfRewriteJobService.getResultFile(request.getJobId());
+            StreamingResponseBody body = outputStream -> Files.copy(resultFile, outputStream);
+
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_PDF)
+                    .contentLength(Files.size(resultFile))
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            ContentDisposition.attachment().filename(request.getJobId() + ".pdf").build().toString())
+                    .body(body);
+
+        } catch (Exception e) {
+            log.error("取得重寫工作結果失敗", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(PdfRewriteJobResponse.builder()
+                            .success(false)
+                            .message("取得重寫工作結果失敗: " + e.getMessage())
+                            .jobId(request.getJobId())
+                            .build());
+        }
+    }
+
     /**
      * 上傳並重寫 PDF
      * <p>
@@ -99,7 +337,7 @@ public class PdfController {
      */
     @Operation(
         summary = "上傳並重寫 PDF",
-        description = "接收 Base64 編碼的 PDF 文件，重寫後返回 Base64 結果。在伺服器建立臨時檔案處理，完成後自動清理。"
+        description = "接收 Base64 編碼的 PDF 文件，重寫後返回 Base64 結果。小檔案直接在記憶體中處理，超過門檻的大檔案才使用臨時檔案，完成後自動清理。"
     )
     @ApiResponses(value = {
         @ApiResponse(
@@ -136,6 +374,83 @@ public class PdfController {
         }
     }
 
+    /**
+     * 串流上傳並重寫 PDF
+     * <p>
+     * POST /api/pdf/upload-and-rewrite/stream
+     * <p>
+     * 請求體為原始 PDF 二進位內容（Content-Type: application/pdf），
+     * 選項透過 Header 傳遞，回應直接以 chunked 串流返回重寫後的 PDF：
+     * <pre>
+     * X-File-Name: document.pdf
+     * X-Owner-Password: password123
+     * X-User-Password: (可省略)
+     * X-Preserve-Security: true
+     * X-Dedupe-Resources: false
+     * X-Compression-Profile: BALANCED（可省略）
+     * </pre>
+     */
+    @Operation(
+        summary = "串流上傳並重寫 PDF",
+        description = "接收原始 PDF 二進位內容（application/pdf），重寫後直接以串流返回 PDF。不經過 Base64 編碼，適用於大型檔案。"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "PDF 上傳並重寫成功",
+            content = @Content(mediaType = MediaType.APPLICATION_PDF_VALUE)
+        ),
+        @ApiResponse(
+            responseCode = "500",
+            description = "PDF 上傳並重寫失敗",
+            content = @Content(schema = @Schema(implementation = PdfUploadAndRewriteResponse.class))
+        )
+    })
+    @PostMapping(
+        value = "/upload-and-rewrite/stream",
+        consumes = {MediaType.APPLICATION_PDF_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE},
+        produces = {MediaType.APPLICATION_PDF_VALUE, MediaType.APPLICATION_JSON_VALUE}
+    )
+    public ResponseEntity<?> uploadAndRewritePdfStream(
+            InputStream pdfStream,
+            @RequestHeader(value = "X-File-Name", defaultValue = "document.pdf") String fileName,
+            @RequestHeader(value = "X-Owner-Password", required = false) String ownerPassword,
+            @RequestHeader(value = "X-User-Password", required = false) String userPassword,
+            @RequestHeader(value = "X-Preserve-Security", defaultValue = "true") boolean preserveSecurity,
+            @RequestHeader(value = "X-Dedupe-Resources", defaultValue = "false") boolean dedupeResources,
+            @RequestHeader(value = "X-Compression-Profile", required = false) String compressionProfile,
+            @RequestHeader(value = "X-Incremental-Update", defaultValue = "false") boolean incrementalUpdate) {
+
+        try {
+            PdfUploadAndRewriteRequest request = PdfUploadAndRewriteRequest.builder()
+                    .fileName(fileName)
+                    .ownerPassword(ownerPassword)
+                    .userPassword(userPassword)
+                    .preserveSecurity(preserveSecurity)
+                    .dedupeResources(dedupeResources)
+                    .compressionProfile(compressionProfile)
+                    .incrementalUpdate(incrementalUpdate)
+                    .build();
+
+            StreamingResponseBody body = pdfRewriterService.uploadAndRewritePdfStream(pdfStream, request);
+
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_PDF)
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            ContentDisposition.attachment().filename(fileName, StandardCharsets.UTF_8).build().toString())
+                    .body(body);
+
+        } catch (Exception e) {
+            log.error("PDF 串流上傳並重寫失敗", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(PdfUploadAndRewriteResponse.builder()
+                            .success(false)
+                            .message("PDF 串流上傳並重寫失敗: " + e.getMessage())
+                            .build());
+        }
+    }
+
     /**
      * 查詢 PDF 安全性資訊
      * <p>
@@ -200,6 +515,7 @@ public class PdfController {
      *   "ownerPassword": "your_password",
      *   "encryptionType": "RC4_128"
      * }
+     * 加密結果在寫出時同步 Base64 編碼，直接串流寫入 JSON 響應。
      */
     @Operation(
         summary = "套用安全性設定到 PDF",
@@ -218,21 +534,20 @@ public class PdfController {
         )
     })
     @PostMapping("/apply-security")
-    public ResponseEntity<PdfApplySecurityResponse> applySecurityToPdf(
+    public ResponseEntity<?> applySecurityToPdf(
             @RequestBody PdfApplySecurityRequest request) {
 
         try {
-            PdfApplySecurityResponse response = pdfSecurityService.applySecurityToBase64Pdf(request);
+            StreamingResponseBody body = pdfSecurityService.applySecurityToBase64Pdf(request);
 
-            if (response.isSuccess()) {
-                return ResponseEntity.ok(response);
-            } else {
-                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
-            }
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(body);
 
         } catch (Exception e) {
             log.error("套用安全性設定失敗", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .contentType(MediaType.APPLICATION_JSON)
                     .body(PdfApplySecurityResponse.builder()
                             .success(false)
                             .message("套用安全性設定失敗: " + e.getMessage())
@@ -240,6 +555,325 @@ public class PdfController {
         }
     }
 
+    /**
+     * 串流套用安全性設定到 PDF
+     * <p>
+     * POST /api/pdf/apply-security/stream
+     * <p>
+     * 請求體為原始 PDF 二進位內容（Content-Type: application/pdf），
+     * 安全性設定透過 Header 傳遞，回應直接以 chunked 串流返回加密後的 PDF：
+     * <pre>
+     * X-File-Name: document.pdf
+     * X-Owner-Password: your_password
+     * X-User-Password: (可省略)
+     * X-Encryption-Type: RC4_128
+     * X-Allow-Printing: Y
+     * X-Allow-High-Quality-Printing: Y
+     * X-Allow-Assembly: N
+     * X-Allow-Copy: N
+     * X-Allow-Screen-Readers: N
+     * X-Allow-Modify-Contents: N
+     * X-Allow-Modify-Annotations: N
+     * X-Allow-Fill-In: N
+     * </pre>
+     */
+    @Operation(
+        summary = "串流套用安全性設定到 PDF",
+        description = "接收原始 PDF 二進位內容（application/pdf），套用安全性設定後直接以串流返回 PDF。不經過 Base64 編碼，適用於大型檔案。"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "安全性設定套用成功",
+            content = @Content(mediaType = MediaType.APPLICATION_PDF_VALUE)
+        ),
+        @ApiResponse(
+            responseCode = "500",
+            description = "安全性設定套用失敗",
+            content = @Content(schema = @Schema(implementation = PdfApplySecurityResponse.class))
+        )
+    })
+    @PostMapping(
+        value = "/apply-security/stream",
+        consumes = {MediaType.APPLICATION_PDF_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE},
+        produces = {MediaType.APPLICATION_PDF_VALUE, MediaType.APPLICATION_JSON_VALUE}
+    )
+    public ResponseEntity<?> applySecurityToPdfStream(
+            InputStream pdfStream,
+            @RequestHeader(value = "X-File-Name", defaultValue = "document.pdf") String fileName,
+            @RequestHeader(value = "X-Owner-Password", required = false) String ownerPassword,
+            @RequestHeader(value = "X-User-Password", required = false) String userPassword,
+            @RequestHeader(value = "X-Encryption-Type", defaultValue = "RC4_128") String encryptionType,
+            @RequestHeader(value = "X-Allow-Printing", required = false) String allowPrinting,
+            @RequestHeader(value = "X-Allow-High-Quality-Printing", required = false) String allowHighQualityPrinting,
+            @RequestHeader(value = "X-Allow-Assembly", required = false) String allowAssembly,
+            @RequestHeader(value = "X-Allow-Copy", required = false) String allowCopy,
+            @RequestHeader(value = "X-Allow-Screen-Readers", required = false) String allowScreenReaders,
+            @RequestHeader(value = "X-Allow-Modify-Contents", required = false) String allowModifyContents,
+            @RequestHeader(value = "X-Allow-Modify-Annotations", required = false) String allowModifyAnnotations,
+            @RequestHeader(value = "X-Allow-Fill-In", required = false) String allowFillIn) {
+
+        try {
+            PdfSecuritySettingsDTO settings = PdfSecuritySettingsDTO.builder()
+                    .ownerPassword(ownerPassword)
+                    .userPassword(userPassword)
+                    .encryptionType(encryptionType)
+                    .allowPrinting(allowPrinting)
+                    .allowHighQualityPrinting(allowHighQualityPrinting)
+                    .allowAssembly(allowAssembly)
+                    .allowCopy(allowCopy)
+                    .allowScreenReaders(allowScreenReaders)
+                    .allowModifyContents(allowModifyContents)
+                    .allowModifyAnnotations(allowModifyAnnotations)
+                    .allowFillIn(allowFillIn)
+                    .build();
+
+            StreamingResponseBody body = pdfSecurityService.applySecurityToPdfStream(pdfStream, settings);
+
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_PDF)
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            ContentDisposition.attachment().filename(fileName, StandardCharsets.UTF_8).build().toString())
+                    .body(body);
+
+        } catch (Exception e) {
+            log.error("串流套用安全性設定失敗", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(PdfApplySecurityResponse.builder()
+                            .success(false)
+                            .message("串流套用安全性設定失敗: " + e.getMessage())
+                            .build());
+        }
+    }
+
+    /**
+     * 註冊具名安全性設定檔
+     * <p>
+     * POST /api/pdf/security-profiles
+     * <p>
+     * 請求體範例：
+     * {
+     *   "name": "invoice",
+     *   "settings": {
+     *     "allowPrinting": "Y",
+     *     "allowCopy": "N",
+     *     "userPassword": null,
+     *     "ownerPassword": "your_password",
+     *     "encryptionType": "AES_128"
+     *   }
+     * }
+     */
+    @Operation(
+        summary = "註冊安全性設定檔",
+        description = "以名稱註冊一組安全性設定（權限、密碼、加密類型），權限與加密類型只計算一次，供批次套用端點重複使用。設定檔保存在記憶體中，同名註冊會覆蓋。"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "設定檔註冊成功",
+            content = @Content(schema = @Schema(implementation = PdfSecurityProfileResponse.class))
+        ),
+        @ApiResponse(
+            responseCode = "500",
+            description = "設定檔註冊失敗",
+            content = @Content(schema = @Schema(implementation = PdfSecurityProfileResponse.class))
+        )
+    })
+    @PostMapping("/security-profiles")
+    public ResponseEntity<PdfSecurityProfileResponse> registerSecurityProfile(
+            @RequestBody PdfSecurityProfileRequest request) {
+
+        try {
+            PdfSecuritySettingsDTO settings = request.getSettings() != null
+                    ? request.getSettings()
+                    : new PdfSecuritySettingsDTO();
+            PdfSecurityProfile profile = pdfSecurityService.registerProfile(request.getName(), settings);
+
+            return ResponseEntity.ok(PdfSecurityProfileResponse.builder()
+                    .success(true)
+                    .message("安全性設定檔註冊成功")
+                    .name(profile.name())
+                    .encryptionType(profile.encryptionTypeName())
+                    .permissions(profile.permissions())
+                    .build());
+
+        } catch (Exception e) {
+            log.error("註冊安全性設定檔失敗", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(PdfSecurityProfileResponse.builder()
+                            .success(false)
+                            .message("註冊安全性設定檔失敗: " + e.getMessage())
+                            .name(request.getName())
+                            .build());
+        }
+    }
+
+    /**
+     * 批次套用安全性設定檔（multipart 上傳）
+     * <p>
+     * POST /api/pdf/apply-security/bulk
+     * <p>
+     * multipart/form-data，每個 files 欄位為一份 PDF，設定檔名稱以 Header 傳遞：
+     * <pre>
+     * X-Security-Profile: invoice
+     * </pre>
+     * 回應為 ZIP：依上傳順序排列的加密 PDF，最後附上 manifest.json（各文件結果，依輸入順序）
+     */
+    @Operation(
+        summary = "批次套用安全性設定檔（multipart）",
+        description = "以 multipart/form-data 上傳多份 PDF，套用已註冊的安全性設定檔，在批次執行緒池上平行處理，結果依輸入順序以 ZIP 串流返回。單一文件失敗只記錄在 manifest.json。"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "批次已開始處理，以 ZIP 串流返回結果",
+            content = @Content(mediaType = "application/zip")
+        ),
+        @ApiResponse(
+            responseCode = "500",
+            description = "找不到設定檔",
+            content = @Content(schema = @Schema(implementation = PdfApplySecurityResponse.class))
+        )
+    })
+    @PostMapping(
+        value = "/apply-security/bulk",
+        consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+        produces = {"application/zip", MediaType.APPLICATION_JSON_VALUE}
+    )
+    public ResponseEntity<?> applySecurityProfileBulk(
+            @RequestHeader("X-Security-Profile") String profileName,
+            @RequestPart("files") List<MultipartFile> files) {
+
+        try {
+            PdfSecurityProfile profile = pdfSecurityService.getProfile(profileName);
+            log.info("收到批次套用安全性設定請求（multipart）: {} 份文件，設定檔: {}", files.size(), profileName);
+
+            Iterator<MultipartFile> remaining = files.iterator();
+            return bulkResponse(outputStream -> pdfBulkSecurityService.applyProfile(profile, target -> {
+                if (!remaining.hasNext()) {
+                    return null;
+                }
+                MultipartFile file = remaining.next();
+                file.transferTo(target);
+                return file.getOriginalFilename();
+            }, outputStream));
+
+        } catch (Exception e) {
+            return bulkErrorResponse(e);
+        }
+    }
+
+    /**
+     * 批次套用安全性設定檔（ZIP 上傳）
+     * <p>
+     * POST /api/pdf/apply-security/bulk
+     * <p>
+     * 請求體為 ZIP（Content-Type: application/zip），每個檔案項目為一份 PDF（目錄項目略過）；
+     * 設定檔名稱與回應格式同 multipart 版本。
+     */
+    @Operation(
+        summary = "批次套用安全性設定檔（ZIP）",
+        description = "以 ZIP 上傳多份 PDF，套用已註冊的安全性設定檔，結果依輸入順序以 ZIP 串流返回。上傳內容先寫入暫存檔，適合大量文件（不受 multipart 大小限制）。"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "批次已開始處理，以 ZIP 串流返回結果",
+            content = @Content(mediaType = "application/zip")
+        ),
+        @ApiResponse(
+            responseCode = "500",
+            description = "找不到設定檔",
+            content = @Content(schema = @Schema(implementation = PdfApplySecurityResponse.class))
+        )
+    })
+    @PostMapping(
+        value = "/apply-security/bulk",
+        consumes = "application/zip",
+        produces = {"application/zip", MediaType.APPLICATION_JSON_VALUE}
+    )
+    public ResponseEntity<?> applySecurityProfileBulkZip(
+            @RequestHeader("X-Security-Profile") String profileName,
+            InputStream zipStream) {
+
+        try {
+            PdfSecurityProfile profile = pdfSecurityService.getProfile(profileName);
+            log.info("收到批次套用安全性設定請求（ZIP），設定檔: {}", profileName);
+
+            return bulkResponse(pdfBulkSecurityService.applyProfileToZip(profile, zipStream));
+
+        } catch (Exception e) {
+            return bulkErrorResponse(e);
+        }
+    }
+
+    /**
+     * 批次套用安全性設定檔的 ZIP 串流回應
+     */
+    private ResponseEntity<?> bulkResponse(StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType("application/zip"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            ContentDisposition.attachment().filename("secured.zip").build().toString())
+                    .body(body);
+    }
+
+    /**
+     * 批次套用安全性設定檔在開始串流前失敗（例如設定檔不存在）的回應
+     */
+    private ResponseEntity<?> bulkErrorResponse(Exception e) {
+        log.error("批次套用安全性設定失敗", e);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(PdfApplySecurityResponse.builder()
+                        .success(false)
+                        .message("批次套用安全性設定失敗: " + e.getMessage())
+                        .build());
+    }
+
+    /**
+     * 註冊 PDF 範本
+     * <p>
+     * POST /api/pdf/templates
+     * <p>
+     * 請求體範例：
+     * {
+     *   "name": "notice",
+     *   "pdfFileBase64": "JVBERi0xLjQKJeLjz9MKMy...",
+     *   "fields": [
+     *     { "name": "customerName", "page": 1, "x": 72, "y": 700, "fontSize": 12 },
+     *     { "name": "amount", "page": 1, "x": 520, "y": 650, "alignment": "RIGHT" }
+     *   ]
+     * }
+     */
+    @Operation(
+        summary = "註冊 PDF 範本",
+        description = "註冊底稿 PDF（或指定頁面大小的空白頁）與變數欄位位置，底稿只解析一次並快取欄位字型；底稿的表單文字欄位會自動成為變數欄位。之後以 create-secured 的 templateName 與 fields 產生文件。範本保存在記憶體中，同名註冊會覆蓋。"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "範本註冊成功",
+            content = @Content(schema = @Schema(implementation = PdfTemplateResponse.class))
+        ),
+        @ApiResponse(
+            responseCode = "500",
+            description = "範本註冊失敗",
+            content = @Content(schema = @Schema(implementation = PdfTemplateResponse.class))
+        )
+    })
+    @PostMapping("/templates")
+    public ResponseEntity<PdfTemplateResponse> registerTemplate(@RequestBody PdfTemplateRequest request) {
+        PdfTemplateResponse response = pdfSecurityService.registerTemplate(request);
+
+        if (response.isSuccess()) {
+            return ResponseEntity.ok(response);
+        } else {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
     /**
      * 建立新的安全 PDF
      * <p>
@@ -261,10 +895,19 @@ public class PdfController {
      *   "ownerPassword": "your_password",
      *   "encryptionType": "RC4_128"
      * }
+     * <p>
+     * 範本模式：以 templateName 指定已註冊的範本，fields 提供變數欄位值（content 不使用）：
+     * {
+     *   "title": "繳費通知",
+     *   "templateName": "notice",
+     *   "fields": { "customerName": "Alice", "amount": "1,200" },
+     *   "ownerPassword": "your_password",
+     *   "encryptionType": "AES_128"
+     * }
      */
     @Operation(
         summary = "建立新的安全 PDF",
-        description = "從零建立一份全新的 PDF 文件，設定標題、內容和完整的安全性設定，返回 Base64 編碼結果。"
+        description = "從零建立一份全新的 PDF 文件，設定標題、內容和完整的安全性設定，返回 Base64 編碼結果。指定 templateName 時改以已註冊的範本產生，只蓋印 fields 提供的變數欄位。"
     )
     @ApiResponses(value = {
         @ApiResponse(
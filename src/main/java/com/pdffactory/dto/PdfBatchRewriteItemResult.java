@@ -0,0 +1,57 @@
+package com.pdffactory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * PDF 批次重寫單一項目結果 DTO
+ * 以 NDJSON 逐行返回，順序為完成順序
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PdfBatchRewriteItemResult {
+
+    /**
+     * 項目在請求中的索引（從 0 開始）
+     */
+    private int index;
+
+    /**
+     * 是否成功
+     */
+    private boolean success;
+
+    /**
+     * 訊息
+     */
+    private String message;
+
+    /**
+     * 輸入檔案路徑
+     */
+    private String inputPath;
+
+    /**
+     * 輸出檔案路徑
+     */
+    private String outputPath;
+
+    /**
+     * 原始 PDF 安全性資訊
+     */
+    private PdfSecurityInfo originalSecurityInfo;
+
+    /**
+     * 新 PDF 安全性資訊
+     */
+    private PdfSecurityInfo newSecurityInfo;
+
+    /**
+     * 處理時間（毫秒）
+     */
+    private Long elapsedMillis;
+}
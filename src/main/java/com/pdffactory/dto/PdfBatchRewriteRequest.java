@@ -0,0 +1,23 @@
+package com.pdffactory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * PDF 批次重寫請求 DTO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PdfBatchRewriteRequest {
+
+    /**
+     * 重寫項目（每個項目需提供 inputPath 與 outputPath）
+     */
+    private List<PdfRewriteRequest> items;
+}
@@ -0,0 +1,52 @@
+package com.pdffactory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * PDF 批次套用安全性設定單一文件結果 DTO
+ * 寫入回應 ZIP 的 manifest.json，順序與輸入順序相同
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PdfBulkSecurityItemResult {
+
+    /**
+     * 文件在輸入中的索引（從 0 開始）
+     */
+    private int index;
+
+    /**
+     * 是否成功
+     */
+    private boolean success;
+
+    /**
+     * 訊息
+     */
+    private String message;
+
+    /**
+     * 輸入檔案名稱
+     */
+    private String fileName;
+
+    /**
+     * 輸出 ZIP 中的項目名稱（失敗時為 null）
+     */
+    private String entryName;
+
+    /**
+     * 加密後檔案大小 (bytes)
+     */
+    private Long fileSize;
+
+    /**
+     * 處理時間（毫秒）
+     */
+    private Long elapsedMillis;
+}
@@ -5,6 +5,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.Map;
+
 /**
  * 建立新的安全 PDF 請求 DTO
  */
@@ -26,6 +28,22 @@ public class PdfCreateSecuredRequest {
     @Builder.Default
     private String content = "This is a secured PDF document created by OpenPDF.";
 
+    /**
+     * 內容字型（可選）：PDF 內建字型名稱或 TrueType 字型檔路徑，中文內容需使用含中文字形的字型檔；
+     * 省略時使用 pdf-factory.font.default
+     */
+    private String fontName;
+
+    /**
+     * 範本名稱（可選）：指定時以已註冊的範本產生文件，content 不使用
+     */
+    private String templateName;
+
+    /**
+     * 範本變數欄位值（欄位名稱 → 文字），未提供的欄位保持空白
+     */
+    private Map<String, String> fields;
+
     /**
      * 是否允許列印 (Y/N 或 true/false)
      */
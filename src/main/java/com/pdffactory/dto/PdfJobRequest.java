@@ -0,0 +1,21 @@
+package com.pdffactory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 非同步工作查詢請求 DTO（查詢狀態與取得結果）
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PdfJobRequest {
+
+    /**
+     * 工作 ID
+     */
+    private String jobId;
+}
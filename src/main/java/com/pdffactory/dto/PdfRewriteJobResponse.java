@@ -0,0 +1,66 @@
+package com.pdffactory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 非同步重寫工作響應 DTO（提交與查詢狀態共用）
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PdfRewriteJobResponse {
+
+    /**
+     * 是否成功（提交或查詢本身，工作結果見 status）
+     */
+    private boolean success;
+
+    /**
+     * 訊息
+     */
+    private String message;
+
+    /**
+     * 工作 ID
+     */
+    private String jobId;
+
+    /**
+     * 工作狀態 (QUEUED, RUNNING, SUCCEEDED, FAILED)
+     */
+    private String status;
+
+    /**
+     * 已複製頁數
+     */
+    private Integer pagesCopied;
+
+    /**
+     * 總頁數（開始複製頁面前為 0）
+     */
+    private Integer totalPages;
+
+    /**
+     * 提交時間（epoch 毫秒）
+     */
+    private Long submittedAt;
+
+    /**
+     * 開始處理時間（epoch 毫秒）
+     */
+    private Long startedAt;
+
+    /**
+     * 完成時間（epoch 毫秒）
+     */
+    private Long finishedAt;
+
+    /**
+     * 重寫結果（工作完成後提供，不含 PDF 內容；以 /api/pdf/jobs/result 取得檔案）
+     */
+    private PdfRewriteResponse result;
+}
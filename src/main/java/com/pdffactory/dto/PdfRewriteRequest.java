@@ -55,4 +55,25 @@ public class PdfRewriteRequest {
      */
     @Builder.Default
     private boolean removeSecurity = false;
+
+    /**
+     * 是否合併重複資源（預設 false）
+     * 內容相同的字型、圖片與 Form XObject 只寫入一次，適用於每頁重複相同資源的文件
+     */
+    @Builder.Default
+    private boolean dedupeResources = false;
+
+    /**
+     * 壓縮設定（可選）：FAST（最低延遲）、BALANCED（物件串流 + 壓縮未壓縮的串流）、MAX（最小檔案）
+     * 未提供時沿用原本的複製行為
+     */
+    private String compressionProfile;
+
+    /**
+     * 是否允許以增量更新寫出（預設 false）
+     * 只需更新 metadata（Creator、Producer）時保留原始內容，在檔尾附加新的 Info 字典，不重新複製頁面；
+     * 需變更密碼、壓縮或合併資源時仍完整重寫
+     */
+    @Builder.Default
+    private boolean incrementalUpdate = false;
 }
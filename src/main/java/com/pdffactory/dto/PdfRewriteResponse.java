@@ -48,4 +48,24 @@ public class PdfRewriteResponse {
      * 檔案大小（bytes）
      */
     private Long fileSize;
+
+    /**
+     * 原始檔案大小（bytes）
+     */
+    private Long originalFileSize;
+
+    /**
+     * 實際套用的壓縮設定
+     */
+    private String compressionProfile;
+
+    /**
+     * 重新壓縮串流耗時（毫秒）
+     */
+    private Long compressionMillis;
+
+    /**
+     * 重寫方式：full（完整重寫）、incremental（增量更新）
+     */
+    private String rewriteMode;
 }
@@ -10,7 +10,7 @@ import lombok.NoArgsConstructor;
  * 用於儲存從原 PDF 讀取的安全性設定
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class PdfSecurityInfo {
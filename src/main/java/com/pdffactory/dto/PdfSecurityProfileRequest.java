@@ -0,0 +1,26 @@
+package com.pdffactory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * PDF 安全性設定檔註冊請求 DTO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PdfSecurityProfileRequest {
+
+    /**
+     * 設定檔名稱（同名註冊會覆蓋既有設定檔）
+     */
+    private String name;
+
+    /**
+     * 安全性設定（權限、密碼與加密類型）
+     */
+    private PdfSecuritySettingsDTO settings;
+}
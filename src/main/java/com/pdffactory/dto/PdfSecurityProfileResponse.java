@@ -0,0 +1,41 @@
+package com.pdffactory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * PDF 安全性設定檔註冊響應 DTO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PdfSecurityProfileResponse {
+
+    /**
+     * 是否成功
+     */
+    private boolean success;
+
+    /**
+     * 訊息
+     */
+    private String message;
+
+    /**
+     * 設定檔名稱
+     */
+    private String name;
+
+    /**
+     * 加密類型
+     */
+    private String encryptionType;
+
+    /**
+     * 權限值
+     */
+    private Integer permissions;
+}
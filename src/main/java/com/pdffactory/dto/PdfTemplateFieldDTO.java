@@ -0,0 +1,54 @@
+package com.pdffactory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * PDF 範本變數欄位 DTO（文字蓋印位置與字型）
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PdfTemplateFieldDTO {
+
+    /**
+     * 欄位名稱（產生文件時以此名稱提供值）
+     */
+    private String name;
+
+    /**
+     * 頁碼（從 1 開始）
+     */
+    @Builder.Default
+    private Integer page = 1;
+
+    /**
+     * 文字基線 X 座標（PDF 座標，單位 pt，原點為頁面左下角）
+     */
+    private Float x;
+
+    /**
+     * 文字基線 Y 座標
+     */
+    private Float y;
+
+    /**
+     * 字型大小
+     */
+    @Builder.Default
+    private Float fontSize = 10f;
+
+    /**
+     * 對齊方式: LEFT, CENTER, RIGHT（相對於 X 座標）
+     */
+    @Builder.Default
+    private String alignment = "LEFT";
+
+    /**
+     * 字型：PDF 內建字型名稱（例如 Helvetica、Times-Roman）或 TrueType 字型檔路徑，省略時使用 pdf-factory.font.default
+     */
+    private String fontName;
+}
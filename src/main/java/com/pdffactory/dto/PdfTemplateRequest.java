@@ -0,0 +1,39 @@
+package com.pdffactory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * PDF 範本註冊請求 DTO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PdfTemplateRequest {
+
+    /**
+     * 範本名稱（同名註冊會覆蓋既有範本）
+     */
+    private String name;
+
+    /**
+     * 底稿 PDF（Base64 編碼，不可加密）；省略時使用 pageSize 大小的單一空白頁
+     */
+    private String pdfFileBase64;
+
+    /**
+     * 未提供底稿時的頁面大小（例如 A4、LETTER）
+     */
+    @Builder.Default
+    private String pageSize = "A4";
+
+    /**
+     * 變數欄位；底稿的表單文字欄位會自動加入（同名時以此處設定為準）
+     */
+    private List<PdfTemplateFieldDTO> fields;
+}
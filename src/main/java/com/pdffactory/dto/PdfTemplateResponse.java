@@ -0,0 +1,43 @@
+package com.pdffactory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * PDF 範本註冊響應 DTO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PdfTemplateResponse {
+
+    /**
+     * 是否成功
+     */
+    private boolean success;
+
+    /**
+     * 訊息
+     */
+    private String message;
+
+    /**
+     * 範本名稱
+     */
+    private String name;
+
+    /**
+     * 範本頁數
+     */
+    private Integer pageCount;
+
+    /**
+     * 變數欄位名稱
+     */
+    private List<String> fields;
+}
@@ -39,4 +39,21 @@ public class PdfUploadAndRewriteRequest {
      */
     @Builder.Default
     private boolean preserveSecurity = true;
+
+    /**
+     * 是否合併重複資源（預設 false）
+     */
+    @Builder.Default
+    private boolean dedupeResources = false;
+
+    /**
+     * 壓縮設定（可選）：FAST、BALANCED、MAX
+     */
+    private String compressionProfile;
+
+    /**
+     * 是否允許以增量更新寫出（預設 false）
+     */
+    @Builder.Default
+    private boolean incrementalUpdate = false;
 }
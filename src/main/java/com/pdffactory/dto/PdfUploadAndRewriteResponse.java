@@ -43,4 +43,24 @@ public class PdfUploadAndRewriteResponse {
      * 新的安全性資訊
      */
     private PdfSecurityInfo newSecurityInfo;
+
+    /**
+     * 原始檔案大小 (bytes)
+     */
+    private Long originalFileSize;
+
+    /**
+     * 實際套用的壓縮設定
+     */
+    private String compressionProfile;
+
+    /**
+     * 重新壓縮串流耗時（毫秒）
+     */
+    private Long compressionMillis;
+
+    /**
+     * 重寫方式：full（完整重寫）、incremental（增量更新）
+     */
+    private String rewriteMode;
 }
@@ -0,0 +1,226 @@
+package com.pdffactory.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * PDF API 准入控制過濾器
+ * <p>
+ * 依端點限制同時處理的請求數與處理中的內容大小（以 Content-Length 估算，Base64 請求即為編碼後長度），
+ * 超過限制時不進入 Controller，直接返回 429（併發數已滿、排隊名額已滿）或 503（排隊逾時、處理中內容過大）並附上 Retry-After。
+ * 排隊等待時佔用 servlet 執行緒，因此每個端點與全部端點的排隊數皆有上限，超過時立即拒絕。
+ * 限制內容大小的端點不接受沒有 Content-Length 的請求（例如 chunked 上傳），返回 411，避免以 0 bytes 計入。
+ * 每個端點各自計算，重量級端點滿載時不影響 /health 與 /security-info。
+ */
+@Slf4j
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    /**
+     * 受控端點的路徑前綴
+     */
+    public static final String API_PREFIX = "/api/pdf/";
+
+    private final Map<String, EndpointLimiter> limiters;
+    private final long retryAfterSeconds;
+    private final ObjectMapper objectMapper;
+    private final Map<String, Counter> rejectedCounters = new LinkedHashMap<>();
+
+    /**
+     * @param limiters 端點（/api/pdf/ 之後的路徑）對應的限制器
+     * @param retryAfterSeconds Retry-After 秒數
+     * @param objectMapper 序列化拒絕響應
+     * @param meterRegistry 註冊拒絕次數指標
+     */
+    public AdmissionControlFilter(Map<String, EndpointLimiter> limiters,
+                                  long retryAfterSeconds,
+                                  ObjectMapper objectMapper,
+                                  MeterRegistry meterRegistry) {
+        this.limiters = limiters;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.objectMapper = objectMapper;
+
+        for (String endpoint : limiters.keySet()) {
+            for (EndpointLimiter.Rejection reason : EndpointLimiter.Rejection.values()) {
+                rejectedCounters.put(counterKey(endpoint, reason), Counter.builder("pdf.admission.rejected")
+                        .description("准入控制拒絕的請求數")
+                        .tag("endpoint", endpoint)
+                        .tag("reason", reason.name().toLowerCase())
+                        .register(meterRegistry));
+            }
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return endpointOf(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+
+        String endpoint = endpointOf(request);
+        EndpointLimiter limiter = limiters.get(endpoint);
+        long contentLength = request.getContentLengthLong();
+        long bytes = Math.max(contentLength, 0L);
+
+        EndpointLimiter.Rejection rejection;
+        if (contentLength < 0 && limiter.limitsInFlightBytes()) {
+            rejection = EndpointLimiter.Rejection.LENGTH_REQUIRED;
+        } else {
+            try {
+                rejection = limiter.tryAcquire(bytes);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                rejection = EndpointLimiter.Rejection.CONCURRENCY;
+            }
+        }
+        if (rejection != null) {
+            reject(response, endpoint, rejection, bytes);
+            return;
+        }
+
+        boolean releaseNow = true;
+        try {
+            filterChain.doFilter(request, response);
+
+            // 串流響應（StreamingResponseBody）在非同步處理結束後才釋放許可
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleasingListener(limiter, bytes));
+                releaseNow = false;
+            }
+        } finally {
+            if (releaseNow) {
+                limiter.release(bytes);
+            }
+        }
+    }
+
+    /**
+     * 取得請求對應的受控端點
+     *
+     * @return 端點名稱；不受控時回傳 null
+     */
+    private String endpointOf(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (!path.startsWith(API_PREFIX)) {
+            return null;
+        }
+        String endpoint = path.substring(API_PREFIX.length());
+        return limiters.containsKey(endpoint) ? endpoint : null;
+    }
+
+    /**
+     * 返回拒絕響應
+     */
+    private void reject(HttpServletResponse response,
+                        String endpoint,
+                        EndpointLimiter.Rejection rejection,
+                        long bytes) throws IOException {
+
+        rejectedCounters.get(counterKey(endpoint, rejection)).increment();
+
+        HttpStatus status;
+        String message;
+        switch (rejection) {
+            case CONCURRENCY -> {
+                status = HttpStatus.TOO_MANY_REQUESTS;
+                message = "同時處理的請求數已達上限，請稍後重試";
+            }
+            case QUEUE_FULL -> {
+                status = HttpStatus.TOO_MANY_REQUESTS;
+                message = "排隊等待的請求數已達上限，請稍後重試";
+            }
+            case QUEUE_TIMEOUT -> {
+                status = HttpStatus.SERVICE_UNAVAILABLE;
+                message = "排隊等待處理逾時，請稍後重試";
+            }
+            case IN_FLIGHT_BYTES -> {
+                status = HttpStatus.SERVICE_UNAVAILABLE;
+                message = "處理中的內容大小已達上限，請稍後重試";
+            }
+            default -> {
+                status = HttpStatus.LENGTH_REQUIRED;
+                message = "此端點需要 Content-Length，不接受 chunked 上傳";
+            }
+        }
+        log.warn("拒絕請求 - 端點: {}, 原因: {}, 內容大小: {} bytes", endpoint, rejection, bytes);
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("success", false);
+        body.put("message", message);
+
+        response.setStatus(status.value());
+        if (rejection != EndpointLimiter.Rejection.LENGTH_REQUIRED) {
+            // 缺少 Content-Length 時重試也不會成功，不附上 Retry-After
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+
+    private static String counterKey(String endpoint, EndpointLimiter.Rejection reason) {
+        return endpoint + "#" + reason;
+    }
+
+    /**
+     * 非同步處理結束（完成、逾時或錯誤）時釋放許可，確保只釋放一次
+     */
+    private static final class ReleasingListener implements AsyncListener {
+
+        private final EndpointLimiter limiter;
+        private final long bytes;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private ReleasingListener(EndpointLimiter limiter, long bytes) {
+            this.limiter = limiter;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                limiter.release(bytes);
+            }
+        }
+    }
+}
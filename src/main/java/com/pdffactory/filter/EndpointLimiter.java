@@ -0,0 +1,192 @@
+package com.pdffactory.filter;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 單一端點的併發數與處理中位元組數限制
+ */
+public class EndpointLimiter {
+
+    /**
+     * 拒絕原因
+     */
+    public enum Rejection {
+        /**
+         * 同時處理的請求數已達上限
+         */
+        CONCURRENCY,
+
+        /**
+         * 排隊等待的請求數已達端點的 max-queue-depth 或全部端點的 max-queued-total
+         */
+        QUEUE_FULL,
+
+        /**
+         * 排隊等待超過 max-queue-wait 仍未取得許可
+         */
+        QUEUE_TIMEOUT,
+
+        /**
+         * 處理中請求的內容總大小已達上限
+         */
+        IN_FLIGHT_BYTES,
+
+        /**
+         * 限制內容大小的端點未提供 Content-Length（例如 chunked 上傳），無法計入處理中位元組數
+         */
+        LENGTH_REQUIRED
+    }
+
+    private final Semaphore permits;
+    private final long maxInFlightBytes;
+    private final long maxQueueWaitNanos;
+    private final int maxQueueDepth;
+    private final Semaphore sharedQueueSlots;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong inFlightBytes = new AtomicLong();
+
+    /**
+     * @param maxConcurrent 併發數上限（0 表示不限制）
+     * @param maxInFlightBytes 處理中位元組數上限（0 表示不限制）
+     * @param maxQueueWaitNanos 併發數已滿時的最長等待時間
+     */
+    public EndpointLimiter(int maxConcurrent, long maxInFlightBytes, long maxQueueWaitNanos) {
+        this(maxConcurrent, maxInFlightBytes, maxQueueWaitNanos, 0, null);
+    }
+
+    /**
+     * @param maxConcurrent 併發數上限（0 表示不限制）
+     * @param maxInFlightBytes 處理中位元組數上限（0 表示不限制）
+     * @param maxQueueWaitNanos 併發數已滿時的最長等待時間
+     * @param maxQueueDepth 此端點同時排隊等待的請求數上限（0 表示只受 sharedQueueSlots 限制）
+     * @param sharedQueueSlots 所有端點共用的排隊名額（排隊時佔用 servlet 執行緒），null 表示不限制
+     */
+    public EndpointLimiter(int maxConcurrent, long maxInFlightBytes, long maxQueueWaitNanos,
+                           int maxQueueDepth, Semaphore sharedQueueSlots) {
+        this.permits = maxConcurrent > 0 ? new Semaphore(maxConcurrent, true) : null;
+        this.maxInFlightBytes = maxInFlightBytes;
+        this.maxQueueWaitNanos = maxQueueWaitNanos;
+        this.maxQueueDepth = maxQueueDepth;
+        this.sharedQueueSlots = sharedQueueSlots;
+    }
+
+    /**
+     * 嘗試取得處理許可
+     *
+     * @param bytes 請求內容大小
+     * @return 拒絕原因；取得許可時回傳 null（之後需呼叫 {@link #release(long)}）
+     */
+    public Rejection tryAcquire(long bytes) throws InterruptedException {
+        if (!reserveBytes(bytes)) {
+            return Rejection.IN_FLIGHT_BYTES;
+        }
+
+        if (permits != null && !permits.tryAcquire()) {
+            if (maxQueueWaitNanos <= 0) {
+                inFlightBytes.addAndGet(-bytes);
+                return Rejection.CONCURRENCY;
+            }
+            // 排隊名額已滿時立即拒絕，不讓等待的請求佔滿 servlet 執行緒
+            if (!reserveQueueSlot()) {
+                inFlightBytes.addAndGet(-bytes);
+                return Rejection.QUEUE_FULL;
+            }
+            boolean acquired;
+            try {
+                acquired = permits.tryAcquire(maxQueueWaitNanos, TimeUnit.NANOSECONDS);
+            } finally {
+                releaseQueueSlot();
+            }
+            if (!acquired) {
+                inFlightBytes.addAndGet(-bytes);
+                return Rejection.QUEUE_TIMEOUT;
+            }
+        }
+
+        active.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * 釋放處理許可
+     *
+     * @param bytes 取得許可時的請求內容大小
+     */
+    public void release(long bytes) {
+        active.decrementAndGet();
+        inFlightBytes.addAndGet(-bytes);
+        if (permits != null) {
+            permits.release();
+        }
+    }
+
+    /**
+     * 佔用此端點與共用的排隊名額
+     */
+    private boolean reserveQueueSlot() {
+        while (true) {
+            int current = queued.get();
+            if (maxQueueDepth > 0 && current >= maxQueueDepth) {
+                return false;
+            }
+            if (queued.compareAndSet(current, current + 1)) {
+                break;
+            }
+        }
+        if (sharedQueueSlots != null && !sharedQueueSlots.tryAcquire()) {
+            queued.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    private void releaseQueueSlot() {
+        if (sharedQueueSlots != null) {
+            sharedQueueSlots.release();
+        }
+        queued.decrementAndGet();
+    }
+
+    /**
+     * 預留處理中位元組數；沒有其他請求處理中時一律允許，避免單一大型請求永遠無法通過
+     */
+    private boolean reserveBytes(long bytes) {
+        if (maxInFlightBytes <= 0) {
+            inFlightBytes.addAndGet(bytes);
+            return true;
+        }
+        while (true) {
+            long current = inFlightBytes.get();
+            if (current > 0 && current + bytes > maxInFlightBytes) {
+                return false;
+            }
+            if (inFlightBytes.compareAndSet(current, current + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 是否限制處理中位元組數（需要事先知道請求內容大小）
+     */
+    public boolean limitsInFlightBytes() {
+        return maxInFlightBytes > 0;
+    }
+
+    public int getActive() {
+        return active.get();
+    }
+
+    public int getQueued() {
+        return queued.get();
+    }
+
+    public long getInFlightBytes() {
+        return inFlightBytes.get();
+    }
+}
@@ -0,0 +1,224 @@
+package com.pdffactory.service;
+
+import com.lowagie.text.ExceptionConverter;
+import com.lowagie.text.pdf.OutputStreamEncryption;
+import com.lowagie.text.pdf.PdfEncryption;
+import com.lowagie.text.pdf.PdfWriter;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+/**
+ * 以 JCE 執行物件加密的 PdfEncryption
+ * <p>
+ * OpenPDF 的 AES 加密使用 BouncyCastle 的純 Java AESEngine；此類別沿用 OpenPDF 的金鑰推導與
+ * /Encrypt 字典（R4 AES-128、R6 AES-256），僅將字串與串流的 AES/CBC 加密改由 javax.crypto 執行，
+ * 使 JIT 的 AES-NI intrinsics 生效。RC4 仍由 OpenPDF 處理。
+ * <p>
+ * 每份文件的 PdfEncryption 只由一個 writer 執行緒使用，Cipher 實例隨物件重複初始化。
+ */
+final class JceAesPdfEncryption extends PdfEncryption {
+
+    private static final String TRANSFORMATION = "AES/CBC/PKCS5Padding";
+    private static final int BLOCK_SIZE = 16;
+    private static final SecureRandom IV_RANDOM = new SecureRandom();
+
+    private final Cipher cipher;
+    private SecretKeySpec objectKey;
+
+    private JceAesPdfEncryption(PdfEncryption source) throws GeneralSecurityException {
+        super(source);
+        // 複製建構子不保留 cryptoMode，重新設定以還原版本、金鑰長度與 metadata 旗標
+        setCryptoMode(source.getCryptoMode(), 0);
+        this.cipher = Cipher.getInstance(TRANSFORMATION);
+    }
+
+    /**
+     * 是否可存取 OpenPDF 未公開的欄位（首次呼叫時解析）
+     */
+    static boolean isAvailable() {
+        return Fields.FAILURE == null;
+    }
+
+    /**
+     * 無法存取 OpenPDF 未公開欄位的原因（可存取時為 null）
+     */
+    static Throwable unavailableCause() {
+        return Fields.FAILURE;
+    }
+
+    /**
+     * 將 writer 已設定的 AES 加密改由 JCE 執行（必須在 setEncryption 之後、寫出內容之前呼叫）
+     *
+     * @param writer 已呼叫 setEncryption 的 writer
+     * @return 是否已替換（無法存取 OpenPDF 欄位、未加密、RC4 或已替換時回傳 false）
+     */
+    static boolean install(PdfWriter writer) throws GeneralSecurityException {
+        if (!isAvailable()) {
+            return false;
+        }
+        PdfEncryption crypto = (PdfEncryption) Fields.WRITER_CRYPTO.get(writer);
+        if (crypto == null || crypto instanceof JceAesPdfEncryption || !isAes(crypto.getCryptoMode())) {
+            return false;
+        }
+        Fields.WRITER_CRYPTO.set(writer, new JceAesPdfEncryption(crypto));
+        return true;
+    }
+
+    private static boolean isAes(int cryptoMode) {
+        int mode = cryptoMode & 7;
+        return mode == PdfWriter.ENCRYPTION_AES_128 || mode == PdfWriter.ENCRYPTION_AES_256_V3;
+    }
+
+    @Override
+    public void setHashKey(int number, int generation) {
+        super.setHashKey(number, generation);
+        objectKey = null;
+    }
+
+    @Override
+    public byte[] encryptByteArray(byte[] b) {
+        byte[] iv = nextIv();
+        byte[] out = new byte[calculateStreamSize(b.length)];
+        System.arraycopy(iv, 0, out, 0, BLOCK_SIZE);
+        try {
+            initCipher(iv).doFinal(b, 0, b.length, out, BLOCK_SIZE);
+        } catch (GeneralSecurityException e) {
+            throw new ExceptionConverter(e);
+        }
+        return out;
+    }
+
+    @Override
+    public OutputStreamEncryption getEncryptionStream(OutputStream os) {
+        byte[] iv = nextIv();
+        try {
+            // 串流期間仍可能加密其他字串，使用獨立的 Cipher 實例
+            Cipher streamCipher = Cipher.getInstance(TRANSFORMATION);
+            streamCipher.init(Cipher.ENCRYPT_MODE, objectKey(), new IvParameterSpec(iv));
+            os.write(iv);
+            return new CipherStream(os, streamCipher);
+        } catch (GeneralSecurityException | IOException e) {
+            throw new ExceptionConverter(e);
+        }
+    }
+
+    private Cipher initCipher(byte[] iv) throws GeneralSecurityException {
+        cipher.init(Cipher.ENCRYPT_MODE, objectKey(), new IvParameterSpec(iv));
+        return cipher;
+    }
+
+    /**
+     * 目前物件的金鑰（由 setHashKey 推導，R6 為文件金鑰）
+     */
+    private SecretKeySpec objectKey() {
+        if (objectKey == null) {
+            objectKey = new SecretKeySpec((byte[]) Fields.KEY.get(this), 0, (int) Fields.KEY_SIZE.get(this), "AES");
+        }
+        return objectKey;
+    }
+
+    private static byte[] nextIv() {
+        byte[] iv = new byte[BLOCK_SIZE];
+        IV_RANDOM.nextBytes(iv);
+        return iv;
+    }
+
+    /**
+     * OpenPDF 未公開的欄位：writer 的 crypto 與目前物件金鑰
+     * <p>
+     * 於第一次使用時解析（holder 類別延遲初始化）；OpenPDF 版本變更或模組限制導致無法存取時不拋出例外，
+     * 記錄原因並由 {@link #isAvailable()} 回傳 false，呼叫端沿用 OpenPDF 內建加密。
+     */
+    private static final class Fields {
+
+        static final VarHandle WRITER_CRYPTO;
+        static final VarHandle KEY;
+        static final VarHandle KEY_SIZE;
+        static final Throwable FAILURE;
+
+        static {
+            VarHandle writerCrypto = null;
+            VarHandle key = null;
+            VarHandle keySize = null;
+            Throwable failure = null;
+            try {
+                writerCrypto = MethodHandles.privateLookupIn(PdfWriter.class, MethodHandles.lookup())
+                        .findVarHandle(PdfWriter.class, "crypto", PdfEncryption.class);
+                MethodHandles.Lookup encryptionLookup =
+                        MethodHandles.privateLookupIn(PdfEncryption.class, MethodHandles.lookup());
+                key = encryptionLookup.findVarHandle(PdfEncryption.class, "key", byte[].class);
+                keySize = encryptionLookup.findVarHandle(PdfEncryption.class, "keySize", int.class);
+            } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+                failure = e;
+            }
+            WRITER_CRYPTO = writerCrypto;
+            KEY = key;
+            KEY_SIZE = keySize;
+            FAILURE = failure;
+        }
+
+        private Fields() {
+        }
+    }
+
+    /**
+     * 串流加密輸出（PdfStream 寫出新內容串流時使用）
+     * <p>
+     * 父類別建構子必然建立 OpenPDF 的加密器，此處以 RC4 模式與空輸出建構（不寫出任何資料），
+     * 所有寫入皆改由 JCE Cipher 處理。
+     */
+    private static final class CipherStream extends OutputStreamEncryption {
+
+        private static final byte[] PLACEHOLDER_KEY = new byte[BLOCK_SIZE];
+
+        private final Cipher cipher;
+        private byte[] buffer = new byte[4096];
+        private boolean finished;
+
+        CipherStream(OutputStream out, Cipher cipher) {
+            super(OutputStream.nullOutputStream(), PLACEHOLDER_KEY, 0);
+            this.out = out;
+            this.cipher = cipher;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            int size = cipher.getOutputSize(len);
+            if (buffer.length < size) {
+                buffer = new byte[size];
+            }
+            try {
+                int written = cipher.update(b, off, len, buffer, 0);
+                out.write(buffer, 0, written);
+            } catch (GeneralSecurityException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            try {
+                out.write(cipher.doFinal());
+            } catch (GeneralSecurityException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.pdffactory.service;
+
+import com.lowagie.text.pdf.PRIndirectReference;
+import com.lowagie.text.pdf.PdfDictionary;
+import com.lowagie.text.pdf.PdfName;
+import com.lowagie.text.pdf.PdfObject;
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.RandomAccessFileOrArray;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
+
+/**
+ * 重用已推導檔案金鑰的 PdfReader（部分讀取模式）
+ * <p>
+ * OpenPDF 在 {@code readDocObjPartial} 內以密碼推導檔案金鑰，且於 {@code encrypted} 已為 true 時略過。
+ * 此類別先標記為已加密讓 OpenPDF 跳過推導，讀取 xref 後依 /ID、/Encrypt 字典與密碼查詢
+ * {@link PdfDerivedKeyCache}：命中時直接還原解密狀態，未命中時再呼叫 OpenPDF 原本的推導流程並寫入快取。
+ * 密碼錯誤時不會寫入快取，仍由 OpenPDF 拋出 BadPasswordException。
+ * <p>
+ * 依賴 OpenPDF 未公開的欄位與方法（以 OpenPDF 1.3.34 驗證），無法存取時 {@link #isAvailable()} 回傳 false，
+ * 由 {@link PdfDerivedKeyCache} 在啟動時停用快取，呼叫端改用一般 PdfReader。
+ */
+final class KeyCachingPdfReader extends PdfReader {
+
+    /**
+     * 父類別建構子即開始解析文件，快取於建構期間經由此欄位傳入
+     */
+    private static final ThreadLocal<PdfDerivedKeyCache> PENDING_CACHE = new ThreadLocal<>();
+
+    private KeyCachingPdfReader(RandomAccessFileOrArray source, byte[] password) throws IOException {
+        super(source, password);
+    }
+
+    /**
+     * 是否可存取 OpenPDF 未公開的欄位與方法（首次呼叫時解析）
+     */
+    static boolean isAvailable() {
+        return Internals.FAILURE == null;
+    }
+
+    /**
+     * 無法存取 OpenPDF 未公開欄位與方法的原因（可存取時為 null）
+     */
+    static Throwable unavailableCause() {
+        return Internals.FAILURE;
+    }
+
+    /**
+     * 以部分讀取模式開啟 PDF，加密文件的檔案金鑰經由快取取得（需先確認 {@link #isAvailable()}）
+     *
+     * @param source PDF 來源（由回傳的 reader 持有）
+     * @param password 密碼（可選）
+     * @param cache 檔案金鑰快取
+     * @return PdfReader 實例
+     */
+    static PdfReader open(RandomAccessFileOrArray source, byte[] password,
+                          PdfDerivedKeyCache cache) throws IOException {
+        PENDING_CACHE.set(cache);
+        try {
+            return new KeyCachingPdfReader(source, password);
+        } finally {
+            PENDING_CACHE.remove();
+        }
+    }
+
+    @Override
+    protected void readDocObjPartial() throws IOException {
+        PdfDerivedKeyCache cache = PENDING_CACHE.get();
+        PdfObject encryptRef = trailer != null ? trailer.get(PdfName.ENCRYPT) : null;
+        if (cache == null || encryptRef == null || "null".equals(encryptRef.toString())) {
+            super.readDocObjPartial();
+            return;
+        }
+
+        // 先讓 OpenPDF 略過金鑰推導，xref 就緒後才能讀取 /Encrypt 字典組成快取鍵
+        encrypted = true;
+        super.readDocObjPartial();
+        encrypted = false;
+
+        PdfObject encryptObject = getPdfObject(encryptRef);
+        PdfDerivedKeyCache.Key key = encryptObject != null && encryptObject.isDictionary()
+                ? cache.keyFor(trailer, (PdfDictionary) encryptObject, password)
+                : null;
+
+        PdfDerivedKeyCache.CachedDecryption cached = cache.get(key);
+        if (cached != null) {
+            decrypt = cached.encryption();
+            pValue = cached.permissions();
+            rValue = cached.revision();
+            Internals.OWNER_PASSWORD_USED.set(this, cached.ownerPasswordUsed());
+            if (encryptRef.isIndirect()) {
+                Internals.CRYPTO_REF.set(this, (PRIndirectReference) encryptRef);
+            }
+            encrypted = true;
+            return;
+        }
+
+        readDecryptedDocObj();
+        if (decrypt != null) {
+            cache.put(key, new PdfDerivedKeyCache.CachedDecryption(
+                    decrypt, pValue, rValue, (boolean) Internals.OWNER_PASSWORD_USED.get(this)));
+        }
+    }
+
+    /**
+     * 呼叫 OpenPDF 原本的金鑰推導與密碼驗證
+     */
+    private void readDecryptedDocObj() throws IOException {
+        try {
+            Internals.READ_DECRYPTED_DOC_OBJ.invokeExact((PdfReader) this);
+        } catch (IOException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * OpenPDF 未公開的欄位與方法
+     * <p>
+     * 於第一次使用時解析（holder 類別延遲初始化），無法存取時記錄原因而不拋出例外。
+     */
+    private static final class Internals {
+
+        static final VarHandle OWNER_PASSWORD_USED;
+        static final VarHandle CRYPTO_REF;
+        static final MethodHandle READ_DECRYPTED_DOC_OBJ;
+        static final Throwable FAILURE;
+
+        static {
+            VarHandle ownerPasswordUsed = null;
+            VarHandle cryptoRef = null;
+            MethodHandle readDecryptedDocObj = null;
+            Throwable failure = null;
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(PdfReader.class, MethodHandles.lookup());
+                ownerPasswordUsed = lookup.findVarHandle(PdfReader.class, "ownerPasswordUsed", boolean.class);
+                cryptoRef = lookup.findVarHandle(PdfReader.class, "cryptoRef", PRIndirectReference.class);
+                readDecryptedDocObj = lookup.findVirtual(PdfReader.class, "readDecryptedDocObj",
+                        MethodType.methodType(void.class));
+            } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+                failure = e;
+            }
+            OWNER_PASSWORD_USED = ownerPasswordUsed;
+            CRYPTO_REF = cryptoRef;
+            READ_DECRYPTED_DOC_OBJ = readDecryptedDocObj;
+            FAILURE = failure;
+        }
+
+        private Internals() {
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.pdffactory.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdffactory.dto.PdfBulkSecurityItemResult;
+import com.pdffactory.exception.PdfProcessingException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * PDF 批次套用安全性設定服務
+ * <p>
+ * 依輸入順序逐一將文件寫入暫存檔，在批次執行緒池上平行套用同一個安全性設定檔，
+ * 再依輸入順序將結果寫入 ZIP。同時處理中的文件數受 {@code pdf-factory.bulk-security.max-in-flight} 限制，
+ * 輸入與輸出皆經由暫存檔案，記憶體用量與文件總數無關。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PdfBulkSecurityService {
+
+    /**
+     * 回應 ZIP 中記錄各文件結果的項目名稱
+     */
+    public static final String MANIFEST_ENTRY = "manifest.json";
+
+    /**
+     * 批次輸入的文件來源（依輸入順序逐一讀取）
+     */
+    @FunctionalInterface
+    public interface DocumentSource {
+
+        /**
+         * 將下一份文件寫入 target
+         *
+         * @param target 暫存檔案路徑（已存在，可直接覆寫）
+         * @return 文件名稱；沒有更多文件時回傳 null
+         */
+        String next(Path target) throws IOException;
+    }
+
+    /**
+     * 處理中的文件
+     */
+    private record Pending(Path input, Path output, Future<PdfBulkSecurityItemResult> future) {
+    }
+
+    private final PdfSecurityService pdfSecurityService;
+    private final PdfReaderService pdfReaderService;
+    private final ObjectMapper objectMapper;
+    private final PdfPipelineMetrics pipelineMetrics;
+
+    @Qualifier("pdfBatchExecutor")
+    private final ExecutorService pdfBatchExecutor;
+
+    /**
+     * 同時處理（已接收但尚未寫出）的文件數上限，0 表示批次執行緒數的兩倍
+     */
+    @Value("${pdf-factory.bulk-security.max-in-flight:0}")
+    private int maxInFlight;
+
+    /**
+     * 將安全性設定檔套用到來源中的所有文件，結果依輸入順序寫入 ZIP
+     * <p>
+     * 成功的文件各自成為一個 ZIP 項目，最後附上 {@value #MANIFEST_ENTRY} 記錄每份文件的結果；
+     * 單一文件失敗只會反映在 manifest 中。outputStream 不會被關閉。
+     *
+     * @param profile 安全性設定檔
+     * @param source 文件來源
+     * @param outputStream ZIP 輸出流
+     */
+    public void applyProfile(PdfSecurityProfile profile, DocumentSource source, OutputStream outputStream)
+            throws IOException {
+
+        log.info("開始批次套用安全性設定檔: {}", profile.name());
+
+        int inFlightLimit = maxInFlight > 0 ? maxInFlight : Runtime.getRuntime().availableProcessors() * 2;
+        Deque<Pending> window = new ArrayDeque<>(inFlightLimit);
+        List<PdfBulkSecurityItemResult> results = new ArrayList<>();
+        Set<String> entryNames = new HashSet<>(Set.of(MANIFEST_ENTRY));
+
+        try (ZipOutputStream zip = new ZipOutputStream(CloseShieldOutputStream.wrap(outputStream))) {
+            // 加密後的 PDF 幾乎無法再壓縮，不耗費 CPU 壓縮
+            zip.setLevel(Deflater.NO_COMPRESSION);
+
+            for (int index = 0; ; index++) {
+                Path input = Files.createTempFile("pdf-factory-bulk", ".pdf");
+                String fileName;
+                long writeStart = System.nanoTime();
+                try {
+                    fileName = source.next(input);
+                } catch (IOException | RuntimeException e) {
+                    deleteTempFile(input);
+                    throw e;
+                }
+                if (fileName == null) {
+                    deleteTempFile(input);
+                    break;
+                }
+
+                // 處理中的文件達到上限時，先寫出最早的文件再接收下一份
+                if (window.size() >= inFlightLimit) {
+                    results.add(writeEntry(zip, window.removeFirst(), entryNames));
+                }
+
+                // 每份文件各自記錄監控指標，接收文件（寫入暫存檔）的時間記錄在此執行緒
+                PdfPipelineMetrics.Recording recording = pipelineMetrics.create("apply-security/bulk");
+                recording.record(PdfPipelineMetrics.Stage.TEMP_FILE_WRITE, System.nanoTime() - writeStart,
+                        Files.size(input));
+
+                Path output = Files.createTempFile("pdf-factory-bulk", ".pdf");
+                int itemIndex = index;
+                window.addLast(new Pending(input, output, pdfBatchExecutor.submit(
+                        () -> processItem(itemIndex, fileName, input, output, profile, recording))));
+            }
+
+            while (!window.isEmpty()) {
+                results.add(writeEntry(zip, window.removeFirst(), entryNames));
+            }
+
+            zip.putNextEntry(new ZipEntry(MANIFEST_ENTRY));
+            zip.write(objectMapper.writeValueAsBytes(results));
+            zip.closeEntry();
+
+        } catch (IOException | RuntimeException e) {
+            log.warn("批次套用安全性設定中斷，取消尚未完成的文件", e);
+            for (Pending pending : window) {
+                pending.future().cancel(true);
+                deleteTempFile(pending.input());
+                deleteTempFile(pending.output());
+            }
+            throw e;
+        }
+
+        long succeeded = results.stream().filter(PdfBulkSecurityItemResult::isSuccess).count();
+        log.info("批次套用安全性設定完成，成功 {} / {}", succeeded, results.size());
+    }
+
+    /**
+     * 將安全性設定檔套用到上傳 ZIP 中的所有 PDF（目錄項目略過）
+     * <p>
+     * 上傳內容先完整寫入暫存檔再開始處理，回應開始後不再讀取請求內容，
+     * 客戶端不需在上傳期間同時讀取回應。暫存檔於回應完成後刪除。
+     *
+     * @param profile 安全性設定檔
+     * @param zipStream ZIP 輸入流
+     * @return 寫出結果 ZIP 的串流回應內容
+     */
+    public StreamingResponseBody applyProfileToZip(PdfSecurityProfile profile, InputStream zipStream) {
+        Path zipPath = null;
+        try {
+            zipPath = Files.createTempFile("pdf-factory-bulk", ".zip");
+            long uploadedBytes = Files.copy(zipStream, zipPath, StandardCopyOption.REPLACE_EXISTING);
+            log.debug("已接收批次上傳內容 {} bytes", uploadedBytes);
+        } catch (IOException e) {
+            log.error("批次上傳失敗", e);
+            deleteTempFile(zipPath);
+            throw new PdfProcessingException("批次上傳失敗: " + e.getMessage(), e);
+        }
+
+        Path uploadedPath = zipPath;
+        return outputStream -> {
+            try (ZipInputStream zip = new ZipInputStream(new BufferedInputStream(Files.newInputStream(uploadedPath)))) {
+                applyProfile(profile, target -> {
+                    ZipEntry entry;
+                    do {
+                        entry = zip.getNextEntry();
+                    } while (entry != null && entry.isDirectory());
+                    if (entry == null) {
+                        return null;
+                    }
+                    Files.copy(zip, target, StandardCopyOption.REPLACE_EXISTING);
+                    return entry.getName();
+                }, outputStream);
+            } finally {
+                deleteTempFile(uploadedPath);
+            }
+        };
+    }
+
+    /**
+     * 套用安全性設定檔到單一文件（在批次執行緒池上執行），完成後刪除輸入暫存檔並發布監控指標
+     */
+    private PdfBulkSecurityItemResult processItem(int index, String fileName, Path input, Path output,
+                                                  PdfSecurityProfile profile, PdfPipelineMetrics.Recording recording) {
+        long start = System.nanoTime();
+        PdfBulkSecurityItemResult.PdfBulkSecurityItemResultBuilder result = PdfBulkSecurityItemResult.builder()
+                .index(index)
+                .fileName(fileName);
+
+        // 輸出暫存檔由呼叫端建立，中斷時已被刪除則不重新建立
+        PdfPipelineMetrics.Scope scope = recording.bind();
+        try (OutputStream outputStream = new BufferedOutputStream(
+                     Files.newOutputStream(output, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))) {
+            recording.inFlight(Files.size(input));
+            pdfSecurityService.applyProfile(pdfReaderService.openMappedSource(input), profile, outputStream);
+            result.success(true).message("安全性設定套用成功");
+        } catch (Exception e) {
+            log.error("批次套用安全性設定失敗: {}", fileName, e);
+            result.success(false).message("套用安全性設定失敗: " + e.getMessage());
+        } finally {
+            scope.close();
+            deleteTempFile(input);
+            recording.close();
+        }
+
+        return result
+                .elapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                .build();
+    }
+
+    /**
+     * 等待文件處理完成並寫入 ZIP，完成後刪除輸出暫存檔
+     */
+    private PdfBulkSecurityItemResult writeEntry(ZipOutputStream zip, Pending pending, Set<String> entryNames)
+            throws IOException {
+        try {
+            PdfBulkSecurityItemResult result = awaitResult(pending);
+            if (result.isSuccess()) {
+                String entryName = entryName(result, entryNames);
+                zip.putNextEntry(new ZipEntry(entryName));
+                result.setFileSize(Files.copy(pending.output(), zip));
+                result.setEntryName(entryName);
+                zip.closeEntry();
+            }
+            return result;
+        } finally {
+            deleteTempFile(pending.output());
+        }
+    }
+
+    private PdfBulkSecurityItemResult awaitResult(Pending pending) throws IOException {
+        try {
+            return pending.future().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("批次套用安全性設定被中斷", e);
+        } catch (ExecutionException e) {
+            // processItem 已處理所有例外，此處僅為防禦
+            throw new PdfProcessingException("批次套用安全性設定項目執行失敗", e.getCause());
+        }
+    }
+
+    /**
+     * 決定 ZIP 項目名稱：使用輸入檔名（去除目錄），重複或空白時加上索引
+     */
+    private String entryName(PdfBulkSecurityItemResult result, Set<String> entryNames) {
+        String fileName = result.getFileName();
+        String name = fileName != null ? fileName.substring(fileName.replace('\\', '/').lastIndexOf('/') + 1) : "";
+        if (name.isBlank()) {
+            name = "document-" + result.getIndex() + ".pdf";
+        }
+        if (!entryNames.add(name)) {
+            name = result.getIndex() + "-" + name;
+            entryNames.add(name);
+        }
+        return name;
+    }
+
+    /**
+     * 刪除暫存檔案
+     */
+    private void deleteTempFile(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("清理暫存檔案失敗: {}", path, e);
+        }
+    }
+}
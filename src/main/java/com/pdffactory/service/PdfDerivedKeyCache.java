@@ -0,0 +1,287 @@
+package com.pdffactory.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.lowagie.text.pdf.PdfArray;
+import com.lowagie.text.pdf.PdfDictionary;
+import com.lowagie.text.pdf.PdfEncryption;
+import com.lowagie.text.pdf.PdfName;
+import com.lowagie.text.pdf.PdfObject;
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.PdfString;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+/**
+ * 密碼推導檔案金鑰快取
+ * <p>
+ * 開啟加密 PDF 時，OpenPDF 每次都以密碼重新推導檔案金鑰（R3/R4 為 50 輪 MD5，R6 為 SHA-2 迴圈），
+ * 同一份文件在短時間內重複開啟（查詢安全性資訊、重寫、平行分段複製）時可直接重用已推導的金鑰。
+ * <p>
+ * 快取鍵由文件 /ID、/Encrypt 字典內容摘要與密碼指紋（以程序內隨機金鑰計算的 HMAC）組成，
+ * 不保存密碼本身；金鑰保存在 byte[] 中，項目逾時或被淘汰時立即清零。
+ * 只快取 /Standard 安全性處理常式且具有 /ID 的文件。
+ * <p>
+ * 需存取 OpenPDF 未公開的欄位（見 {@link KeyCachingPdfReader}），啟動時確認可存取，否則停用快取並改用一般 PdfReader。
+ */
+@Slf4j
+@Component
+public class PdfDerivedKeyCache {
+
+    /**
+     * 快取鍵
+     *
+     * @param documentId 文件 /ID 第一個元素（十六進位）
+     * @param encryptDigest /Encrypt 字典內容的 SHA-256 摘要（十六進位）
+     * @param passwordFingerprint 密碼指紋
+     */
+    record Key(String documentId, String encryptDigest, String passwordFingerprint) {
+    }
+
+    private final boolean enabled;
+    private final Cache<Key, DerivedKey> cache;
+    private final SecretKeySpec fingerprintKey;
+
+    public PdfDerivedKeyCache(
+            @Value("${pdf-factory.cache.derived-key.enabled:true}") boolean enabled,
+            @Value("${pdf-factory.cache.derived-key.max-size:1000}") long maxSize,
+            @Value("${pdf-factory.cache.derived-key.ttl:5m}") Duration ttl,
+            MeterRegistry meterRegistry) {
+
+        Throwable unavailable = enabled ? unavailableCause() : null;
+        if (unavailable != null) {
+            log.warn("無法存取 OpenPDF 內部欄位（OpenPDF 版本不相容？），停用檔案金鑰快取", unavailable);
+        }
+        this.enabled = enabled && unavailable == null;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .removalListener((Key key, DerivedKey derivedKey, RemovalCause cause) -> {
+                    if (derivedKey != null) {
+                        derivedKey.wipe();
+                    }
+                })
+                .recordStats()
+                .build();
+
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.fingerprintKey = new SecretKeySpec(secret, "HmacSHA256");
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "pdf.derived-key");
+    }
+
+    /**
+     * 是否啟用快取（設定啟用且可存取 OpenPDF 內部欄位）；停用時應以一般 PdfReader 開啟文件
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 無法存取快取所需的 OpenPDF 內部欄位的原因（可存取時為 null）
+     */
+    private static Throwable unavailableCause() {
+        Throwable cause = KeyCachingPdfReader.unavailableCause();
+        return cause != null ? cause : DerivedKey.Internals.FAILURE;
+    }
+
+    /**
+     * 建立快取鍵
+     *
+     * @param trailer 文件 trailer
+     * @param encryptDict 未解密的 /Encrypt 字典
+     * @param password 開啟文件使用的密碼（null 視為空密碼）
+     * @return 快取鍵；停用快取、缺少 /ID 或非 /Standard 安全性處理常式時回傳 null
+     */
+    Key keyFor(PdfDictionary trailer, PdfDictionary encryptDict, byte[] password) {
+        if (!enabled || encryptDict == null || !PdfName.STANDARD.equals(encryptDict.get(PdfName.FILTER))) {
+            return null;
+        }
+        PdfArray ids = trailer.getAsArray(PdfName.ID);
+        if (ids == null || ids.isEmpty() || !(ids.getPdfObject(0) instanceof PdfString documentId)) {
+            return null;
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, encryptDict);
+            return new Key(
+                    HexFormat.of().formatHex(documentId.getOriginalBytes()),
+                    HexFormat.of().formatHex(digest.digest()),
+                    fingerprint(password));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    /**
+     * 取得快取的解密設定
+     *
+     * @param key 快取鍵（可為 null）
+     * @return 新的 PdfEncryption（每個 reader 各自持有一份）；未命中時回傳 null
+     */
+    CachedDecryption get(Key key) {
+        DerivedKey derivedKey = key != null ? cache.getIfPresent(key) : null;
+        return derivedKey != null ? derivedKey.restore() : null;
+    }
+
+    /**
+     * 記錄 OpenPDF 以密碼推導完成的解密設定
+     *
+     * @param key 快取鍵（可為 null）
+     * @param decryption 推導完成的解密設定
+     */
+    void put(Key key, CachedDecryption decryption) {
+        if (key != null) {
+            cache.put(key, new DerivedKey(decryption));
+        }
+    }
+
+    /**
+     * 計算 /Encrypt 字典內容摘要（依鍵名排序，字串使用未解密的原始位元組）
+     */
+    private static void update(MessageDigest digest, PdfObject object) {
+        object = PdfReader.getPdfObjectRelease(object);
+        if (object == null) {
+            return;
+        }
+        if (object.isDictionary()) {
+            PdfDictionary dictionary = (PdfDictionary) object;
+            dictionary.getKeys().stream()
+                    .sorted()
+                    .forEach(name -> {
+                        digest.update(name.getBytes());
+                        update(digest, dictionary.get(name));
+                    });
+        } else if (object.isArray()) {
+            for (PdfObject element : ((PdfArray) object).getElements()) {
+                update(digest, element);
+            }
+        } else if (object.isString()) {
+            digest.update(((PdfString) object).getOriginalBytes());
+        } else {
+            digest.update(object.toString().getBytes(StandardCharsets.ISO_8859_1));
+        }
+        digest.update((byte) 0);
+    }
+
+    /**
+     * 計算密碼指紋，不在快取中保存密碼本身
+     */
+    private String fingerprint(byte[] password) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(fingerprintKey);
+            return HexFormat.of().formatHex(mac.doFinal(password != null ? password : new byte[0]));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 不可用", e);
+        }
+    }
+
+    /**
+     * reader 的解密狀態
+     *
+     * @param encryption 推導完成的 PdfEncryption
+     * @param permissions 權限碼（pValue）
+     * @param revision 安全性處理常式版本（rValue）
+     * @param ownerPasswordUsed 是否以擁有者密碼開啟
+     */
+    record CachedDecryption(PdfEncryption encryption, int permissions, int revision, boolean ownerPasswordUsed) {
+    }
+
+    /**
+     * 快取項目：保存 PdfEncryption 的副本，金鑰於淘汰時清零
+     */
+    private static final class DerivedKey {
+
+        /**
+         * OpenPDF 未公開的欄位：RC4 / AES-128 檔案金鑰與目前物件金鑰（R6 即檔案金鑰），無法存取時記錄原因
+         */
+        private static final class Internals {
+
+            static final VarHandle MKEY;
+            static final VarHandle KEY;
+            static final Throwable FAILURE;
+
+            static {
+                VarHandle mkey = null;
+                VarHandle key = null;
+                Throwable failure = null;
+                try {
+                    MethodHandles.Lookup lookup =
+                            MethodHandles.privateLookupIn(PdfEncryption.class, MethodHandles.lookup());
+                    mkey = lookup.findVarHandle(PdfEncryption.class, "mkey", byte[].class);
+                    key = lookup.findVarHandle(PdfEncryption.class, "key", byte[].class);
+                } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+                    failure = e;
+                }
+                MKEY = mkey;
+                KEY = key;
+                FAILURE = failure;
+            }
+
+            private Internals() {
+            }
+        }
+
+        private final PdfEncryption template;
+        private final int cryptoMode;
+        private final int keyLength;
+        private final int permissions;
+        private final int revision;
+        private final boolean ownerPasswordUsed;
+        private boolean wiped;
+
+        private DerivedKey(CachedDecryption decryption) {
+            PdfEncryption source = decryption.encryption();
+            this.template = new PdfEncryption(source);
+            this.cryptoMode = source.getCryptoMode();
+            byte[] mkey = (byte[]) Internals.MKEY.get(source);
+            this.keyLength = mkey != null ? mkey.length * 8 : 0;
+            this.permissions = decryption.permissions();
+            this.revision = decryption.revision();
+            this.ownerPasswordUsed = decryption.ownerPasswordUsed();
+        }
+
+        /**
+         * 建立新的解密狀態；項目已清零時回傳 null
+         */
+        synchronized CachedDecryption restore() {
+            if (wiped) {
+                return null;
+            }
+            PdfEncryption encryption = new PdfEncryption(template);
+            // 複製建構子不保留 cryptoMode；RC4 的金鑰長度以檔案金鑰長度還原
+            encryption.setCryptoMode(cryptoMode, keyLength);
+            return new CachedDecryption(encryption, permissions, revision, ownerPasswordUsed);
+        }
+
+        synchronized void wipe() {
+            wiped = true;
+            fill((byte[]) Internals.MKEY.get(template));
+            fill((byte[]) Internals.KEY.get(template));
+        }
+
+        private static void fill(byte[] key) {
+            if (key != null) {
+                Arrays.fill(key, (byte) 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.pdffactory.service;
+
+import com.lowagie.text.pdf.BaseFont;
+import com.lowagie.text.pdf.PdfContentByte;
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.PdfStamper;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 已註冊的 PDF 範本
+ * <p>
+ * 底稿只解析一次並保存為完整讀取的 PdfReader，每次產生文件時以 OpenPDF 的複製建構子
+ * 複製已解析的物件（不重新解析檔案，串流內容共用同一份原始位元組）；變數欄位的字型於註冊時建立。
+ * 底稿 reader 註冊後不再修改，可同時供多個執行緒複製。
+ */
+public final class PdfDocumentTemplate {
+
+    /**
+     * 變數欄位
+     *
+     * @param name 欄位名稱
+     * @param page 頁碼（從 1 開始）
+     * @param x 文字基線 X 座標
+     * @param y 文字基線 Y 座標
+     * @param fontSize 字型大小
+     * @param alignment 對齊方式（PdfContentByte.ALIGN_*）
+     * @param font 已建立的字型
+     */
+    record Field(String name, int page, float x, float y, float fontSize, int alignment, BaseFont font) {
+    }
+
+    private final String name;
+    private final PdfReader master;
+    private final List<Field> fields;
+
+    PdfDocumentTemplate(String name, PdfReader master, List<Field> fields) {
+        this.name = name;
+        this.master = master;
+        this.fields = List.copyOf(fields);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getPageCount() {
+        return master.getNumberOfPages();
+    }
+
+    /**
+     * 底稿檔案大小，作為輸出緩衝區的初始容量
+     */
+    public int getFileLength() {
+        return master.getFileLength();
+    }
+
+    public List<String> getFieldNames() {
+        return fields.stream().map(Field::name).toList();
+    }
+
+    /**
+     * 建立底稿的獨立副本（由呼叫端關閉）
+     */
+    PdfReader newReader() {
+        return new PdfReader(master);
+    }
+
+    /**
+     * 將變數欄位值蓋印到副本頁面上，未提供值的欄位略過
+     *
+     * @param stamper 以 {@link #newReader()} 建立的 stamper
+     * @param values 欄位名稱 → 文字
+     */
+    void stamp(PdfStamper stamper, Map<String, String> values) {
+        if (values == null || values.isEmpty()) {
+            return;
+        }
+        for (Field field : fields) {
+            String value = values.get(field.name());
+            if (value == null || value.isEmpty()) {
+                continue;
+            }
+            PdfContentByte content = stamper.getOverContent(field.page());
+            content.beginText();
+            content.setFontAndSize(field.font(), field.fontSize());
+            content.showTextAligned(field.alignment(), value, field.x(), field.y(), 0);
+            content.endText();
+        }
+    }
+}
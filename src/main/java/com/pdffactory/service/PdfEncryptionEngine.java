@@ -0,0 +1,76 @@
+package com.pdffactory.service;
+
+import com.lowagie.text.pdf.PdfDeveloperExtension;
+import com.lowagie.text.pdf.PdfWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.GeneralSecurityException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * PDF 加密引擎
+ * <p>
+ * 在 writer 呼叫 setEncryption 之後選擇實際執行物件加密的實作：
+ * 啟用 {@code pdf-factory.encryption.jce-aes.enabled}（預設）時，AES-128 / AES-256 改由 JCE 執行
+ * （見 {@link JceAesPdfEncryption}），RC4、停用或無法存取 OpenPDF 內部欄位時沿用 OpenPDF 內建加密。
+ * AES-256（R6）另將輸出版本標示為 PDF 1.7 Adobe 擴充等級 3。
+ */
+@Slf4j
+@Component
+public class PdfEncryptionEngine {
+
+    /**
+     * AES-256 輸出的 PDF 版本（PDF 1.7 Adobe 擴充等級 3，PDF 2.0 正式納入）
+     */
+    public static final char AES_256_PDF_VERSION = PdfWriter.VERSION_1_7;
+
+    @Value("${pdf-factory.encryption.jce-aes.enabled:true}")
+    private boolean jceAesEnabled;
+
+    private final AtomicBoolean fallbackLogged = new AtomicBoolean();
+
+    /**
+     * 設定 writer 的加密實作（必須在 setEncryption 之後、寫出內容之前呼叫）
+     *
+     * @param writer 已設定加密的 writer（PdfStamper 請傳入 getWriter()）
+     * @param encryptionType setEncryption 使用的加密類型
+     */
+    public void configure(PdfWriter writer, int encryptionType) {
+        if (isAes256(encryptionType)) {
+            writer.setPdfVersion(AES_256_PDF_VERSION);
+            writer.addDeveloperExtension(PdfDeveloperExtension.ADOBE_1_7_EXTENSIONLEVEL3);
+        }
+        if (!jceAesEnabled) {
+            return;
+        }
+        try {
+            if (JceAesPdfEncryption.install(writer)) {
+                log.debug("AES 加密改由 JCE 執行");
+            } else if (!JceAesPdfEncryption.isAvailable()) {
+                logFallback("無法存取 OpenPDF 加密欄位（OpenPDF 版本不相容？），使用 OpenPDF 內建加密",
+                        JceAesPdfEncryption.unavailableCause());
+            }
+        } catch (GeneralSecurityException | LinkageError e) {
+            logFallback("JCE AES 不可用，使用 OpenPDF 內建加密", e);
+        }
+    }
+
+    /**
+     * 改用 OpenPDF 內建加密的原因只記錄一次
+     */
+    private void logFallback(String message, Throwable cause) {
+        if (fallbackLogged.compareAndSet(false, true)) {
+            log.warn(message, cause);
+        }
+    }
+
+    /**
+     * 是否為 AES-256（R6）加密類型
+     */
+    public static boolean isAes256(int encryptionType) {
+        return encryptionType != PdfWriter.ENCRYPTION_NONE
+                && (encryptionType & 0x07) == PdfWriter.ENCRYPTION_AES_256_V3;
+    }
+}
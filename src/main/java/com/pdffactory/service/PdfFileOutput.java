@@ -0,0 +1,206 @@
+package com.pdffactory.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+
+/**
+ * 檔案重寫的輸出層
+ * <p>
+ * 寫入先累積在大型 direct ByteBuffer 中，滿了才以單次 {@link FileChannel#write} 寫出，
+ * 取代 PdfCopy 對未緩衝 FileOutputStream 的大量小型寫入。內容寫入輸出目錄中的暫存檔，
+ * {@link #commit()} 時依 {@link SyncPolicy} 同步後以 atomic rename 取代目標檔案，讀取端不會看到寫到一半的輸出。
+ * <p>
+ * {@link #close()} 只寫出緩衝區（PdfCopy 關閉文件時會關閉輸出流），暫存檔在 commit 前不會出現在目標路徑；
+ * 未 commit 時由 {@link #abort()} 刪除暫存檔。direct buffer 以執行緒為單位重複使用（工作執行緒數固定）。
+ */
+@Slf4j
+final class PdfFileOutput extends OutputStream {
+
+    /**
+     * commit 時的同步方式
+     */
+    enum SyncPolicy {
+        /**
+         * 不同步，由作業系統決定寫回時機
+         */
+        NONE,
+
+        /**
+         * rename 前同步檔案內容
+         */
+        FILE,
+
+        /**
+         * rename 前同步檔案內容，rename 後同步所在目錄（rename 本身也可在當機後保留）
+         */
+        DIRECTORY
+    }
+
+    private static final ThreadLocal<ByteBuffer> BUFFERS = new ThreadLocal<>();
+    private static final SecureRandom TEMP_RANDOM = new SecureRandom();
+
+    private final Path target;
+    private final Path tempFile;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final SyncPolicy syncPolicy;
+    private final boolean preallocated;
+    private boolean committed;
+    private boolean aborted;
+
+    private PdfFileOutput(Path target, Path tempFile, FileChannel channel, ByteBuffer buffer,
+                          SyncPolicy syncPolicy, boolean preallocated) {
+        this.target = target;
+        this.tempFile = tempFile;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.syncPolicy = syncPolicy;
+        this.preallocated = preallocated;
+    }
+
+    /**
+     * 在目標檔案所在目錄建立暫存檔並開啟輸出
+     *
+     * @param target 目標檔案
+     * @param bufferSize 緩衝區大小（bytes）
+     * @param preallocateSize 預先設定的檔案長度（0 表示不預先配置），commit 時截斷為實際大小
+     * @param syncPolicy commit 時的同步方式
+     */
+    static PdfFileOutput create(Path target, int bufferSize, long preallocateSize, SyncPolicy syncPolicy)
+            throws IOException {
+
+        // 不使用 Files.createTempFile（權限固定為 600），輸出檔沿用一般建立檔案時的預設權限
+        Path absoluteTarget = target.toAbsolutePath();
+        Path tempFile = absoluteTarget.resolveSibling(
+                "." + absoluteTarget.getFileName() + "." + Long.toHexString(TEMP_RANDOM.nextLong()) + ".tmp");
+        FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        try {
+            if (preallocateSize > 0) {
+                // 寫入最後一個位元組以設定檔案長度，寫入過程中不需反覆延長檔案
+                channel.write(ByteBuffer.wrap(new byte[1]), preallocateSize - 1);
+            }
+            return new PdfFileOutput(absoluteTarget, tempFile, channel, directBuffer(bufferSize),
+                    syncPolicy, preallocateSize > 0);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+    }
+
+    /**
+     * 取得目前執行緒的 direct buffer（大小不同時重新配置）
+     */
+    private static ByteBuffer directBuffer(int size) {
+        ByteBuffer buffer = BUFFERS.get();
+        if (buffer == null || buffer.capacity() != size) {
+            buffer = ByteBuffer.allocateDirect(size);
+            BUFFERS.set(buffer);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * 寫出緩衝區後取得底層 channel（例如以 transferTo 直接複製檔案內容），寫入位置為目前位置
+     */
+    FileChannel channel() throws IOException {
+        flush();
+        return channel;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len >= buffer.capacity()) {
+            // 大於緩衝區的內容直接寫出，不經過複製
+            flush();
+            writeFully(ByteBuffer.wrap(b, off, len));
+            return;
+        }
+        if (len > buffer.remaining()) {
+            flush();
+        }
+        buffer.put(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * 只寫出緩衝區，暫存檔保持開啟直到 commit 或 abort
+     */
+    @Override
+    public void close() throws IOException {
+        if (!committed && !aborted) {
+            flush();
+        }
+    }
+
+    /**
+     * 完成輸出：截斷預先配置的長度、依設定同步，並以 atomic rename 取代目標檔案
+     */
+    void commit() throws IOException {
+        flush();
+        if (preallocated) {
+            channel.truncate(channel.position());
+        }
+        if (syncPolicy != SyncPolicy.NONE) {
+            channel.force(true);
+        }
+        channel.close();
+        Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        committed = true;
+
+        if (syncPolicy == SyncPolicy.DIRECTORY) {
+            try (FileChannel directory = FileChannel.open(target.getParent(), StandardOpenOption.READ)) {
+                directory.force(true);
+            } catch (IOException e) {
+                // 部分平台（例如 Windows）無法開啟目錄，檔案內容已同步
+                log.warn("同步輸出目錄失敗: {}", target.getParent(), e);
+            }
+        }
+    }
+
+    /**
+     * 放棄輸出並刪除暫存檔（已 commit 時不做任何事）
+     */
+    void abort() {
+        if (committed || aborted) {
+            return;
+        }
+        aborted = true;
+        try {
+            channel.close();
+            Files.deleteIfExists(tempFile);
+        } catch (IOException e) {
+            log.warn("清理暫存輸出檔失敗: {}", tempFile, e);
+        }
+    }
+
+    private void writeFully(ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+}
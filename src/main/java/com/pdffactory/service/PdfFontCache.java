@@ -0,0 +1,213 @@
+package com.pdffactory.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pdffactory.exception.PdfProcessingException;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.Font;
+import com.lowagie.text.pdf.BaseFont;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 程序共用的字型快取
+ * <p>
+ * 字型只解析一次，之後所有文件共用同一個 BaseFont；TrueType / OpenType 字型以 Identity-H 嵌入，
+ * 每份文件只嵌入實際使用字元的子集。字型檔內容整份載入記憶體（子集化時直接讀取，不再存取磁碟，
+ * 多個執行緒同時產生子集也不共用檔案位置），快取依字型檔大小估算記憶體用量並在超過上限時淘汰。
+ * <p>
+ * 字型名稱為 PDF 內建字型（例如 Helvetica、Times-Roman，CP1252 編碼不嵌入）或字型檔名稱
+ * （.ttf、.otf，或 .ttc 加上 ",索引"）。字型檔名稱為相對路徑，依序在 {@code pdf-factory.font.dirs} 列出的目錄中尋找，
+ * 不接受絕對路徑與 {@code ..}，請求無法讀取允許目錄以外的檔案；未設定目錄時只能使用內建字型。字型檔修改後會重新解析。
+ * 監控指標：{@code cache.gets{cache=pdf.font}}、{@code pdf.font.parse}（解析時間）、{@code pdf.font.cache.weight}（估算 bytes）。
+ */
+@Slf4j
+@Component
+public class PdfFontCache {
+
+    /**
+     * 解析後的字型表格（字寬、cmap 等）估算大小，內建字型只計入此值
+     */
+    private static final int PARSED_FONT_OVERHEAD = 64 * 1024;
+
+    /**
+     * 快取鍵
+     *
+     * @param name 字型名稱
+     * @param lastModified 字型檔修改時間（內建字型為 0）
+     */
+    record Key(String name, long lastModified) {
+    }
+
+    /**
+     * 快取項目
+     *
+     * @param font 已解析的字型
+     * @param weight 估算記憶體用量（bytes）
+     */
+    private record CachedFont(BaseFont font, int weight) {
+    }
+
+    private final Cache<Key, CachedFont> cache;
+    private final List<Path> fontDirs;
+    private final Timer trueTypeParseTimer;
+    private final Timer builtinParseTimer;
+
+    /**
+     * 未指定字型時使用的字型，空白表示 Helvetica
+     */
+    @Value("${pdf-factory.font.default:}")
+    private String defaultFont;
+
+    public PdfFontCache(
+            @Value("${pdf-factory.cache.font.max-weight:256MB}") DataSize maxWeight,
+            @Value("${pdf-factory.font.dirs:}") String[] fontDirs,
+            MeterRegistry meterRegistry) {
+
+        this.fontDirs = new ArrayList<>();
+        for (String dir : fontDirs) {
+            if (!dir.isBlank()) {
+                this.fontDirs.add(Path.of(dir.trim()).toAbsolutePath().normalize());
+            }
+        }
+
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeight.toBytes())
+                .weigher((Key key, CachedFont font) -> font.weight())
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "pdf.font");
+        Gauge.builder("pdf.font.cache.weight", cache,
+                        c -> c.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L))
+                .description("字型快取估算記憶體用量")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.trueTypeParseTimer = Timer.builder("pdf.font.parse")
+                .description("字型解析時間（快取未命中）")
+                .tag("type", "truetype")
+                .register(meterRegistry);
+        this.builtinParseTimer = Timer.builder("pdf.font.parse")
+                .description("字型解析時間（快取未命中）")
+                .tag("type", "builtin")
+                .register(meterRegistry);
+        log.info("字型目錄: {}", this.fontDirs.isEmpty() ? "未設定（只能使用內建字型）" : this.fontDirs);
+    }
+
+    /**
+     * 取得字型（快取）
+     *
+     * @param fontName 字型名稱；null 或空白時使用 {@code pdf-factory.font.default}，未設定時為 Helvetica
+     * @return 已解析的字型（所有文件共用，不可修改）
+     */
+    public BaseFont get(String fontName) {
+        String name = resolve(fontName);
+        Path fontFile = fontFile(name);
+        Key key;
+        try {
+            key = new Key(name, fontFile != null ? Files.getLastModifiedTime(fontFile).toMillis() : 0);
+        } catch (IOException e) {
+            throw new PdfProcessingException("無法載入字型: " + name, e);
+        }
+        return cache.get(key, k -> load(k.name(), fontFile)).font();
+    }
+
+    /**
+     * 取得指定大小的字型
+     *
+     * @param fontName 字型名稱（規則同 {@link #get(String)}）
+     * @param size 字型大小
+     * @return 字型
+     */
+    public Font getFont(String fontName, float size) {
+        return new Font(get(fontName), size);
+    }
+
+    private String resolve(String fontName) {
+        if (fontName != null && !fontName.isBlank()) {
+            return fontName;
+        }
+        return defaultFont != null && !defaultFont.isBlank() ? defaultFont : BaseFont.HELVETICA;
+    }
+
+    /**
+     * 在允許的字型目錄中尋找字型檔；內建字型回傳 null
+     *
+     * @throws PdfProcessingException 名稱為絕對路徑、包含 {@code ..}，或允許的目錄中找不到字型檔
+     */
+    private Path fontFile(String name) {
+        String lowerName = name.toLowerCase(Locale.ROOT);
+        int collectionIndex = lowerName.indexOf(".ttc,");
+        String fileName;
+        if (collectionIndex >= 0) {
+            fileName = name.substring(0, collectionIndex + 4);
+        } else if (lowerName.endsWith(".ttf") || lowerName.endsWith(".otf")) {
+            fileName = name;
+        } else {
+            return null;
+        }
+
+        Path relative;
+        try {
+            relative = Path.of(fileName);
+        } catch (InvalidPathException e) {
+            throw new PdfProcessingException("不合法的字型名稱: " + name, e);
+        }
+        if (relative.isAbsolute() || relative.getRoot() != null) {
+            throw new PdfProcessingException("字型名稱不可為絕對路徑: " + name);
+        }
+        for (Path part : relative) {
+            if ("..".equals(part.toString())) {
+                throw new PdfProcessingException("字型名稱不可包含 '..': " + name);
+            }
+        }
+
+        for (Path dir : fontDirs) {
+            Path candidate = dir.resolve(relative).normalize();
+            if (candidate.startsWith(dir) && Files.isRegularFile(candidate)) {
+                return candidate;
+            }
+        }
+        throw new PdfProcessingException("字型目錄中找不到字型檔: " + name);
+    }
+
+    private CachedFont load(String name, Path fontFile) {
+        long start = System.nanoTime();
+        try {
+            if (fontFile == null) {
+                BaseFont font = BaseFont.createFont(name, BaseFont.CP1252, BaseFont.NOT_EMBEDDED, false, null, null);
+                return new CachedFont(font, PARSED_FONT_OVERHEAD);
+            }
+
+            byte[] fontBytes = Files.readAllBytes(fontFile);
+            // .ttc 的索引取自名稱，字型內容取自已解析的字型檔
+            int collectionIndex = name.toLowerCase(Locale.ROOT).indexOf(".ttc,");
+            String fontName = collectionIndex >= 0 ? fontFile + name.substring(collectionIndex + 4) : fontFile.toString();
+            BaseFont font = BaseFont.createFont(fontName, BaseFont.IDENTITY_H, BaseFont.EMBEDDED, false, fontBytes, null);
+            font.setSubset(true);
+            return new CachedFont(font, fontBytes.length + PARSED_FONT_OVERHEAD);
+
+        } catch (DocumentException | IOException e) {
+            throw new PdfProcessingException("無法載入字型: " + name, e);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            (fontFile != null ? trueTypeParseTimer : builtinParseTimer).record(elapsed, TimeUnit.NANOSECONDS);
+            log.info("已載入字型: {}，耗時 {} ms", name, elapsed / 1_000_000);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.pdffactory.service;
+
+import com.lowagie.text.ExceptionConverter;
+import com.lowagie.text.pdf.PRTokeniser;
+import com.lowagie.text.pdf.PdfDictionary;
+import com.lowagie.text.pdf.PdfName;
+import com.lowagie.text.pdf.PdfNumber;
+import com.lowagie.text.pdf.PdfObject;
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.RandomAccessFileOrArray;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * PDF 標頭檢查器
+ * 只讀取檔案標頭、xref 區段尾端的 trailer 以及 trailer 參照的物件（/Info），
+ * 不解析頁面樹與內容串流，讀取成本與文件大小無關。
+ * <p>
+ * 僅支援傳統 xref 表（每筆項目固定 20 bytes，可直接定位）；遇到 xref stream、
+ * 混合式 xref 或加密文件時 {@link #readHeader()} 回傳 false，由呼叫端改用 PdfReader 讀取。
+ */
+class PdfHeaderInspector extends PdfReader {
+
+    /**
+     * 傳統 xref 表每筆項目的長度（PDF 規範 7.5.4）
+     */
+    private static final int XREF_ENTRY_LENGTH = 20;
+
+    /**
+     * 各 xref 區段（"xref" 關鍵字之後）的位置，由新到舊排列
+     */
+    private final List<Integer> xrefSections = new ArrayList<>();
+
+    /**
+     * 是否有物件無法由 xref 表定位
+     */
+    private boolean unresolved;
+
+    PdfHeaderInspector(RandomAccessFileOrArray source) {
+        super();
+        this.tokens = new PRTokeniser(source);
+    }
+
+    /**
+     * 讀取標頭、xref 區段與 trailer
+     *
+     * @return 是否可使用快速路徑（false 表示需改用 PdfReader 讀取）
+     */
+    boolean readHeader() throws IOException {
+        pdfVersion = tokens.checkPdfHeader();
+
+        tokens.seek(tokens.getStartxref());
+        tokens.nextToken();
+        if (!"startxref".equals(tokens.getStringValue())) {
+            return false;
+        }
+        tokens.nextToken();
+        if (tokens.getTokenType() != PRTokeniser.TK_NUMBER) {
+            return false;
+        }
+
+        // 沿 /Prev 串列記錄每個 xref 區段，最新的 trailer 作為文件 trailer
+        Set<Integer> visited = new HashSet<>();
+        int sectionOffset = tokens.intValue();
+        while (visited.add(sectionOffset)) {
+            tokens.seek(sectionOffset);
+            tokens.nextValidToken();
+            if (!"xref".equals(tokens.getStringValue())) {
+                return false;
+            }
+            xrefSections.add(tokens.getFilePointer());
+
+            PdfDictionary sectionTrailer = readSectionTrailer();
+            if (sectionTrailer == null || sectionTrailer.contains(PdfName.XREFSTM)) {
+                return false;
+            }
+            if (trailer == null) {
+                trailer = sectionTrailer;
+            }
+
+            PdfNumber prev = sectionTrailer.getAsNumber(PdfName.PREV);
+            if (prev == null) {
+                break;
+            }
+            sectionOffset = prev.intValue();
+        }
+
+        encrypted = trailer.contains(PdfName.ENCRYPT);
+        return !encrypted;
+    }
+
+    /**
+     * 只讀取最新的 trailer（傳統 xref 表的 trailer 或 xref stream 的字典），判斷文件是否加密
+     * <p>
+     * 不走訪 /Prev 串列，適用於開啟文件前決定讀取方式；無法判斷時回傳 false。
+     *
+     * @return 最新的 trailer 是否含有 /Encrypt
+     */
+    boolean declaresEncryption() throws IOException {
+        tokens.seek(tokens.getStartxref());
+        tokens.nextToken();
+        if (!"startxref".equals(tokens.getStringValue())) {
+            return false;
+        }
+        tokens.nextToken();
+        if (tokens.getTokenType() != PRTokeniser.TK_NUMBER) {
+            return false;
+        }
+
+        tokens.seek(tokens.intValue());
+        tokens.nextValidToken();
+        PdfDictionary latestTrailer;
+        if ("xref".equals(tokens.getStringValue())) {
+            latestTrailer = readSectionTrailer();
+        } else {
+            // xref stream：「n g obj <<...>>」，只讀取串流字典
+            if (tokens.getTokenType() != PRTokeniser.TK_NUMBER) {
+                return false;
+            }
+            tokens.nextValidToken();
+            tokens.nextValidToken();
+            if (!"obj".equals(tokens.getStringValue())) {
+                return false;
+            }
+            tokens.nextValidToken();
+            latestTrailer = tokens.getTokenType() == PRTokeniser.TK_START_DIC ? readDictionary() : null;
+        }
+        return latestTrailer != null && latestTrailer.contains(PdfName.ENCRYPT);
+    }
+
+    /**
+     * 讀取過程中是否有物件無法定位（此時結果不完整，應改用 PdfReader 讀取）
+     */
+    boolean hasUnresolvedObjects() {
+        return unresolved;
+    }
+
+    /**
+     * 依 xref 表直接定位並讀取單一物件
+     */
+    @Override
+    public PdfObject getPdfObject(int idx) {
+        try {
+            int offset = findObjectOffset(idx);
+            if (offset < 0) {
+                unresolved = true;
+                return null;
+            }
+
+            tokens.seek(offset);
+            tokens.nextValidToken();
+            if (tokens.getTokenType() != PRTokeniser.TK_NUMBER || tokens.intValue() != idx) {
+                unresolved = true;
+                return null;
+            }
+            tokens.nextValidToken();
+            tokens.nextValidToken();
+            if (!"obj".equals(tokens.getStringValue())) {
+                unresolved = true;
+                return null;
+            }
+            return readPRObject();
+        } catch (IOException e) {
+            throw new ExceptionConverter(e);
+        }
+    }
+
+    /**
+     * 略過 xref 區段的所有項目並讀取其 trailer
+     */
+    private PdfDictionary readSectionTrailer() throws IOException {
+        while (true) {
+            tokens.nextValidToken();
+            if ("trailer".equals(tokens.getStringValue())) {
+                break;
+            }
+            if (tokens.getTokenType() != PRTokeniser.TK_NUMBER) {
+                return null;
+            }
+            tokens.nextValidToken();
+            if (tokens.getTokenType() != PRTokeniser.TK_NUMBER) {
+                return null;
+            }
+            int count = tokens.intValue();
+            tokens.seek(firstEntryPosition() + count * XREF_ENTRY_LENGTH);
+        }
+
+        tokens.nextValidToken();
+        if (tokens.getTokenType() != PRTokeniser.TK_START_DIC) {
+            return null;
+        }
+        return readDictionary();
+    }
+
+    /**
+     * 依 xref 區段由新到舊尋找物件位置
+     *
+     * @return 物件位置，找不到或已釋放時回傳 -1
+     */
+    private int findObjectOffset(int idx) throws IOException {
+        for (int sectionPosition : xrefSections) {
+            tokens.seek(sectionPosition);
+            while (true) {
+                tokens.nextValidToken();
+                if (tokens.getTokenType() != PRTokeniser.TK_NUMBER) {
+                    break;
+                }
+                int start = tokens.intValue();
+                tokens.nextValidToken();
+                int count = tokens.intValue();
+                int entriesPosition = firstEntryPosition();
+
+                if (idx >= start && idx < start + count) {
+                    tokens.seek(entriesPosition + (idx - start) * XREF_ENTRY_LENGTH);
+                    tokens.nextValidToken();
+                    int offset = tokens.intValue();
+                    tokens.nextValidToken();
+                    tokens.nextValidToken();
+                    return "n".equals(tokens.getStringValue()) ? offset : -1;
+                }
+                tokens.seek(entriesPosition + count * XREF_ENTRY_LENGTH);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 略過子區段標頭後的換行，回傳第一筆項目的位置
+     */
+    private int firstEntryPosition() throws IOException {
+        int ch = tokens.read();
+        while (ch != -1 && PRTokeniser.isWhitespace(ch)) {
+            ch = tokens.read();
+        }
+        return tokens.getFilePointer() - 1;
+    }
+}
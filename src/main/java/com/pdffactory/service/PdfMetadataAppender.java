@@ -0,0 +1,242 @@
+package com.pdffactory.service;
+
+import com.lowagie.text.pdf.PRIndirectReference;
+import com.lowagie.text.pdf.PdfArray;
+import com.lowagie.text.pdf.PdfDate;
+import com.lowagie.text.pdf.PdfDictionary;
+import com.lowagie.text.pdf.PdfName;
+import com.lowagie.text.pdf.PdfNumber;
+import com.lowagie.text.pdf.PdfObject;
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.PdfString;
+import com.lowagie.text.xml.xmp.XmpWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 只替換 metadata 的 PDF 增量更新
+ * <p>
+ * 原始內容以 {@link FileChannel#transferTo} 原樣複製（不經過 heap），再於檔尾附加新的 Info 字典、
+ * XMP metadata 串流、指向新 XMP 的目錄（Catalog）新版本以及對應的 xref 區段與 trailer（PDF 規範 7.5.6）。
+ * 不解析頁面樹也不匯入頁面，處理時間只取決於檔案複製速度。
+ * <p>
+ * 僅支援未加密且使用傳統 xref 表的文件（附加的 xref 區段同樣使用傳統格式）；
+ * 其他文件由 {@link #isSupported(PdfReader)} 回傳 false，由呼叫端改用一般重寫。
+ */
+final class PdfMetadataAppender {
+
+    private static final SecureRandom ID_RANDOM = new SecureRandom();
+
+    private PdfMetadataAppender() {
+    }
+
+    /**
+     * 是否可使用增量更新替換 metadata
+     *
+     * @param reader 已開啟的原始 PDF
+     */
+    static boolean isSupported(PdfReader reader) {
+        return !reader.isEncrypted()
+                && !reader.isRebuilt()
+                && !reader.isNewXrefType()
+                && !reader.isHybridXref()
+                && reader.getTrailer().get(PdfName.ROOT) instanceof PRIndirectReference;
+    }
+
+    /**
+     * 複製原始檔案並附加新的 Info 字典與 XMP metadata
+     *
+     * @param reader 已開啟的原始 PDF（讀取 trailer、目錄與 Info）
+     * @param input 原始檔案
+     * @param out 輸出 channel（自目前位置寫入，不可為原始檔案）
+     * @param info 要覆寫的 Info 欄位（其他欄位沿用原值）
+     */
+    static void copyWithInfo(PdfReader reader, Path input, FileChannel out, Map<String, String> info)
+            throws IOException {
+
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+
+            ByteBuffer update = ByteBuffer.wrap(buildUpdate(reader, size, info));
+            while (update.hasRemaining()) {
+                out.write(update);
+            }
+        }
+    }
+
+    /**
+     * 建立附加於原始內容之後的增量更新區段
+     *
+     * @param reader 原始 PDF
+     * @param offset 原始內容長度（新物件位置的起點）
+     * @param info 要覆寫的 Info 欄位
+     */
+    static byte[] buildUpdate(PdfReader reader, long offset, Map<String, String> info) throws IOException {
+        PdfDictionary trailer = reader.getTrailer();
+        PRIndirectReference root = (PRIndirectReference) trailer.get(PdfName.ROOT);
+        int size = trailer.getAsNumber(PdfName.SIZE).intValue();
+        int infoNumber = size;
+        int xmpNumber = size + 1;
+
+        // 新的 Info 欄位（原欄位沿用，覆寫指定欄位並更新修改日期）
+        PdfDate modDate = new PdfDate();
+        PdfDictionary newInfo = new PdfDictionary();
+        PdfDictionary oldInfo = (PdfDictionary) PdfReader.getPdfObject(trailer.get(PdfName.INFO));
+        if (oldInfo != null) {
+            for (PdfName key : oldInfo.getKeys()) {
+                newInfo.put(key, oldInfo.get(key));
+            }
+        }
+        info.forEach((key, value) -> newInfo.put(new PdfName(key), new PdfString(value, PdfObject.TEXT_UNICODE)));
+        newInfo.put(PdfName.MODDATE, modDate);
+
+        Map<String, String> xmpInfo = new HashMap<>(reader.getInfo());
+        xmpInfo.putAll(info);
+        xmpInfo.put("ModDate", modDate.toString());
+        ByteArrayOutputStream xmp = new ByteArrayOutputStream();
+        try (XmpWriter writer = new XmpWriter(xmp, xmpInfo)) {
+            writer.setReadOnly();
+        }
+
+        Update update = new Update(offset);
+        update.out.write('\n');
+
+        long infoOffset = update.beginObject(infoNumber, 0);
+        update.write(newInfo);
+        update.endObject();
+
+        long xmpOffset = update.beginObject(xmpNumber, 0);
+        update.ascii("<</Type/Metadata/Subtype/XML/Length " + xmp.size() + ">>\nstream\n");
+        xmp.writeTo(update.out);
+        update.ascii("\nendstream");
+        update.endObject();
+
+        // 目錄的新版本：沿用原欄位，/Metadata 指向新的 XMP
+        long catalogOffset = update.beginObject(root.getNumber(), root.getGeneration());
+        update.ascii("<<");
+        PdfDictionary catalog = reader.getCatalog();
+        for (PdfName key : catalog.getKeys()) {
+            if (!PdfName.METADATA.equals(key)) {
+                update.write(key);
+                update.ascii(" ");
+                update.write(catalog.get(key));
+            }
+        }
+        update.ascii("/Metadata " + xmpNumber + " 0 R>>");
+        update.endObject();
+
+        long xrefOffset = update.position();
+        update.ascii("xref\n");
+        update.ascii(root.getNumber() + " 1\n");
+        update.xrefEntry(catalogOffset, root.getGeneration());
+        update.ascii(infoNumber + " 2\n");
+        update.xrefEntry(infoOffset, 0);
+        update.xrefEntry(xmpOffset, 0);
+
+        update.ascii("trailer\n<</Size " + (size + 2) + "/Root " + root.getNumber() + " " + root.getGeneration()
+                + " R/Info " + infoNumber + " 0 R/Prev " + reader.getLastXref());
+        PdfArray id = trailer.getAsArray(PdfName.ID);
+        if (id != null && id.size() == 2) {
+            // 第一個 ID 不變，第二個 ID 代表新的版本（PDF 規範 14.4）
+            byte[] instanceId = new byte[16];
+            ID_RANDOM.nextBytes(instanceId);
+            update.ascii("/ID[");
+            update.write(id.getPdfObject(0));
+            update.write(new PdfString(instanceId).setHexWriting(true));
+            update.ascii("]");
+        }
+        update.ascii(">>\nstartxref\n" + xrefOffset + "\n%%EOF\n");
+        return update.out.toByteArray();
+    }
+
+    /**
+     * 增量更新區段的寫出緩衝區（位置以輸出檔為準）
+     */
+    private static final class Update {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private final long base;
+
+        private Update(long base) {
+            this.base = base;
+        }
+
+        /**
+         * 目前寫出位置在輸出檔中的偏移量
+         */
+        private long position() {
+            return base + out.size();
+        }
+
+        /**
+         * 開始寫出物件
+         *
+         * @return 物件在輸出檔中的偏移量
+         */
+        private long beginObject(int number, int generation) throws IOException {
+            long position = position();
+            ascii(number + " " + generation + " obj\n");
+            return position;
+        }
+
+        private void endObject() throws IOException {
+            ascii("\nendobj\n");
+        }
+
+        private void xrefEntry(long position, int generation) throws IOException {
+            // 每筆固定 20 bytes（PDF 規範 7.5.4）
+            ascii(String.format("%010d %05d n\r\n", position, generation));
+        }
+
+        private void ascii(String text) throws IOException {
+            out.write(text.getBytes(StandardCharsets.ISO_8859_1));
+        }
+
+        /**
+         * 寫出原始文件中的物件；間接參照維持原本的物件編號（不經過 PdfWriter 重新編號）
+         */
+        private void write(PdfObject object) throws IOException {
+            if (object == null) {
+                ascii("null");
+            } else if (object instanceof PRIndirectReference reference) {
+                ascii(reference.getNumber() + " " + reference.getGeneration() + " R");
+            } else if (object.isDictionary()) {
+                PdfDictionary dictionary = (PdfDictionary) object;
+                ascii("<<");
+                for (PdfName key : dictionary.getKeys()) {
+                    write(key);
+                    ascii(" ");
+                    write(dictionary.get(key));
+                }
+                ascii(">>");
+            } else if (object.isArray()) {
+                PdfArray array = (PdfArray) object;
+                ascii("[");
+                for (int i = 0; i < array.size(); i++) {
+                    if (i > 0) {
+                        ascii(" ");
+                    }
+                    write(array.getPdfObject(i));
+                }
+                ascii("]");
+            } else if (object instanceof PdfNumber || object.isBoolean() || object.isNull()) {
+                ascii(object.toString());
+            } else {
+                object.toPdf(null, out);
+            }
+        }
+    }
+}
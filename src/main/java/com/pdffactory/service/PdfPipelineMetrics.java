@@ -0,0 +1,373 @@
+package com.pdffactory.service;
+
+import com.pdffactory.dto.PdfSecurityInfo;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.pdf.PdfWriter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PDF 處理流程各階段的監控指標
+ * <p>
+ * 每個請求（批次與批次套用則為每份文件）建立一個 {@link Recording}，處理過程中記錄各階段耗時與處理量，
+ * 完成時才一次發布，因此加密類型與頁數（處理到一半才得知）可標記在所有階段上。
+ * Recording 綁定在目前執行緒上，{@link PdfWorkScheduler} 會帶到工作執行緒；串流回應在其他執行緒執行時需自行 {@link Recording#bind()}。
+ * <p>
+ * 指標（tag: endpoint、encryption、pages）：
+ * <ul>
+ *   <li>{@code pdf.pipeline.stage}：各階段耗時（另有 tag: stage）</li>
+ *   <li>{@code pdf.pipeline.stage.bytes}：各階段處理的位元組數（僅解碼、暫存檔寫入與輸出編碼）</li>
+ *   <li>{@code pdf.pipeline.duration}：整體處理時間</li>
+ *   <li>{@code pdf.pipeline.in-flight-bytes}、{@code pdf.pipeline.active-rewrites}：處理中的輸入大小與重寫數（gauge，無 tag）</li>
+ * </ul>
+ */
+@Component
+public class PdfPipelineMetrics {
+
+    /**
+     * 處理階段
+     */
+    public enum Stage {
+        BASE64_DECODE("base64-decode"),
+        TEMP_FILE_WRITE("temp-file-write"),
+        READER_OPEN("reader-open"),
+        SECURITY_EXTRACTION("security-extraction"),
+        PAGE_COPY("page-copy"),
+        ENCRYPTION("encryption"),
+        OUTPUT_ENCODE("output-encode");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private static final ThreadLocal<Recording> CURRENT = new ThreadLocal<>();
+
+    private final MeterRegistry meterRegistry;
+    private final AtomicLong inFlightBytes = new AtomicLong();
+    private final AtomicInteger activeRewrites = new AtomicInteger();
+
+    public PdfPipelineMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("pdf.pipeline.in-flight-bytes", inFlightBytes, AtomicLong::get)
+                .description("處理中請求的輸入大小")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("pdf.pipeline.active-rewrites", activeRewrites, AtomicInteger::get)
+                .description("進行中的 PDF 重寫數")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 開始記錄並綁定到目前執行緒；目前執行緒已有記錄時併入該記錄（例如批次項目呼叫單筆重寫）
+     *
+     * @param endpoint 端點（/api/pdf/ 之後的路徑）
+     * @return 記錄（呼叫端負責 close）
+     */
+    public Recording start(String endpoint) {
+        Recording current = CURRENT.get();
+        if (current != null) {
+            current.depth.incrementAndGet();
+            return current;
+        }
+        Recording recording = new Recording(endpoint);
+        CURRENT.set(recording);
+        return recording;
+    }
+
+    /**
+     * 建立不綁定執行緒的記錄（由其他執行緒 {@link Recording#bind()} 後使用）
+     *
+     * @param endpoint 端點
+     * @return 記錄（呼叫端負責 close）
+     */
+    public Recording create(String endpoint) {
+        return new Recording(endpoint);
+    }
+
+    /**
+     * 目前執行緒的記錄
+     *
+     * @return 記錄；沒有時回傳 null
+     */
+    public Recording current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 執行工作並記錄為指定階段（目前執行緒沒有記錄時直接執行）
+     *
+     * @param stage 階段
+     * @param task 工作
+     * @return 工作結果
+     */
+    public <T> T time(Stage stage, PdfWorkScheduler.PdfTask<T> task) throws IOException, DocumentException {
+        Recording recording = CURRENT.get();
+        if (recording == null) {
+            return task.call();
+        }
+        long start = System.nanoTime();
+        try {
+            return task.call();
+        } finally {
+            recording.record(stage, System.nanoTime() - start, 0);
+        }
+    }
+
+    /**
+     * 記錄指定階段到目前執行緒的記錄（沒有記錄時忽略）
+     *
+     * @param stage 階段
+     * @param startNanos 階段開始時的 System.nanoTime()
+     * @param bytes 處理的位元組數（0 表示不記錄處理量）
+     */
+    public void record(Stage stage, long startNanos, long bytes) {
+        Recording recording = CURRENT.get();
+        if (recording != null) {
+            recording.record(stage, System.nanoTime() - startNanos, bytes);
+        }
+    }
+
+    /**
+     * 設定目前執行緒記錄的加密類型與頁數（沒有記錄時忽略）
+     *
+     * @param encryptionType PdfWriter 加密類型
+     * @param pages 頁數
+     */
+    public void describe(int encryptionType, int pages) {
+        Recording recording = CURRENT.get();
+        if (recording != null) {
+            recording.encryption(encryptionType);
+            recording.pages(pages);
+        }
+    }
+
+    /**
+     * 標記重寫開始，需與 {@link #rewriteFinished()} 成對呼叫
+     */
+    public void rewriteStarted() {
+        activeRewrites.incrementAndGet();
+    }
+
+    /**
+     * 標記重寫結束
+     */
+    public void rewriteFinished() {
+        activeRewrites.decrementAndGet();
+    }
+
+    /**
+     * 頁數區間（避免以實際頁數作為 tag）
+     */
+    static String pageBucket(int pages) {
+        if (pages < 1) {
+            return "unknown";
+        }
+        if (pages == 1) {
+            return "1";
+        }
+        if (pages <= 10) {
+            return "2-10";
+        }
+        if (pages <= 100) {
+            return "11-100";
+        }
+        return pages <= 1000 ? "101-1000" : "1000+";
+    }
+
+    /**
+     * 加密類型名稱（與請求中的 encryptionType 相同）
+     */
+    static String encryptionTag(int encryptionType) {
+        if (encryptionType == PdfWriter.ENCRYPTION_NONE) {
+            return "none";
+        }
+        return switch (encryptionType & 0x07) {
+            case PdfWriter.STANDARD_ENCRYPTION_40 -> "RC4_40";
+            case PdfWriter.STANDARD_ENCRYPTION_128 -> "RC4_128";
+            case PdfWriter.ENCRYPTION_AES_128 -> "AES_128";
+            case PdfWriter.ENCRYPTION_AES_256_V3 -> "AES_256";
+            default -> "unknown";
+        };
+    }
+
+    /**
+     * 單一請求（或批次中單一文件）的階段記錄
+     */
+    public final class Recording implements AutoCloseable {
+
+        private final String endpoint;
+        private final long startNanos = System.nanoTime();
+        private final long[] stageNanos = new long[Stage.values().length];
+        private final long[] stageBytes = new long[Stage.values().length];
+        private final boolean[] recorded = new boolean[Stage.values().length];
+        private volatile String encryption = "none";
+        private volatile int pages;
+        private long trackedBytes;
+        private final AtomicInteger depth = new AtomicInteger(1);
+        private boolean closed;
+
+        private Recording(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        /**
+         * 設定輸出（或查詢對象）的加密類型
+         *
+         * @param encryptionType PdfWriter 加密類型
+         */
+        public void encryption(int encryptionType) {
+            this.encryption = encryptionTag(encryptionType);
+        }
+
+        /**
+         * 由安全性資訊設定加密類型
+         *
+         * @param securityInfo PDF 安全性資訊
+         */
+        public void encryption(PdfSecurityInfo securityInfo) {
+            if (!securityInfo.isEncrypted()) {
+                this.encryption = "none";
+                return;
+            }
+            String algorithm = securityInfo.getEncryptionAlgorithm();
+            this.encryption = algorithm == null ? "unknown" : switch (algorithm) {
+                case "40-bit RC4" -> "RC4_40";
+                case "128-bit RC4" -> "RC4_128";
+                case "128-bit AES" -> "AES_128";
+                case "256-bit AES" -> "AES_256";
+                default -> "unknown";
+            };
+        }
+
+        /**
+         * 設定文件頁數
+         */
+        public void pages(int pages) {
+            this.pages = pages;
+        }
+
+        /**
+         * 計入處理中的輸入大小，於 close 時扣除
+         */
+        public synchronized void inFlight(long bytes) {
+            if (closed || bytes <= 0) {
+                return;
+            }
+            trackedBytes += bytes;
+            inFlightBytes.addAndGet(bytes);
+        }
+
+        /**
+         * 累加階段耗時（同一階段可記錄多次）
+         *
+         * @param stage 階段
+         * @param nanos 耗時
+         * @param bytes 處理的位元組數
+         */
+        public synchronized void record(Stage stage, long nanos, long bytes) {
+            stageNanos[stage.ordinal()] += nanos;
+            stageBytes[stage.ordinal()] += bytes;
+            recorded[stage.ordinal()] = true;
+        }
+
+        /**
+         * 將此記錄綁定到目前執行緒（例如串流回應或工作執行緒），關閉 scope 時還原
+         */
+        public Scope bind() {
+            Recording previous = CURRENT.get();
+            CURRENT.set(this);
+            return () -> {
+                if (previous != null) {
+                    CURRENT.set(previous);
+                } else {
+                    CURRENT.remove();
+                }
+            };
+        }
+
+        /**
+         * 解除與目前執行緒的綁定但不發布（交由其他執行緒繼續記錄時使用）
+         */
+        public void detach() {
+            if (CURRENT.get() == this) {
+                CURRENT.remove();
+            }
+        }
+
+        /**
+         * 結束記錄並發布指標；由 {@link #start(String)} 併入的呼叫只減少巢狀層數
+         */
+        @Override
+        public void close() {
+            if (depth.decrementAndGet() > 0) {
+                return;
+            }
+            detach();
+            publish();
+        }
+
+        private void publish() {
+            long[] nanos;
+            long[] bytes;
+            boolean[] stages;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                inFlightBytes.addAndGet(-trackedBytes);
+                nanos = stageNanos.clone();
+                bytes = stageBytes.clone();
+                stages = recorded.clone();
+            }
+
+            Tags tags = Tags.of("endpoint", endpoint, "encryption", encryption, "pages", pageBucket(pages));
+            for (Stage stage : Stage.values()) {
+                if (!stages[stage.ordinal()]) {
+                    continue;
+                }
+                Tags stageTags = tags.and("stage", stage.tag);
+                Timer.builder("pdf.pipeline.stage")
+                        .description("PDF 處理階段耗時")
+                        .tags(stageTags)
+                        .register(meterRegistry)
+                        .record(nanos[stage.ordinal()], TimeUnit.NANOSECONDS);
+                if (bytes[stage.ordinal()] > 0) {
+                    DistributionSummary.builder("pdf.pipeline.stage.bytes")
+                            .description("PDF 處理階段處理的位元組數")
+                            .baseUnit("bytes")
+                            .tags(stageTags)
+                            .register(meterRegistry)
+                            .record(bytes[stage.ordinal()]);
+                }
+            }
+            Timer.builder("pdf.pipeline.duration")
+                    .description("PDF 處理整體耗時")
+                    .tags(tags)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 執行緒綁定範圍
+     */
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -4,12 +4,19 @@ import com.pdffactory.dto.PdfSecurityInfo;
 import com.pdffactory.exception.PdfProcessingException;
 import com.lowagie.text.pdf.PdfReader;
 import com.lowagie.text.pdf.PdfWriter;
+import com.lowagie.text.pdf.RandomAccessFileOrArray;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * PDF 讀取服務
@@ -17,35 +24,134 @@ import java.util.Map;
  */
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class PdfReaderService {
 
+    private final PdfSecurityInfoCache securityInfoCache;
+    private final PdfDerivedKeyCache derivedKeyCache;
+    private final PdfPipelineMetrics pipelineMetrics;
+
+    /**
+     * 檔案超過此大小時以記憶體映射的部分讀取模式開啟
+     */
+    @Value("${pdf-factory.reader.partial-read-threshold:64MB}")
+    private DataSize partialReadThreshold;
+
+    /**
+     * 查詢安全性資訊時是否先嘗試只讀取標頭與 trailer
+     */
+    @Value("${pdf-factory.reader.header-only-inspection:true}")
+    private boolean headerOnlyInspection;
+
     /**
      * 讀取 PDF 並提取安全性資訊
+     * <p>
+     * 未加密且使用傳統 xref 表的文件只讀取標頭、trailer 與 /Info 物件；
+     * 其餘文件以部分讀取模式開啟，同樣不解析頁面樹與內容串流。
+     * 檔案未變更（大小與修改時間相同）且使用相同密碼時直接由快取返回。
      *
      * @param inputPath PDF 檔案路徑
      * @param password 密碼（可選）
      * @return PDF 安全性資訊
      */
     public PdfSecurityInfo extractSecurityInfo(String inputPath, String password) {
-        try {
-            byte[] passwordBytes = password != null ? password.getBytes() : null;
-            PdfReader reader = new PdfReader(inputPath, passwordBytes);
+        Path path = Path.of(inputPath);
+        try (PdfPipelineMetrics.Recording recording = pipelineMetrics.start("security-info")) {
+            PdfSecurityInfo securityInfo = securityInfoCache.get(path, password, () -> loadSecurityInfo(path, password));
+            recording.encryption(securityInfo);
+            return securityInfo;
+        }
+    }
 
-            PdfSecurityInfo securityInfo = buildSecurityInfo(reader);
+    /**
+     * 讀取記憶體中 PDF 的安全性資訊，相同內容與密碼時直接由快取返回
+     *
+     * @param pdfBytes PDF 內容
+     * @param password 密碼（可選）
+     * @return PDF 安全性資訊
+     */
+    public PdfSecurityInfo extractSecurityInfo(byte[] pdfBytes, String password) {
+        return securityInfoCache.get(pdfBytes, password, () -> {
+            PdfReader reader = getPdfReader(new RandomAccessFileOrArray(pdfBytes), password);
+            try {
+                return extractSecurityInfo(reader);
+            } finally {
+                reader.close();
+            }
+        });
+    }
 
-            reader.close();
+    /**
+     * 記錄已解析檔案的安全性資訊，後續以相同密碼查詢時不需重新讀取
+     *
+     * @param inputPath PDF 檔案路徑
+     * @param password 開啟此檔案時使用的密碼
+     * @param securityInfo PDF 安全性資訊
+     */
+    public void cacheSecurityInfo(String inputPath, String password, PdfSecurityInfo securityInfo) {
+        securityInfoCache.put(Path.of(inputPath), password, securityInfo);
+    }
+
+    /**
+     * 實際讀取檔案的安全性資訊
+     */
+    private PdfSecurityInfo loadSecurityInfo(Path path, String password) {
+        String inputPath = path.toString();
+
+        if (headerOnlyInspection) {
+            long inspectStart = System.nanoTime();
+            PdfSecurityInfo headerInfo = inspectHeader(path);
+            pipelineMetrics.record(PdfPipelineMetrics.Stage.SECURITY_EXTRACTION, inspectStart, 0);
+            if (headerInfo != null) {
+                log.info("成功讀取 PDF 安全性資訊（標頭快速路徑）: {}", inputPath);
+                return headerInfo;
+            }
+        }
+
+        long openStart = System.nanoTime();
+        PdfReader reader = getPdfReader(openMappedSource(path), password);
+        pipelineMetrics.record(PdfPipelineMetrics.Stage.READER_OPEN, openStart, 0);
+        try {
+            long extractStart = System.nanoTime();
+            PdfSecurityInfo securityInfo = extractSecurityInfo(reader);
+            pipelineMetrics.record(PdfPipelineMetrics.Stage.SECURITY_EXTRACTION, extractStart, 0);
 
             log.info("成功讀取 PDF 安全性資訊: {}", inputPath);
             return securityInfo;
+        } finally {
+            reader.close();
+        }
+    }
 
-        } catch (IOException e) {
-            log.error("讀取 PDF 失敗: {}", inputPath, e);
-            throw new PdfProcessingException("讀取 PDF 失敗: " + e.getMessage(), e);
+    /**
+     * 以標頭快速路徑讀取安全性資訊
+     *
+     * @param path PDF 檔案路徑
+     * @return PDF 安全性資訊；文件不適用快速路徑時回傳 null
+     */
+    private PdfSecurityInfo inspectHeader(Path path) {
+        try (RandomAccessFileOrArray source = openMappedSource(path)) {
+            PdfHeaderInspector inspector = new PdfHeaderInspector(source);
+            if (!inspector.readHeader()) {
+                return null;
+            }
+
+            PdfSecurityInfo securityInfo = extractSecurityInfo(inspector);
+            return inspector.hasUnresolvedObjects() ? null : securityInfo;
+
+        } catch (IOException | RuntimeException e) {
+            log.debug("標頭快速路徑無法處理，改用 PdfReader 讀取: {}", path, e);
+            return null;
         }
     }
 
     /**
      * 讀取 PDF 並返回 PdfReader
+     * <p>
+     * 檔案大小超過 {@code pdf-factory.reader.partial-read-threshold} 時，改以記憶體映射的部分讀取模式開啟：
+     * 只解析 xref 與 trailer，頁面物件在 PdfCopy 取用時才讀取，常駐記憶體與單一頁面大小成正比，
+     * 而非整份文件（記憶體映射受限於單一 MappedByteBuffer，檔案需小於 2GB）。
+     * 啟用 {@link PdfDerivedKeyCache}、提供密碼且文件確實加密時同樣以部分讀取模式開啟，以便重用已推導的檔案金鑰。
      *
      * @param inputPath PDF 檔案路徑
      * @param password 密碼（可選）
@@ -53,6 +159,17 @@ public class PdfReaderService {
      */
     public PdfReader getPdfReader(String inputPath, String password) {
         try {
+            Path path = Path.of(inputPath);
+            long fileSize = Files.size(path);
+            if (fileSize > partialReadThreshold.toBytes()) {
+                log.debug("檔案大小 {} bytes 超過門檻 {}，使用記憶體映射部分讀取: {}",
+                        fileSize, partialReadThreshold, inputPath);
+                return getPdfReader(openMappedSource(path), password);
+            }
+            if (usesDerivedKeyCache(password, () -> openMappedSource(path))) {
+                return getPdfReader(openMappedSource(path), password);
+            }
+
             byte[] passwordBytes = password != null ? password.getBytes() : null;
             return new PdfReader(inputPath, passwordBytes);
         } catch (IOException e) {
@@ -62,17 +179,124 @@ public class PdfReaderService {
     }
 
     /**
-     * 從 PdfReader 建立安全性資訊
+     * 從記憶體中的 PDF 內容建立 PdfReader
+     * <p>
+     * 啟用 {@link PdfDerivedKeyCache}、提供密碼且文件確實加密時以部分讀取模式開啟，以便重用已推導的檔案金鑰。
+     *
+     * @param pdfBytes PDF 內容
+     * @param password 密碼（可選）
+     * @return PdfReader 實例
+     */
+    public PdfReader getPdfReader(byte[] pdfBytes, String password) {
+        if (usesDerivedKeyCache(password, () -> new RandomAccessFileOrArray(pdfBytes))) {
+            return getPdfReader(new RandomAccessFileOrArray(pdfBytes), password);
+        }
+        try {
+            byte[] passwordBytes = password != null ? password.getBytes() : null;
+            return new PdfReader(pdfBytes, passwordBytes);
+        } catch (IOException e) {
+            log.error("建立 PdfReader 失敗: 記憶體內容 {} bytes", pdfBytes.length, e);
+            throw new PdfProcessingException("建立 PdfReader 失敗: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 從指定來源建立 PdfReader（部分讀取模式，物件於使用時才解析）
+     * <p>
+     * 來源由回傳的 PdfReader 持有，呼叫 {@link PdfReader#close()} 時一併關閉。
+     * 啟用 {@link PdfDerivedKeyCache} 且提供密碼時，加密文件的檔案金鑰經由快取取得，相同文件與密碼重複開啟時不重新推導。
+     *
+     * @param source PDF 來源
+     * @param password 密碼（可選）
+     * @return PdfReader 實例
+     */
+    public PdfReader getPdfReader(RandomAccessFileOrArray source, String password) {
+        try {
+            byte[] passwordBytes = password != null ? password.getBytes() : null;
+            if (passwordBytes != null && derivedKeyCache.isEnabled()) {
+                return KeyCachingPdfReader.open(source, passwordBytes, derivedKeyCache);
+            }
+            return new PdfReader(source, passwordBytes);
+        } catch (IOException e) {
+            log.error("建立 PdfReader 失敗", e);
+            closeQuietly(source);
+            throw new PdfProcessingException("建立 PdfReader 失敗: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 是否改以部分讀取模式開啟以重用已推導的檔案金鑰（啟用快取、提供密碼且最新的 trailer 含有 /Encrypt）
+     * <p>
+     * 只讀取檔尾的 trailer；無法判斷時回傳 false，沿用一般讀取方式。
+     */
+    private boolean usesDerivedKeyCache(String password, Supplier<RandomAccessFileOrArray> sourceOpener) {
+        if (password == null || !derivedKeyCache.isEnabled()) {
+            return false;
+        }
+        try (RandomAccessFileOrArray source = sourceOpener.get()) {
+            return new PdfHeaderInspector(source).declaresEncryption();
+        } catch (IOException | RuntimeException e) {
+            log.debug("無法讀取 trailer，不使用檔案金鑰快取", e);
+            return false;
+        }
+    }
+
+    /**
+     * 以記憶體映射方式開啟 PDF 檔案
+     *
+     * @param path PDF 檔案路徑
+     * @return 記憶體映射的 PDF 來源
+     */
+    public RandomAccessFileOrArray openMappedSource(Path path) {
+        try {
+            // forceRead = false, plainRandomAccess = false：使用 FileChannel 記憶體映射
+            return new RandomAccessFileOrArray(path.toString(), false, false);
+        } catch (IOException e) {
+            log.error("開啟 PDF 檔案失敗: {}", path, e);
+            throw new PdfProcessingException("開啟 PDF 檔案失敗: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 關閉 PDF 來源，忽略關閉時的錯誤
+     */
+    private void closeQuietly(RandomAccessFileOrArray source) {
+        try {
+            source.close();
+        } catch (IOException e) {
+            log.warn("關閉 PDF 來源失敗", e);
+        }
+    }
+
+    /**
+     * 從已開啟的 PdfReader 提取安全性資訊（不重新解析檔案）
      *
      * @param reader PdfReader 實例
      * @return PDF 安全性資訊
      */
-    private PdfSecurityInfo buildSecurityInfo(PdfReader reader) {
+    public PdfSecurityInfo extractSecurityInfo(PdfReader reader) {
         boolean encrypted = reader.isEncrypted();
-        int permissions = encrypted ? reader.getPermissions() : -1;
+        return buildSecurityInfo(
+                encrypted,
+                encrypted ? reader.getPermissions() : -1,
+                encrypted ? reader.getCryptoMode() : PdfWriter.ENCRYPTION_NONE,
+                reader.getPdfVersion(),
+                reader.getInfo());
+    }
 
+    /**
+     * 依據加密參數與 metadata 建立安全性資訊
+     *
+     * @param encrypted 是否加密
+     * @param permissions 權限碼（未加密時為 -1）
+     * @param cryptoMode 加密模式
+     * @param pdfVersion PDF 版本字元
+     * @param info PDF metadata
+     * @return PDF 安全性資訊
+     */
+    public PdfSecurityInfo buildSecurityInfo(boolean encrypted, int permissions, int cryptoMode,
+                                             char pdfVersion, Map<String, String> info) {
         // 取得 PDF metadata
-        Map<String, String> info = reader.getInfo();
         String creator = info.getOrDefault("Creator", "Unknown");
         String producer = info.getOrDefault("Producer", "Unknown");
 
@@ -84,7 +308,6 @@ public class PdfReaderService {
         String encryptionAlgorithm = "None";
 
         if (encrypted) {
-            int cryptoMode = reader.getCryptoMode();
             encryptionLevel = determineEncryptionLevel(cryptoMode);
             encryptionAlgorithm = getEncryptionAlgorithmName(cryptoMode);
         }
@@ -102,7 +325,7 @@ public class PdfReaderService {
                 .allowFillIn(permissionMap.get("allowFillIn"))
                 .allowScreenReaders(permissionMap.get("allowScreenReaders"))
                 .allowAssembly(permissionMap.get("allowAssembly"))
-                .pdfVersion(reader.getPdfVersion() + "")
+                .pdfVersion(pdfVersion + "")
                 .creator(creator)
                 .producer(producer)
                 .hasUserPassword(encrypted)
@@ -157,12 +380,9 @@ public class PdfReaderService {
             case PdfWriter.STANDARD_ENCRYPTION_128:
             case PdfWriter.ENCRYPTION_AES_128:
                 return 128;
-            // OpenPDF 1.3.34 使用 ENCRYPTION_AES_256，但如果不存在則使用 128
+            case PdfWriter.ENCRYPTION_AES_256_V3:
+                return 256;
             default:
-                // 嘗試匹配 256-bit（某些版本可能沒有此常數）
-                if (cryptoMode == 3) { // ENCRYPTION_AES_256 的值通常是 3
-                    return 256;
-                }
                 return 128; // 預設
         }
     }
@@ -181,11 +401,9 @@ public class PdfReaderService {
                 return "128-bit RC4";
             case PdfWriter.ENCRYPTION_AES_128:
                 return "128-bit AES";
+            case PdfWriter.ENCRYPTION_AES_256_V3:
+                return "256-bit AES";
             default:
-                // 嘗試匹配 256-bit
-                if (cryptoMode == 3) { // ENCRYPTION_AES_256 的值
-                    return "256-bit AES";
-                }
                 return "Unknown";
         }
     }
@@ -0,0 +1,95 @@
+package com.pdffactory.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.pdffactory.dto.PdfRewriteRequest;
+import com.pdffactory.dto.PdfRewriteResponse;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 非同步重寫工作（以 JSON 保存於工作儲存區）
+ * <p>
+ * 狀態轉換時才寫入儲存區，頁面複製進度只保存在記憶體中；服務重新啟動時未完成的工作重新排隊並從頭處理。
+ */
+@Data
+@NoArgsConstructor
+public class PdfRewriteJob {
+
+    /**
+     * 工作狀態
+     */
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        FAILED
+    }
+
+    /**
+     * 工作 ID
+     */
+    private String id;
+
+    /**
+     * 重寫請求（工作完成後清除密碼再保存）
+     */
+    private PdfRewriteRequest request;
+
+    /**
+     * 工作狀態
+     */
+    private volatile Status status;
+
+    /**
+     * 訊息（失敗原因等）
+     */
+    private String message;
+
+    /**
+     * 輸入檔案大小（bytes）
+     */
+    private long inputSize;
+
+    /**
+     * 總頁數（開始複製頁面前為 0）
+     */
+    private volatile int totalPages;
+
+    /**
+     * 已複製頁數
+     */
+    private volatile int pagesCopied;
+
+    /**
+     * 提交時間（epoch 毫秒）
+     */
+    private long submittedAt;
+
+    /**
+     * 開始處理時間（epoch 毫秒）
+     */
+    private Long startedAt;
+
+    /**
+     * 完成時間（epoch 毫秒）
+     */
+    private Long finishedAt;
+
+    /**
+     * 重寫結果（不含 PDF 內容）
+     */
+    private PdfRewriteResponse result;
+
+    /**
+     * 結果檔案路徑（請求的 outputPath，未提供時為工作儲存區中的檔案）
+     */
+    private String resultPath;
+
+    /**
+     * 是否已結束（成功或失敗）
+     */
+    @JsonIgnore
+    public boolean isFinished() {
+        return status == Status.SUCCEEDED || status == Status.FAILED;
+    }
+}
@@ -0,0 +1,370 @@
+package com.pdffactory.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.pdffactory.dto.PdfRewriteJobResponse;
+import com.pdffactory.dto.PdfRewriteRequest;
+import com.pdffactory.dto.PdfRewriteResponse;
+import com.pdffactory.exception.PdfProcessingException;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 非同步重寫工作服務
+ * <p>
+ * 提交時只驗證輸入並將工作寫入工作儲存區（{@code pdf-factory.jobs.store-dir}，每個工作一個 JSON 檔），
+ * 重寫在 pdfJobExecutor 上執行，客戶端以工作 ID 查詢進度（已複製頁數）並另外取得結果檔案。
+ * 服務重新啟動時，儲存區中未完成的工作依提交順序重新排隊；已完成的工作保留 {@code pdf-factory.jobs.retention} 後刪除。
+ * <p>
+ * 未完成的工作需保存密碼才能在重新啟動後處理，因此儲存區含有機密：目錄必須明確設定（不使用系統暫存目錄），
+ * 啟動時目錄開放群組或其他使用者存取則拒絕啟動；儲存區檔案僅限擁有者讀寫，工作完成後即清除密碼。
+ * 未設定目錄時停用非同步重寫工作。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PdfRewriteJobService {
+
+    private static final String JOB_FILE_SUFFIX = ".json";
+    private static final String RESULT_FILE_SUFFIX = ".pdf";
+
+    private final PdfRewriterService pdfRewriterService;
+    private final PdfPipelineMetrics pipelineMetrics;
+    private final ObjectMapper objectMapper;
+
+    @Qualifier("pdfJobExecutor")
+    private final ExecutorService pdfJobExecutor;
+
+    private final Map<String, PdfRewriteJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * 工作儲存區目錄（含密碼），空白表示停用非同步重寫工作
+     */
+    @Value("${pdf-factory.jobs.store-dir:}")
+    private String storeDir;
+
+    /**
+     * 排隊中（尚未開始）的工作數上限，超過時拒絕提交
+     */
+    @Value("${pdf-factory.jobs.max-queued:1000}")
+    private int maxQueued;
+
+    /**
+     * 已完成工作（含結果檔案）的保留時間
+     */
+    @Value("${pdf-factory.jobs.retention:24h}")
+    private Duration retention;
+
+    /**
+     * 載入工作儲存區，未完成的工作重新排隊
+     */
+    @PostConstruct
+    void recover() throws IOException {
+        if (!isEnabled()) {
+            log.info("未設定 pdf-factory.jobs.store-dir，非同步重寫工作已停用");
+            return;
+        }
+        Path store = createStore(Path.of(storeDir));
+
+        List<PdfRewriteJob> pending = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(store, "*" + JOB_FILE_SUFFIX)) {
+            for (Path file : files) {
+                PdfRewriteJob job;
+                try {
+                    job = objectMapper.readValue(file.toFile(), PdfRewriteJob.class);
+                } catch (IOException e) {
+                    log.warn("無法讀取工作檔案，略過: {}", file, e);
+                    continue;
+                }
+                jobs.put(job.getId(), job);
+                if (!job.isFinished()) {
+                    pending.add(job);
+                }
+            }
+        }
+
+        pending.sort(Comparator.comparingLong(PdfRewriteJob::getSubmittedAt));
+        for (PdfRewriteJob job : pending) {
+            job.setStatus(PdfRewriteJob.Status.QUEUED);
+            job.setStartedAt(null);
+            job.setPagesCopied(0);
+            job.setTotalPages(0);
+            persist(job);
+            pdfJobExecutor.execute(() -> run(job));
+        }
+        purgeExpired();
+
+        if (!jobs.isEmpty()) {
+            log.info("已載入工作儲存區: {} 個工作，{} 個重新排隊", jobs.size(), pending.size());
+        }
+    }
+
+    /**
+     * 提交重寫工作
+     *
+     * @param request 重寫請求（需提供 inputPath；未提供 outputPath 時結果寫入工作儲存區）
+     * @return 工作響應（QUEUED）
+     */
+    public PdfRewriteJobResponse submit(PdfRewriteRequest request) {
+        try {
+            if (!isEnabled()) {
+                throw new PdfProcessingException("未設定 pdf-factory.jobs.store-dir，非同步重寫工作已停用");
+            }
+            if (request.getInputPath() == null) {
+                throw new PdfProcessingException("非同步重寫需提供 inputPath");
+            }
+            purgeExpired();
+            long queued = jobs.values().stream().filter(job -> job.getStatus() == PdfRewriteJob.Status.QUEUED).count();
+            if (queued >= maxQueued) {
+                throw new PdfProcessingException("排隊中的工作已達上限 " + maxQueued + "，請稍後重試");
+            }
+
+            PdfRewriteJob job = new PdfRewriteJob();
+            job.setId(UUID.randomUUID().toString());
+            job.setRequest(request);
+            job.setStatus(PdfRewriteJob.Status.QUEUED);
+            job.setInputSize(Files.size(Path.of(request.getInputPath())));
+            job.setSubmittedAt(System.currentTimeMillis());
+            job.setResultPath(request.getOutputPath() != null
+                    ? request.getOutputPath()
+                    : Path.of(storeDir, job.getId() + RESULT_FILE_SUFFIX).toString());
+
+            persist(job);
+            jobs.put(job.getId(), job);
+            try {
+                pdfJobExecutor.execute(() -> run(job));
+            } catch (RejectedExecutionException e) {
+                // 服務關閉中，工作已保存，重新啟動後處理
+                log.warn("工作執行緒池已關閉，工作將於重新啟動後處理: {}", job.getId());
+            }
+
+            log.info("已提交重寫工作: {}，輸入: {}（{} bytes）", job.getId(), request.getInputPath(), job.getInputSize());
+            return toResponse(job, "工作已提交");
+
+        } catch (Exception e) {
+            log.error("提交重寫工作失敗", e);
+            return PdfRewriteJobResponse.builder()
+                    .success(false)
+                    .message("提交重寫工作失敗: " + e.getMessage())
+                    .build();
+        }
+    }
+
+    /**
+     * 查詢工作狀態與進度
+     *
+     * @param jobId 工作 ID
+     * @return 工作響應
+     */
+    public PdfRewriteJobResponse getStatus(String jobId) {
+        PdfRewriteJob job = jobId != null ? jobs.get(jobId) : null;
+        if (job == null) {
+            return PdfRewriteJobResponse.builder()
+                    .success(false)
+                    .message("找不到工作: " + jobId)
+                    .jobId(jobId)
+                    .build();
+        }
+        return toResponse(job, null);
+    }
+
+    /**
+     * 取得已完成工作的結果檔案
+     *
+     * @param jobId 工作 ID
+     * @return 結果檔案路徑
+     */
+    public Path getResultFile(String jobId) {
+        PdfRewriteJob job = jobId != null ? jobs.get(jobId) : null;
+        if (job == null) {
+            throw new PdfProcessingException("找不到工作: " + jobId);
+        }
+        if (job.getStatus() != PdfRewriteJob.Status.SUCCEEDED) {
+            throw new PdfProcessingException("工作尚未成功完成: " + job.getStatus());
+        }
+
+        Path resultFile = Path.of(job.getResultPath());
+        if (!Files.isRegularFile(resultFile)) {
+            throw new PdfProcessingException("結果檔案已不存在: " + jobId);
+        }
+        return resultFile;
+    }
+
+    /**
+     * 執行工作（在 pdfJobExecutor 上）
+     */
+    private void run(PdfRewriteJob job) {
+        job.setStatus(PdfRewriteJob.Status.RUNNING);
+        job.setStartedAt(System.currentTimeMillis());
+        persistQuietly(job);
+
+        PdfRewriteRequest request = objectMapper.convertValue(job.getRequest(), PdfRewriteRequest.class);
+        request.setOutputPath(job.getResultPath());
+
+        PdfRewriteResponse response;
+        PdfPipelineMetrics.Recording recording = pipelineMetrics.start("jobs/rewrite");
+        try {
+            response = pdfRewriterService.rewritePdf(request, (pagesCopied, totalPages) -> {
+                job.setTotalPages(totalPages);
+                job.setPagesCopied(pagesCopied);
+            });
+        } finally {
+            recording.close();
+        }
+
+        if (!response.isSuccess() && pdfJobExecutor.isShutdown()) {
+            // 服務關閉而中斷，保留 RUNNING 狀態，重新啟動後重新處理
+            log.warn("服務關閉中斷重寫工作，將於重新啟動後重新處理: {}", job.getId());
+            return;
+        }
+
+        job.setResult(response);
+        job.setMessage(response.getMessage());
+        job.setFinishedAt(System.currentTimeMillis());
+        // 已完成的工作不需再保存密碼
+        job.getRequest().setOwnerPassword(null);
+        job.getRequest().setUserPassword(null);
+        job.getRequest().setNewOwnerPassword(null);
+        job.getRequest().setNewUserPassword(null);
+
+        // 先寫入儲存區再更新記憶體中的狀態，查詢到完成狀態時儲存區必定已是最終內容
+        PdfRewriteJob.Status status = response.isSuccess() ? PdfRewriteJob.Status.SUCCEEDED : PdfRewriteJob.Status.FAILED;
+        persistQuietly(job, status);
+        job.setStatus(status);
+
+        log.info("重寫工作完成: {}，狀態: {}，耗時 {} ms", job.getId(), job.getStatus(),
+                job.getFinishedAt() - job.getStartedAt());
+    }
+
+    /**
+     * 刪除超過保留時間的已完成工作；結果寫入工作儲存區時一併刪除結果檔案
+     */
+    private void purgeExpired() {
+        long expiredBefore = System.currentTimeMillis() - retention.toMillis();
+        for (PdfRewriteJob job : jobs.values()) {
+            if (!job.isFinished() || job.getFinishedAt() == null || job.getFinishedAt() >= expiredBefore) {
+                continue;
+            }
+            jobs.remove(job.getId());
+            deleteQuietly(jobFile(job.getId()));
+            if (job.getRequest() == null || job.getRequest().getOutputPath() == null) {
+                deleteQuietly(Path.of(job.getResultPath()));
+            }
+            log.debug("已刪除過期工作: {}", job.getId());
+        }
+    }
+
+    private boolean isEnabled() {
+        return storeDir != null && !storeDir.isBlank();
+    }
+
+    /**
+     * 建立或檢查工作儲存區目錄：新建目錄僅限擁有者存取，既有目錄開放群組或其他使用者存取時拒絕啟動
+     */
+    private static Path createStore(Path store) throws IOException {
+        if (!FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            return Files.createDirectories(store);
+        }
+        if (Files.notExists(store)) {
+            Files.createDirectories(store,
+                    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        }
+        Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(store);
+        for (PosixFilePermission permission : permissions) {
+            if (permission != PosixFilePermission.OWNER_READ
+                    && permission != PosixFilePermission.OWNER_WRITE
+                    && permission != PosixFilePermission.OWNER_EXECUTE) {
+                throw new IllegalStateException("工作儲存區含有密碼，目錄不可開放群組或其他使用者存取: "
+                        + store + "（目前權限 " + PosixFilePermissions.toString(permissions) + "）");
+            }
+        }
+        return store;
+    }
+
+    private void persist(PdfRewriteJob job) throws IOException {
+        persist(job, job.getStatus());
+    }
+
+    /**
+     * 以指定狀態將工作寫入儲存區（先寫入暫存檔再置換，避免留下不完整的檔案）
+     */
+    private void persist(PdfRewriteJob job, PdfRewriteJob.Status status) throws IOException {
+        Path store = Path.of(storeDir);
+        Path tempFile = FileSystems.getDefault().supportedFileAttributeViews().contains("posix")
+                ? Files.createTempFile(store, job.getId(), ".tmp",
+                        PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")))
+                : Files.createTempFile(store, job.getId(), ".tmp");
+        try {
+            ObjectNode node = objectMapper.valueToTree(job);
+            node.put("status", status.name());
+            objectMapper.writeValue(tempFile.toFile(), node);
+            Files.move(tempFile, jobFile(job.getId()),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(tempFile);
+            throw e;
+        }
+    }
+
+    private void persistQuietly(PdfRewriteJob job) {
+        persistQuietly(job, job.getStatus());
+    }
+
+    private void persistQuietly(PdfRewriteJob job, PdfRewriteJob.Status status) {
+        try {
+            persist(job, status);
+        } catch (IOException e) {
+            log.warn("保存工作狀態失敗: {}", job.getId(), e);
+        }
+    }
+
+    private Path jobFile(String jobId) {
+        return Path.of(storeDir, jobId + JOB_FILE_SUFFIX);
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("刪除工作檔案失敗: {}", path, e);
+        }
+    }
+
+    private PdfRewriteJobResponse toResponse(PdfRewriteJob job, String message) {
+        return PdfRewriteJobResponse.builder()
+                .success(true)
+                .message(message != null ? message : job.getMessage())
+                .jobId(job.getId())
+                .status(job.getStatus().name())
+                .pagesCopied(job.getPagesCopied())
+                .totalPages(job.getTotalPages())
+                .submittedAt(job.getSubmittedAt())
+                .startedAt(job.getStartedAt())
+                .finishedAt(job.getFinishedAt())
+                .result(job.getResult())
+                .build();
+    }
+}
@@ -1,5 +1,6 @@
 package com.pdffactory.service;
 
+import com.pdffactory.dto.PdfBatchRewriteItemResult;
 import com.pdffactory.dto.PdfRewriteRequest;
 import com.pdffactory.dto.PdfRewriteResponse;
 import com.pdffactory.dto.PdfUploadAndRewriteRequest;
@@ -10,16 +11,41 @@ import com.lowagie.text.Document;
 import com.lowagie.text.DocumentException;
 import com.lowagie.text.Rectangle;
 import com.lowagie.text.pdf.*;
+import com.lowagie.text.xml.xmp.XmpWriter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.input.CharSequenceInputStream;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
 
 /**
  * PDF 重寫服務
@@ -30,7 +56,156 @@ import java.util.Base64;
 @RequiredArgsConstructor
 public class PdfRewriterService {
 
+    /**
+     * 重寫後 PDF 的 metadata 與版本
+     */
+    private static final String REWRITE_CREATOR = "PDF Rewriter Application";
+    private static final String REWRITE_PRODUCER = "OpenPDF Library";
+    private static final char OUTPUT_PDF_VERSION = PdfWriter.VERSION_1_5;
+
+    /**
+     * 重寫方式（回應中的 rewriteMode）
+     */
+    private static final String REWRITE_MODE_FULL = "full";
+    private static final String REWRITE_MODE_INCREMENTAL = "incremental";
+
+    /**
+     * 只替換 metadata 時預留的附加內容大小（Info 字典、XMP 與 xref 區段）
+     */
+    private static final int METADATA_UPDATE_RESERVE = 8 * 1024;
+
+    /**
+     * 加密類型的演算法位元（對應 PdfWriter.ENCRYPTION_MASK）
+     */
+    private static final int ENCRYPTION_MODE_MASK = 0x07;
+
     private final PdfReaderService pdfReaderService;
+    private final PdfWorkScheduler workScheduler;
+    private final PdfEncryptionEngine encryptionEngine;
+    private final PdfPipelineMetrics pipelineMetrics;
+
+    @Qualifier("pdfBatchExecutor")
+    private final ExecutorService pdfBatchExecutor;
+
+    /**
+     * 上傳內容超過此大小時改用暫存檔案（記憶體映射）處理，否則完全在記憶體中處理
+     */
+    @Value("${pdf-factory.upload.temp-file-threshold:16MB}")
+    private DataSize tempFileThreshold;
+
+    @Qualifier("pdfSegmentPool")
+    private final ForkJoinPool pdfSegmentPool;
+
+    /**
+     * 頁數達到此值時改用平行分段複製（0 表示停用）
+     */
+    @Value("${pdf-factory.rewrite.parallel.min-pages:0}")
+    private int parallelMinPages;
+
+    /**
+     * 平行分段複製時每個分段的頁數
+     */
+    @Value("${pdf-factory.rewrite.parallel.segment-pages:250}")
+    private int segmentPages;
+
+    /**
+     * 增量更新（incrementalUpdate）寫出到檔案時，未加密且使用傳統 xref 表的文件以 FileChannel.transferTo 複製原始內容；
+     * false 時一律由 PdfStamper 附加
+     */
+    @Value("${pdf-factory.rewrite.metadata-fast-path:true}")
+    private boolean metadataFastPath;
+
+    /**
+     * 檔案輸出（outputPath）的 direct buffer 大小
+     */
+    @Value("${pdf-factory.rewrite.output.buffer-size:1MB}")
+    private DataSize outputBufferSize;
+
+    /**
+     * 是否以預估大小預先設定輸出檔長度（完成時截斷為實際大小）
+     */
+    @Value("${pdf-factory.rewrite.output.preallocate:false}")
+    private boolean outputPreallocate;
+
+    /**
+     * 輸出檔 rename 前後的同步方式：NONE、FILE、DIRECTORY
+     */
+    @Value("${pdf-factory.rewrite.output.fsync:NONE}")
+    private PdfFileOutput.SyncPolicy outputSync;
+
+    /**
+     * 壓縮設定
+     */
+    private enum CompressionProfile {
+        /**
+         * 不使用物件串流，既有串流原樣複製
+         */
+        FAST(false, Deflater.BEST_SPEED, null),
+
+        /**
+         * 物件串流與 xref 串流，並壓縮未壓縮的串流
+         */
+        BALANCED(true, Deflater.DEFAULT_COMPRESSION, false),
+
+        /**
+         * 物件串流與 xref 串流，並以最高等級重新壓縮所有 FlateDecode 與未壓縮的串流
+         */
+        MAX(true, Deflater.BEST_COMPRESSION, true);
+
+        private final boolean fullCompression;
+        private final int level;
+        /**
+         * null 表示不重新壓縮；false 只壓縮未壓縮的串流；true 一併重新壓縮 FlateDecode 串流
+         */
+        private final Boolean recompressFlate;
+
+        CompressionProfile(boolean fullCompression, int level, Boolean recompressFlate) {
+            this.fullCompression = fullCompression;
+            this.level = level;
+            this.recompressFlate = recompressFlate;
+        }
+    }
+
+    /**
+     * 重寫結果
+     *
+     * @param securityInfo 新 PDF 的安全性資訊
+     * @param compressionProfile 實際套用的壓縮設定（未設定時為 null）
+     * @param compressionMillis 重新壓縮串流耗時（毫秒）
+     * @param rewriteMode 重寫方式（full 或 incremental）
+     */
+    record RewriteResult(PdfSecurityInfo securityInfo, String compressionProfile, long compressionMillis,
+                         String rewriteMode) {
+    }
+
+    /**
+     * 頁面複製進度的接收者（在執行重寫的執行緒上呼叫）
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+
+        /**
+         * 不接收進度
+         */
+        ProgressListener NONE = (pagesCopied, totalPages) -> {
+        };
+
+        /**
+         * 已複製的頁數，開始複製前以 0 呼叫一次
+         *
+         * @param pagesCopied 已複製頁數
+         * @param totalPages 總頁數
+         */
+        void pagesCopied(int pagesCopied, int totalPages);
+    }
+
+    /**
+     * 依密碼開啟 PdfReader 的來源
+     */
+    @FunctionalInterface
+    private interface PdfReaderSource {
+        PdfReader open(String password) throws IOException;
+    }
 
     /**
      * 重寫 PDF 檔案
@@ -39,39 +214,211 @@ public class PdfRewriterService {
      * @return 重寫響應
      */
     public PdfRewriteResponse rewritePdf(PdfRewriteRequest request) {
+        return rewritePdf(request, ProgressListener.NONE);
+    }
+
+    /**
+     * 重寫 PDF 檔案並回報頁面複製進度
+     *
+     * @param request 重寫請求
+     * @param progressListener 進度接收者
+     * @return 重寫響應
+     */
+    public PdfRewriteResponse rewritePdf(PdfRewriteRequest request, ProgressListener progressListener) {
+        log.info("開始重寫 PDF: {}", request.getInputPath());
+        return rewritePdf(
+                password -> pdfReaderService.getPdfReader(request.getInputPath(), password),
+                password -> pdfReaderService.getPdfReader(
+                        pdfReaderService.openMappedSource(Path.of(request.getInputPath())), password),
+                request, progressListener);
+    }
+
+    /**
+     * 批次重寫 PDF 檔案
+     * <p>
+     * 各項目在批次執行緒池上平行處理，每完成一個項目即交給 resultConsumer（完成順序），
+     * 單一項目失敗只會反映在該項目的結果中，不影響其他項目。
+     * 若 resultConsumer 拋出例外（例如客戶端中斷連線），會取消尚未完成的項目。
+     *
+     * @param items 重寫項目（需提供 inputPath 與 outputPath）
+     * @param resultConsumer 接收每個項目結果的函式
+     */
+    public void rewritePdfBatch(List<PdfRewriteRequest> items,
+                                Consumer<PdfBatchRewriteItemResult> resultConsumer) throws InterruptedException {
+        log.info("開始批次重寫 PDF，共 {} 個項目", items.size());
+
+        CompletionService<PdfBatchRewriteItemResult> completionService =
+                new ExecutorCompletionService<>(pdfBatchExecutor);
+        List<Future<PdfBatchRewriteItemResult>> futures = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            int index = i;
+            PdfRewriteRequest item = items.get(i);
+            futures.add(completionService.submit(() -> rewriteBatchItem(index, item)));
+        }
+
+        int succeeded = 0;
         try {
-            log.info("開始重寫 PDF: {}", request.getInputPath());
+            for (int completed = 0; completed < items.size(); completed++) {
+                PdfBatchRewriteItemResult result;
+                try {
+                    result = completionService.take().get();
+                } catch (ExecutionException e) {
+                    // rewriteBatchItem 已處理所有例外，此處僅為防禦
+                    throw new PdfProcessingException("批次重寫項目執行失敗", e.getCause());
+                }
+                if (result.isSuccess()) {
+                    succeeded++;
+                }
+                resultConsumer.accept(result);
+            }
+        } catch (RuntimeException | InterruptedException e) {
+            log.warn("批次重寫中斷，取消尚未完成的項目", e);
+            futures.forEach(future -> future.cancel(true));
+            throw e;
+        }
+
+        log.info("批次重寫完成，成功 {} / {}", succeeded, items.size());
+    }
+
+    /**
+     * 處理單一批次重寫項目
+     */
+    private PdfBatchRewriteItemResult rewriteBatchItem(int index, PdfRewriteRequest item) {
+        long start = System.nanoTime();
+        PdfBatchRewriteItemResult.PdfBatchRewriteItemResultBuilder result = PdfBatchRewriteItemResult.builder()
+                .index(index)
+                .inputPath(item != null ? item.getInputPath() : null)
+                .outputPath(item != null ? item.getOutputPath() : null);
+
+        if (item == null || item.getInputPath() == null || item.getOutputPath() == null) {
+            return result
+                    .success(false)
+                    .message("批次重寫項目需提供 inputPath 與 outputPath")
+                    .elapsedMillis(0L)
+                    .build();
+        }
+
+        PdfRewriteResponse response;
+        PdfPipelineMetrics.Recording recording = pipelineMetrics.start("rewrite/batch");
+        try {
+            response = rewritePdf(item);
+        } finally {
+            recording.close();
+        }
+        return result
+                .success(response.isSuccess())
+                .message(response.getMessage())
+                .originalSecurityInfo(response.getOriginalSecurityInfo())
+                .newSecurityInfo(response.getNewSecurityInfo())
+                .elapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                .build();
+    }
+
+    /**
+     * 重寫記憶體中的 PDF（不建立暫存檔案）
+     *
+     * @param pdfBytes 原始 PDF 內容
+     * @param request 重寫請求（不使用 inputPath）
+     * @return 重寫響應
+     */
+    public PdfRewriteResponse rewritePdf(byte[] pdfBytes, PdfRewriteRequest request) {
+        log.info("開始重寫記憶體中的 PDF: {} bytes", pdfBytes.length);
+        return rewritePdf(
+                password -> pdfReaderService.getPdfReader(pdfBytes, password),
+                password -> pdfReaderService.getPdfReader(new RandomAccessFileOrArray(pdfBytes), password),
+                request, ProgressListener.NONE);
+    }
+
+    /**
+     * 重寫 ByteBuffer 中的 PDF（不建立暫存檔案）
+     *
+     * @param pdfBuffer 原始 PDF 內容（自 position 讀取至 limit）
+     * @param request 重寫請求（不使用 inputPath）
+     * @return 重寫響應
+     */
+    public PdfRewriteResponse rewritePdf(ByteBuffer pdfBuffer, PdfRewriteRequest request) {
+        return rewritePdf(toByteArray(pdfBuffer), request);
+    }
 
-            // 1. 讀取原 PDF 安全性資訊
+    /**
+     * 重寫指定來源的 PDF（例如記憶體映射檔案）
+     * <p>
+     * 來源會在重寫完成後由 PdfReader 關閉。
+     *
+     * @param source 原始 PDF 來源
+     * @param request 重寫請求（不使用 inputPath）
+     * @return 重寫響應
+     */
+    public PdfRewriteResponse rewritePdf(RandomAccessFileOrArray source, PdfRewriteRequest request) {
+        log.info("開始重寫 PDF 來源");
+        return rewritePdf(
+                password -> pdfReaderService.getPdfReader(source, password),
+                password -> pdfReaderService.getPdfReader(new RandomAccessFileOrArray(source), password),
+                request, ProgressListener.NONE);
+    }
+
+    /**
+     * 重寫 PDF 的共用流程
+     *
+     * @param readerSource 依密碼開啟 PdfReader 的來源
+     * @param segmentSource 平行分段複製時開啟獨立 PdfReader（部分讀取模式）的來源
+     * @param request 重寫請求
+     * @param progressListener 進度接收者
+     * @return 重寫響應
+     */
+    private PdfRewriteResponse rewritePdf(PdfReaderSource readerSource, PdfReaderSource segmentSource,
+                                          PdfRewriteRequest request, ProgressListener progressListener) {
+        // 由上傳或批次呼叫時併入其記錄，端點標記為外層端點
+        try (PdfPipelineMetrics.Recording recording = pipelineMetrics.start("rewrite")) {
+            // 1. 讀取原 PDF（僅解析一次，安全性資訊與頁面複製共用同一個 PdfReader）
             String password = request.getOwnerPassword() != null ?
                     request.getOwnerPassword() : request.getUserPassword();
-            PdfSecurityInfo originalSecurityInfo = pdfReaderService.extractSecurityInfo(
-                    request.getInputPath(), password);
+            PdfReader reader = pipelineMetrics.time(PdfPipelineMetrics.Stage.READER_OPEN,
+                    () -> readerSource.open(password));
 
-            // 2. 讀取原 PDF
-            PdfReader reader = pdfReaderService.getPdfReader(request.getInputPath(), password);
-
-            // 3. 重寫 PDF
+            PdfSecurityInfo originalSecurityInfo;
+            RewriteResult result;
             byte[] pdfBytes;
-            if (request.getOutputPath() != null) {
-                rewritePdfToFile(reader, request, originalSecurityInfo);
-                pdfBytes = null;
-            } else {
-                pdfBytes = rewritePdfToBytes(reader, request, originalSecurityInfo);
-            }
+            long originalFileSize = reader.getFileLength();
+            recording.inFlight(originalFileSize);
+            try {
+                // 2. 從已開啟的 reader 取得原 PDF 安全性資訊
+                originalSecurityInfo = pipelineMetrics.time(PdfPipelineMetrics.Stage.SECURITY_EXTRACTION,
+                        () -> pdfReaderService.extractSecurityInfo(reader));
 
-            reader.close();
+                // 3. 重寫 PDF，並由 writer 的記憶體狀態取得新 PDF 的安全性資訊（不重新讀取輸出檔）
+                //    依檔案大小與頁數交給排程器的小型或大型佇列處理，大型文件不會擋住小型請求
+                PdfWorkScheduler.PdfTask<RewriteResult> rewriteTask;
+                ByteArrayOutputStream baos = request.getOutputPath() == null ? new ByteArrayOutputStream() : null;
+                if (baos == null && canCopyWithMetadataUpdate(reader, request, originalSecurityInfo)) {
+                    rewriteTask = () -> copyWithMetadataUpdate(reader, request, originalSecurityInfo, progressListener);
+                } else if (baos == null) {
+                    rewriteTask = () -> rewritePdfToFile(
+                            reader, segmentSource, password, request, originalSecurityInfo, progressListener);
+                } else {
+                    rewriteTask = () -> processPdfRewrite(
+                            reader, segmentSource, password, baos, request, originalSecurityInfo, progressListener);
+                }
 
-            // 4. 讀取新 PDF 的安全性資訊（驗證）
-            PdfSecurityInfo newSecurityInfo = null;
+                result = workScheduler.run(originalFileSize, reader.getNumberOfPages(), rewriteTask);
+                pdfBytes = baos != null ? baos.toByteArray() : null;
+            } finally {
+                reader.close();
+            }
+
+            // 4. 記錄已知的安全性資訊，後續查詢原始檔或輸出檔時不需重新解析
+            PdfSecurityInfo newSecurityInfo = result.securityInfo();
+            if (request.getInputPath() != null) {
+                pdfReaderService.cacheSecurityInfo(request.getInputPath(), password, originalSecurityInfo);
+            }
             if (request.getOutputPath() != null) {
                 String newPassword = request.getNewOwnerPassword() != null ?
                         request.getNewOwnerPassword() : request.getOwnerPassword();
-                newSecurityInfo = pdfReaderService.extractSecurityInfo(
-                        request.getOutputPath(), newPassword);
+                pdfReaderService.cacheSecurityInfo(request.getOutputPath(), newPassword, newSecurityInfo);
             }
 
-            log.info("PDF 重寫完成: {}", request.getOutputPath());
+            long fileSize = pdfBytes != null ? pdfBytes.length : Files.size(Path.of(request.getOutputPath()));
+            log.info("PDF 重寫完成: {}，大小 {} -> {} bytes", request.getOutputPath(), originalFileSize, fileSize);
 
             return PdfRewriteResponse.builder()
                     .success(true)
@@ -80,7 +427,11 @@ public class PdfRewriterService {
                     .originalSecurityInfo(originalSecurityInfo)
                     .newSecurityInfo(newSecurityInfo)
                     .pdfBytes(pdfBytes)
-                    .fileSize(pdfBytes != null ? (long) pdfBytes.length : null)
+                    .fileSize(fileSize)
+                    .originalFileSize(originalFileSize)
+                    .compressionProfile(result.compressionProfile())
+                    .compressionMillis(result.compressionMillis())
+                    .rewriteMode(result.rewriteMode())
                     .build();
 
         } catch (Exception e) {
@@ -94,39 +445,54 @@ public class PdfRewriterService {
 
     /**
      * 上傳並重寫 PDF（處理 Base64 編碼）
+     * <p>
+     * 解碼後大小不超過門檻時直接在記憶體中處理；超過門檻時以串流方式解碼至暫存檔案，
+     * 再以記憶體映射方式讀取，避免將整份文件載入 heap。
      *
      * @param request 上傳並重寫請求
      * @return 上傳並重寫響應
      */
     public PdfUploadAndRewriteResponse uploadAndRewritePdf(PdfUploadAndRewriteRequest request) {
-        Path tempDir = null;
         Path inputPath = null;
 
+        PdfPipelineMetrics.Recording recording = pipelineMetrics.start("upload-and-rewrite");
         try {
             log.info("收到 PDF 上傳並重寫請求: {}", request.getFileName());
 
-            // 1. 解碼 Base64
-            byte[] pdfBytes = Base64.getDecoder().decode(request.getPdfFileBase64());
+            // 1. 建立重寫請求
+            PdfRewriteRequest rewriteRequest = toRewriteRequest(request).build();
 
-            // 2. 儲存到暫存檔案
-            tempDir = Files.createTempDirectory("pdf-factory");
-            inputPath = tempDir.resolve(request.getFileName());
-            Files.write(inputPath, pdfBytes);
+            // 2. 依解碼後大小選擇記憶體或暫存檔案處理
+            String pdfFileBase64 = request.getPdfFileBase64();
+            long estimatedSize = estimateDecodedSize(pdfFileBase64);
+            PdfRewriteResponse rewriteResponse;
 
-            // 3. 建立重寫請求
-            PdfRewriteRequest rewriteRequest = PdfRewriteRequest.builder()
-                    .inputPath(inputPath.toString())
-                    .ownerPassword(request.getOwnerPassword())
-                    .userPassword(request.getUserPassword())
-                    .preserveSecurity(request.isPreserveSecurity())
-                    .build();
-
-            // 4. 執行重寫
-            PdfRewriteResponse rewriteResponse = rewritePdf(rewriteRequest);
+            if (estimatedSize <= tempFileThreshold.toBytes()) {
+                long decodeStart = System.nanoTime();
+                byte[] pdfBytes = Base64.getDecoder().decode(pdfFileBase64);
+                pipelineMetrics.record(PdfPipelineMetrics.Stage.BASE64_DECODE, decodeStart, pdfBytes.length);
+                rewriteResponse = rewritePdf(pdfBytes, rewriteRequest);
+            } else {
+                log.info("上傳內容約 {} bytes，超過門檻 {}，改用暫存檔案處理", estimatedSize, tempFileThreshold);
+                inputPath = Files.createTempFile("pdf-factory", ".pdf");
+                // 串流解碼與寫入同時進行，一併記錄為暫存檔寫入
+                long writeStart = System.nanoTime();
+                try (InputStream decoded = Base64.getDecoder().wrap(CharSequenceInputStream.builder()
+                        .setCharSequence(pdfFileBase64)
+                        .setCharset(StandardCharsets.US_ASCII)
+                        .get())) {
+                    long written = Files.copy(decoded, inputPath, StandardCopyOption.REPLACE_EXISTING);
+                    pipelineMetrics.record(PdfPipelineMetrics.Stage.TEMP_FILE_WRITE, writeStart, written);
+                }
+                rewriteResponse = rewritePdf(pdfReaderService.openMappedSource(inputPath), rewriteRequest);
+            }
 
             if (rewriteResponse.isSuccess() && rewriteResponse.getPdfBytes() != null) {
-                // 5. 編碼為 Base64
+                // 3. 編碼為 Base64
+                long encodeStart = System.nanoTime();
                 String base64Result = Base64.getEncoder().encodeToString(rewriteResponse.getPdfBytes());
+                pipelineMetrics.record(PdfPipelineMetrics.Stage.OUTPUT_ENCODE, encodeStart,
+                        rewriteResponse.getPdfBytes().length);
 
                 return PdfUploadAndRewriteResponse.builder()
                         .success(true)
@@ -135,6 +501,10 @@ public class PdfRewriterService {
                         .fileSize((long) rewriteResponse.getPdfBytes().length)
                         .originalSecurityInfo(rewriteResponse.getOriginalSecurityInfo())
                         .newSecurityInfo(rewriteResponse.getNewSecurityInfo())
+                        .originalFileSize(rewriteResponse.getOriginalFileSize())
+                        .compressionProfile(rewriteResponse.getCompressionProfile())
+                        .compressionMillis(rewriteResponse.getCompressionMillis())
+                        .rewriteMode(rewriteResponse.getRewriteMode())
                         .build();
             } else {
                 return PdfUploadAndRewriteResponse.builder()
@@ -143,101 +513,601 @@ public class PdfRewriterService {
                         .build();
             }
 
-        } catch (IOException e) {
+        } catch (IOException | IllegalArgumentException e) {
             log.error("PDF 上傳並重寫失敗", e);
             return PdfUploadAndRewriteResponse.builder()
                     .success(false)
                     .message("PDF 上傳並重寫失敗: " + e.getMessage())
                     .build();
         } finally {
-            // 6. 清理暫存檔案
-            try {
-                if (inputPath != null) {
-                    Files.deleteIfExists(inputPath);
-                }
-                if (tempDir != null) {
-                    Files.deleteIfExists(tempDir);
+            // 4. 清理暫存檔案
+            deleteTempFile(inputPath);
+            recording.close();
+        }
+    }
+
+    /**
+     * 由上傳請求的重寫選項建立重寫請求
+     */
+    private PdfRewriteRequest.PdfRewriteRequestBuilder toRewriteRequest(PdfUploadAndRewriteRequest request) {
+        return PdfRewriteRequest.builder()
+                .ownerPassword(request.getOwnerPassword())
+                .userPassword(request.getUserPassword())
+                .preserveSecurity(request.isPreserveSecurity())
+                .dedupeResources(request.isDedupeResources())
+                .compressionProfile(request.getCompressionProfile())
+                .incrementalUpdate(request.isIncrementalUpdate());
+    }
+
+    /**
+     * 由 Base64 字串長度估算解碼後的位元組數
+     */
+    private long estimateDecodedSize(String base64) {
+        if (base64 == null) {
+            return 0;
+        }
+        return (long) base64.length() / 4 * 3;
+    }
+
+    /**
+     * 取出 ByteBuffer 的剩餘內容，可直接使用底層陣列時不額外複製
+     */
+    private byte[] toByteArray(ByteBuffer buffer) {
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0
+                && buffer.remaining() == buffer.array().length) {
+            return buffer.array();
+        }
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * 上傳並重寫 PDF（串流二進位內容）
+     * <p>
+     * 上傳內容以固定大小緩衝區寫入暫存檔，重寫結果直接串流寫入回應，
+     * 不經過 Base64 編碼，也不在記憶體中保留完整的輸入或輸出副本。
+     * 密碼錯誤、檔案損毀或不支援的壓縮設定會在開始回應前拋出例外。
+     *
+     * @param pdfStream 原始 PDF 輸入流
+     * @param request 重寫選項（不使用 pdfFileBase64）
+     * @return 寫出重寫結果的串流回應內容
+     */
+    public StreamingResponseBody uploadAndRewritePdfStream(InputStream pdfStream,
+                                                           PdfUploadAndRewriteRequest request) {
+        Path inputPath = null;
+        PdfPipelineMetrics.Recording recording = pipelineMetrics.start("upload-and-rewrite/stream");
+
+        try {
+            log.info("收到 PDF 串流上傳並重寫請求: {}", request.getFileName());
+            // 不支援的壓縮設定在接收上傳內容前拒絕
+            parseCompressionProfile(request.getCompressionProfile());
+
+            // 1. 以串流方式寫入暫存檔案
+            inputPath = Files.createTempFile("pdf-factory", ".pdf");
+            long writeStart = System.nanoTime();
+            long uploadedBytes = Files.copy(pdfStream, inputPath, StandardCopyOption.REPLACE_EXISTING);
+            pipelineMetrics.record(PdfPipelineMetrics.Stage.TEMP_FILE_WRITE, writeStart, uploadedBytes);
+            recording.inFlight(uploadedBytes);
+            log.debug("已接收上傳內容 {} bytes", uploadedBytes);
+
+            // 2. 開啟 PDF 並讀取原始安全性資訊
+            PdfRewriteRequest rewriteRequest = toRewriteRequest(request)
+                    .inputPath(inputPath.toString())
+                    .build();
+            String password = request.getOwnerPassword() != null ?
+                    request.getOwnerPassword() : request.getUserPassword();
+            Path mappedPath = inputPath;
+            PdfReader reader = pipelineMetrics.time(PdfPipelineMetrics.Stage.READER_OPEN,
+                    () -> pdfReaderService.getPdfReader(pdfReaderService.openMappedSource(mappedPath), password));
+            PdfSecurityInfo originalSecurityInfo = pipelineMetrics.time(PdfPipelineMetrics.Stage.SECURITY_EXTRACTION,
+                    () -> pdfReaderService.extractSecurityInfo(reader));
+
+            // 3. 回應時直接將重寫結果寫入輸出流，完成後清理暫存檔案並發布監控指標
+            Path uploadedPath = inputPath;
+            recording.detach();
+            return outputStream -> {
+                PdfPipelineMetrics.Scope scope = recording.bind();
+                try {
+                    workScheduler.run(uploadedBytes, reader.getNumberOfPages(), () -> processPdfRewrite(reader,
+                            pwd -> pdfReaderService.getPdfReader(pdfReaderService.openMappedSource(uploadedPath), pwd),
+                            password, outputStream, rewriteRequest, originalSecurityInfo, ProgressListener.NONE));
+                } catch (DocumentException e) {
+                    log.error("PDF 串流重寫失敗", e);
+                    throw new PdfProcessingException("PDF 串流重寫失敗: " + e.getMessage(), e);
+                } finally {
+                    scope.close();
+                    reader.close();
+                    deleteTempFile(uploadedPath);
+                    recording.close();
                 }
-            } catch (IOException e) {
-                log.warn("清理暫存檔案失敗", e);
-            }
+            };
+
+        } catch (IOException | DocumentException e) {
+            log.error("PDF 串流上傳失敗", e);
+            deleteTempFile(inputPath);
+            recording.close();
+            throw new PdfProcessingException("PDF 串流上傳失敗: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            deleteTempFile(inputPath);
+            recording.close();
+            throw e;
         }
     }
 
+    /**
+     * 刪除暫存檔案
+     */
+    private void deleteTempFile(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("清理暫存檔案失敗: {}", path, e);
+        }
+    }
+
+    /**
+     * 增量更新是否可直接複製原始檔案（見 {@link PdfMetadataAppender}）
+     * <p>
+     * 與 {@link #appendMetadataUpdate} 寫出相同的增量更新區段（Info 字典、XMP、xref），
+     * 但以 FileChannel.transferTo 複製原始內容，不經過 PdfStamper 的串流複製；
+     * 只處理輸出為檔案、未加密且使用傳統 xref 表的文件，其他文件仍由 PdfStamper 附加。
+     */
+    private boolean canCopyWithMetadataUpdate(PdfReader reader, PdfRewriteRequest request,
+                                              PdfSecurityInfo securityInfo) {
+        if (!metadataFastPath || !request.isIncrementalUpdate() || request.getInputPath() == null) {
+            return false;
+        }
+        Path input = Path.of(request.getInputPath()).toAbsolutePath().normalize();
+        Path output = Path.of(request.getOutputPath()).toAbsolutePath().normalize();
+        return !input.equals(output)
+                && canAppendMetadataUpdate(reader, request, securityInfo)
+                && PdfMetadataAppender.isSupported(reader);
+    }
+
+    /**
+     * 複製原始檔案並附加新的 Info 字典與 XMP metadata，不匯入頁面
+     */
+    private RewriteResult copyWithMetadataUpdate(PdfReader reader, PdfRewriteRequest request,
+                                                 PdfSecurityInfo securityInfo, ProgressListener progressListener)
+            throws IOException {
+
+        int totalPages = reader.getNumberOfPages();
+        log.info("以增量更新寫出 metadata（直接複製原始檔案），原 PDF 共有 {} 頁", totalPages);
+        pipelineMetrics.describe(PdfWriter.ENCRYPTION_NONE, totalPages);
+
+        progressListener.pagesCopied(0, totalPages);
+        // 預先配置原始大小加上附加的 Info 與 XMP
+        PdfFileOutput output = openFileOutput(request, reader.getFileLength() + METADATA_UPDATE_RESERVE);
+        try {
+            PdfMetadataAppender.copyWithInfo(reader, Path.of(request.getInputPath()), output.channel(),
+                    Map.of("Creator", REWRITE_CREATOR, "Producer", REWRITE_PRODUCER));
+            output.commit();
+        } finally {
+            output.abort();
+        }
+        progressListener.pagesCopied(totalPages, totalPages);
+
+        return new RewriteResult(securityInfo, null, 0L, REWRITE_MODE_INCREMENTAL);
+    }
+
     /**
      * 重寫 PDF 到檔案
      */
-    private void rewritePdfToFile(PdfReader reader, PdfRewriteRequest request,
-                                   PdfSecurityInfo securityInfo) throws IOException, DocumentException {
+    private RewriteResult rewritePdfToFile(PdfReader reader, PdfReaderSource segmentSource, String password,
+                                             PdfRewriteRequest request, PdfSecurityInfo securityInfo,
+                                             ProgressListener progressListener)
+            throws IOException, DocumentException {
 
-        try (FileOutputStream fos = new FileOutputStream(request.getOutputPath())) {
-            processPdfRewrite(reader, fos, request, securityInfo);
+        // 重寫後大小通常與原始檔案相近，以原始大小預先配置
+        PdfFileOutput output = openFileOutput(request, reader.getFileLength());
+        try {
+            RewriteResult result = processPdfRewrite(
+                    reader, segmentSource, password, output, request, securityInfo, progressListener);
+            output.commit();
+            return result;
+        } finally {
+            output.abort();
         }
     }
 
     /**
-     * 重寫 PDF 到位元組陣列
+     * 開啟 outputPath 的檔案輸出（寫入同目錄暫存檔，commit 時 atomic rename）
+     *
+     * @param expectedSize 預估的輸出大小（啟用預先配置時使用）
+     */
+    private PdfFileOutput openFileOutput(PdfRewriteRequest request, long expectedSize) throws IOException {
+        return PdfFileOutput.create(Path.of(request.getOutputPath()), (int) outputBufferSize.toBytes(),
+                outputPreallocate ? expectedSize : 0, outputSync);
+    }
+
+    /**
+     * 處理 PDF 重寫核心邏輯（循序複製頁面）
+     *
+     * 套件內可見，供效能測試（src/jmh）直接呼叫
+     *
+     * @return 重寫結果（新 PDF 的安全性資訊取自 writer 的設定狀態）
      */
-    private byte[] rewritePdfToBytes(PdfReader reader, PdfRewriteRequest request,
-                                      PdfSecurityInfo securityInfo) throws IOException, DocumentException {
+    RewriteResult processPdfRewrite(PdfReader reader, OutputStream outputStream,
+                                      PdfRewriteRequest request, PdfSecurityInfo securityInfo)
+            throws IOException, DocumentException {
 
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        processPdfRewrite(reader, baos, request, securityInfo);
-        return baos.toByteArray();
+        return processPdfRewrite(reader, null, null, outputStream, request, securityInfo, ProgressListener.NONE);
     }
 
     /**
      * 處理 PDF 重寫核心邏輯
+     * <p>
+     * 提供 segmentSource 且頁數達到 pdf-factory.rewrite.parallel.min-pages 時，改用平行分段複製；
+     * 加密文件一律循序複製（分段暫存檔不加密，不可將解密後的內容寫入磁碟）。
+     *
+     * @param segmentSource 分段複製時開啟獨立 PdfReader 的來源，應使用部分讀取模式（null 表示只能循序複製）
+     * @param password 開啟 segmentSource 使用的密碼
+     * @param progressListener 進度接收者
+     * @return 重寫結果（新 PDF 的安全性資訊取自 writer 的設定狀態）
+     */
+    private RewriteResult processPdfRewrite(PdfReader reader, PdfReaderSource segmentSource, String password,
+                                              OutputStream outputStream,
+                                              PdfRewriteRequest request, PdfSecurityInfo securityInfo,
+                                              ProgressListener progressListener)
+            throws IOException, DocumentException {
+
+        pipelineMetrics.rewriteStarted();
+        try {
+            return doProcessPdfRewrite(
+                    reader, segmentSource, password, outputStream, request, securityInfo, progressListener);
+        } finally {
+            pipelineMetrics.rewriteFinished();
+        }
+    }
+
+    /**
+     * 處理 PDF 重寫核心邏輯的實際處理
+     * <p>
+     * 監控指標：加密設定（含金鑰推導）記錄為 encryption 階段；各物件的加密在寫出時進行，計入 page-copy 階段。
      */
-    private void processPdfRewrite(PdfReader reader, java.io.OutputStream outputStream,
-                                   PdfRewriteRequest request, PdfSecurityInfo securityInfo)
+    private RewriteResult doProcessPdfRewrite(PdfReader reader, PdfReaderSource segmentSource, String password,
+                                              OutputStream outputStream,
+                                              PdfRewriteRequest request, PdfSecurityInfo securityInfo,
+                                              ProgressListener progressListener)
             throws IOException, DocumentException {
 
+        if (request.isIncrementalUpdate() && canAppendMetadataUpdate(reader, request, securityInfo)) {
+            return appendMetadataUpdate(reader, outputStream, securityInfo, progressListener);
+        }
+
         int totalPages = reader.getNumberOfPages();
         log.info("原 PDF 共有 {} 頁", totalPages);
+        boolean parallel = segmentSource != null && parallelMinPages > 0
+                && totalPages >= parallelMinPages && totalPages > segmentPages
+                && !securityInfo.isEncrypted();
 
         // 建立新文件（使用第一頁的尺寸）
         Rectangle pageSize = reader.getPageSize(1);
         Document document = new Document(pageSize);
 
-        // 建立 PdfCopy 以複製內容
-        PdfCopy copy = new PdfCopy(document, outputStream);
+        // 建立 PdfCopy 以複製內容（合併重複資源時改用 PdfSmartCopy，以內容雜湊比對相同的串流物件）
+        // 平行分段複製時各分段各自保存一份共用資源，合併時一律以 PdfSmartCopy 去除重複
+        boolean smartCopy = request.isDedupeResources() || parallel;
+        CompressionProfile compressionProfile = parseCompressionProfile(request.getCompressionProfile());
+        PdfStreamRecompressor recompressor = compressionProfile != null && compressionProfile.recompressFlate != null
+                ? new PdfStreamRecompressor(compressionProfile.level, compressionProfile.recompressFlate)
+                : null;
+
+        PdfCopy copy;
+        if (recompressor != null) {
+            copy = recompressor.createCopy(document, outputStream, smartCopy);
+        } else {
+            copy = smartCopy ? new PdfSmartCopy(document, outputStream) : new PdfCopy(document, outputStream);
+        }
+        copy.setPdfVersion(OUTPUT_PDF_VERSION);
+
+        // 套用壓縮設定（物件串流與 xref 串流、新串流的 deflate 等級）
+        if (compressionProfile != null) {
+            if (compressionProfile.fullCompression) {
+                copy.setFullCompression();
+            }
+            copy.setCompressionLevel(compressionProfile.level);
+            log.info("套用壓縮設定: {}", compressionProfile);
+        }
 
         // 設定 PDF metadata（移除 iText 字樣）
-        document.addCreator("PDF Rewriter Application");
-        document.addProducer("OpenPDF Library");
+        document.addCreator(REWRITE_CREATOR);
+        document.addProducer(REWRITE_PRODUCER);
         document.addTitle(getOriginalTitle(reader));
         document.addAuthor(getOriginalAuthor(reader));
         document.addSubject(getOriginalSubject(reader));
 
         // 套用安全性設定
-        if (request.isPreserveSecurity() && !request.isRemoveSecurity() && securityInfo.isEncrypted()) {
-            applySecuritySettings(copy, request, securityInfo);
+        int encryptionType = PdfWriter.ENCRYPTION_NONE;
+        if (willEncryptOutput(request, securityInfo)) {
+            encryptionType = pipelineMetrics.time(PdfPipelineMetrics.Stage.ENCRYPTION,
+                    () -> applySecuritySettings(copy, request, securityInfo));
         } else if (!request.isRemoveSecurity()) {
             log.info("未保留安全性設定或原 PDF 未加密");
         } else {
             log.info("已移除所有安全性設定");
         }
 
+        pipelineMetrics.describe(encryptionType, totalPages);
+
         // 開啟文件
         document.open();
 
         // 複製所有頁面
-        for (int i = 1; i <= totalPages; i++) {
-            PdfImportedPage page = copy.getImportedPage(reader, i);
-            copy.addPage(page);
-            log.debug("複製第 {}/{} 頁", i, totalPages);
+        long copyStart = System.nanoTime();
+        progressListener.pagesCopied(0, totalPages);
+        if (parallel) {
+            copyPagesInSegments(copy, segmentSource, password, totalPages, request.isDedupeResources(),
+                    progressListener);
+        } else {
+            for (int i = 1; i <= totalPages; i++) {
+                PdfImportedPage page = copy.getImportedPage(reader, i);
+                copy.addPage(page);
+                // 頁面已寫入輸出，部分讀取模式下釋放已解析的頁面物件
+                reader.releasePage(i);
+                progressListener.pagesCopied(i, totalPages);
+                log.debug("複製第 {}/{} 頁", i, totalPages);
+            }
         }
 
         document.close();
+        pipelineMetrics.record(PdfPipelineMetrics.Stage.PAGE_COPY, copyStart, 0);
         log.info("PDF 文件重寫完成，共 {} 頁", totalPages);
+
+        return new RewriteResult(
+                buildOutputSecurityInfo(copy, encryptionType, securityInfo.getPermissions()),
+                compressionProfile != null ? compressionProfile.name() : null,
+                recompressor != null ? recompressor.getElapsedMillis() : 0L,
+                REWRITE_MODE_FULL);
+    }
+
+    /**
+     * 是否只需更新 metadata，可改以增量更新寫出
+     * <p>
+     * 需要壓縮、合併資源或變更密碼時必須完整重寫；附加模式要求原始 xref 完整（未經修復）。
+     * 加密文件須以擁有者密碼開啟並保留原本的加密設定，增量更新沿用原加密字典與金鑰。
+     */
+    private boolean canAppendMetadataUpdate(PdfReader reader, PdfRewriteRequest request,
+                                            PdfSecurityInfo securityInfo) {
+        if (parseCompressionProfile(request.getCompressionProfile()) != null || request.isDedupeResources()) {
+            return false;
+        }
+        if (reader.isRebuilt()) {
+            log.info("原 PDF 的 xref 經過修復，改為完整重寫");
+            return false;
+        }
+        if (!securityInfo.isEncrypted()) {
+            return true;
+        }
+        return willEncryptOutput(request, securityInfo)
+                && request.getNewOwnerPassword() == null
+                && request.getNewUserPassword() == null
+                && reader.isOpenedWithFullPermissions();
+    }
+
+    /**
+     * 以增量更新寫出 metadata 變更（PdfStamper 附加模式）
+     * <p>
+     * 原始內容原樣複製，只在檔尾附加新的 Info 字典（Creator、Producer 替換，其他欄位保留）、
+     * 對應的 XMP metadata（優先讀取 XMP 的檢視器同樣看到新的值）與 xref 區段，
+     * 不匯入頁面也不重新加密；加密文件的新物件以原本的金鑰加密。
+     */
+    private RewriteResult appendMetadataUpdate(PdfReader reader, OutputStream outputStream,
+                                               PdfSecurityInfo securityInfo, ProgressListener progressListener)
+            throws IOException, DocumentException {
+
+        int totalPages = reader.getNumberOfPages();
+        log.info("以增量更新寫出 metadata，原 PDF 共有 {} 頁", totalPages);
+        PdfPipelineMetrics.Recording recording = pipelineMetrics.current();
+        if (recording != null) {
+            recording.encryption(securityInfo);
+            recording.pages(totalPages);
+        }
+
+        progressListener.pagesCopied(0, totalPages);
+        PdfStamper stamper = new PdfStamper(reader, outputStream, '\0', true);
+        Map<String, String> info = new HashMap<>();
+        info.put("Creator", REWRITE_CREATOR);
+        info.put("Producer", REWRITE_PRODUCER);
+        stamper.setInfoDictionary(info);
+
+        Map<String, String> xmpInfo = new HashMap<>(reader.getInfo());
+        xmpInfo.putAll(info);
+        xmpInfo.put("ModDate", new PdfDate().toString());
+        ByteArrayOutputStream xmp = new ByteArrayOutputStream();
+        try (XmpWriter writer = new XmpWriter(xmp, xmpInfo)) {
+            writer.setReadOnly();
+        }
+        stamper.setXmpMetadata(xmp.toByteArray());
+        stamper.close();
+        progressListener.pagesCopied(totalPages, totalPages);
+
+        return new RewriteResult(securityInfo, null, 0L, REWRITE_MODE_INCREMENTAL);
+    }
+
+    /**
+     * 解析壓縮設定字串
+     *
+     * @return 壓縮設定；未提供時回傳 null（沿用原本的複製行為）
+     * @throws PdfProcessingException 無法辨識的壓縮設定
+     */
+    private CompressionProfile parseCompressionProfile(String profile) {
+        if (profile == null || profile.isBlank()) {
+            return null;
+        }
+
+        return switch (profile.trim().toUpperCase()) {
+            case "FAST" -> CompressionProfile.FAST;
+            case "BALANCED" -> CompressionProfile.BALANCED;
+            case "MAX" -> CompressionProfile.MAX;
+            default -> throw new PdfProcessingException("不支援的壓縮設定: " + profile);
+        };
+    }
+
+    /**
+     * 平行分段複製頁面
+     * <p>
+     * 將文件切分為固定頁數的分段，在分段執行緒池上各自開啟 PdfReader 並將頁面複製到未加密的暫存分段檔；
+     * 目前執行緒依頁序逐一合併已完成的分段（後續分段同時在背景產生），由 copy 寫出單一的 xref 與加密結果。
+     */
+    private void copyPagesInSegments(PdfCopy copy, PdfReaderSource segmentSource, String password,
+                                     int totalPages, boolean dedupeResources, ProgressListener progressListener)
+            throws IOException, DocumentException {
+
+        int segmentCount = (totalPages + segmentPages - 1) / segmentPages;
+        log.info("平行分段複製頁面：{} 個分段，每段 {} 頁", segmentCount, segmentPages);
+
+        List<ForkJoinTask<Path>> segments = new ArrayList<>(segmentCount);
+        for (int start = 1; start <= totalPages; start += segmentPages) {
+            int first = start;
+            int last = Math.min(start + segmentPages - 1, totalPages);
+            segments.add(pdfSegmentPool.submit(() -> writeSegment(segmentSource, password, first, last, dedupeResources)));
+        }
+
+        boolean completed = false;
+        try {
+            int copied = 0;
+            for (ForkJoinTask<Path> task : segments) {
+                Path segmentPath = awaitSegment(task);
+                PdfReader segmentReader = pdfReaderService.getPdfReader(
+                        pdfReaderService.openMappedSource(segmentPath), null);
+                try {
+                    int pages = segmentReader.getNumberOfPages();
+                    for (int i = 1; i <= pages; i++) {
+                        copy.addPage(copy.getImportedPage(segmentReader, i));
+                        segmentReader.releasePage(i);
+                    }
+                    // 寫出此分段尚未輸出的物件，釋放對應表
+                    copy.freeReader(segmentReader);
+                    copied += pages;
+                    progressListener.pagesCopied(copied, totalPages);
+                    log.debug("已合併分段，累計 {}/{} 頁", copied, totalPages);
+                } finally {
+                    segmentReader.close();
+                    deleteTempFile(segmentPath);
+                }
+            }
+            completed = true;
+        } finally {
+            if (!completed) {
+                discardSegments(segments);
+            }
+        }
+    }
+
+    /**
+     * 取消尚未開始的分段，等待執行中的分段結束後刪除所有已產生的分段檔
+     */
+    private void discardSegments(List<ForkJoinTask<Path>> segments) {
+        segments.forEach(task -> task.cancel(false));
+        for (ForkJoinTask<Path> task : segments) {
+            if (task.isCancelled()) {
+                continue;
+            }
+            task.quietlyJoin();
+            if (!task.isCompletedAbnormally()) {
+                deleteTempFile(task.getRawResult());
+            }
+        }
+    }
+
+    /**
+     * 將指定頁面範圍複製到暫存分段檔
+     *
+     * @return 分段檔路徑
+     */
+    private Path writeSegment(PdfReaderSource segmentSource, String password,
+                              int firstPage, int lastPage, boolean dedupeResources)
+            throws IOException, DocumentException {
+
+        Path segmentPath = Files.createTempFile("pdf-factory-segment", ".pdf");
+        PdfReader reader = segmentSource.open(password);
+        try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(segmentPath))) {
+            Document document = new Document(reader.getPageSize(firstPage));
+            PdfCopy copy = dedupeResources ? new PdfSmartCopy(document, os) : new PdfCopy(document, os);
+            document.open();
+            for (int i = firstPage; i <= lastPage; i++) {
+                copy.addPage(copy.getImportedPage(reader, i));
+                reader.releasePage(i);
+            }
+            document.close();
+            return segmentPath;
+        } catch (IOException | RuntimeException e) {
+            deleteTempFile(segmentPath);
+            throw e;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * 等待分段完成並還原原始例外
+     */
+    private Path awaitSegment(ForkJoinTask<Path> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PdfProcessingException("平行分段複製被中斷", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new PdfProcessingException("分段複製失敗: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * 重寫結果是否需要加密（保留原始加密設定且原 PDF 有加密）
+     */
+    private boolean willEncryptOutput(PdfRewriteRequest request, PdfSecurityInfo securityInfo) {
+        return request.isPreserveSecurity() && !request.isRemoveSecurity() && securityInfo.isEncrypted();
+    }
+
+    /**
+     * 由 writer 已套用的設定建立新 PDF 的安全性資訊，取代重新讀取輸出檔
+     */
+    private PdfSecurityInfo buildOutputSecurityInfo(PdfCopy copy, int encryptionType, int permissions) {
+        boolean encrypted = encryptionType != PdfWriter.ENCRYPTION_NONE;
+
+        // 與 PdfEncryption 寫入 /P 時相同的保留位元處理（PDF 規範 7.6.3.2）
+        int writtenPermissions = -1;
+        if (encrypted) {
+            int reservedBits = (encryptionType & ENCRYPTION_MODE_MASK) == PdfWriter.STANDARD_ENCRYPTION_40
+                    ? 0xffffffc0 : 0xfffff0c0;
+            writtenPermissions = (permissions | reservedBits) & 0xfffffffc;
+        }
+
+        HashMap<String, String> info = new HashMap<>();
+        PdfDictionary infoDictionary = copy.getInfo();
+        for (PdfName key : infoDictionary.getKeys()) {
+            PdfObject value = infoDictionary.get(key);
+            if (value instanceof PdfString) {
+                info.put(PdfName.decodeName(key.toString()), ((PdfString) value).toUnicodeString());
+            }
+        }
+
+        return pdfReaderService.buildSecurityInfo(
+                encrypted, writtenPermissions, encryptionType,
+                PdfEncryptionEngine.isAes256(encryptionType) ? PdfEncryptionEngine.AES_256_PDF_VERSION : OUTPUT_PDF_VERSION,
+                info);
     }
 
     /**
      * 套用安全性設定到新 PDF
+     *
+     * @return 實際使用的加密類型
      */
-    private void applySecuritySettings(PdfCopy copy, PdfRewriteRequest request,
-                                       PdfSecurityInfo securityInfo) {
+    private int applySecuritySettings(PdfCopy copy, PdfRewriteRequest request,
+                                      PdfSecurityInfo securityInfo) {
 
         try {
             // 決定使用的密碼
@@ -264,11 +1134,14 @@ public class PdfRewriterService {
                     permissions,
                     encryptionType
             );
+            encryptionEngine.configure(copy, encryptionType);
 
             log.info("已套用安全性設定 - 加密: {}, 權限: {}",
                     securityInfo.getEncryptionAlgorithm(),
                     Integer.toBinaryString(permissions));
 
+            return encryptionType;
+
         } catch (DocumentException e) {
             log.error("套用安全性設定失敗", e);
             throw new PdfProcessingException("套用安全性設定失敗", e);
@@ -287,9 +1160,7 @@ public class PdfRewriterService {
         }
 
         if (level == 256 || (algorithm != null && algorithm.contains("256"))) {
-            // OpenPDF 1.3.34 可能不支援 256-bit，降級到 128-bit AES
-            log.warn("256-bit 加密可能不支援，降級至 128-bit AES");
-            return PdfWriter.ENCRYPTION_AES_128;
+            return PdfWriter.ENCRYPTION_AES_256_V3;
         } else if (level == 128 || (algorithm != null && algorithm.contains("128"))) {
             // 優先使用 AES 而非 RC4
             if (algorithm != null && algorithm.contains("AES")) {
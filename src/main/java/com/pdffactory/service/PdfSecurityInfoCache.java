@@ -0,0 +1,170 @@
+package com.pdffactory.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pdffactory.dto.PdfSecurityInfo;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+/**
+ * PDF 安全性資訊快取
+ * <p>
+ * 檔案來源以實際路徑、檔案大小與修改時間為鍵，記憶體來源以內容 SHA-256 摘要與長度為鍵；
+ * 兩者皆加上密碼指紋（以程序內隨機金鑰計算的 HMAC），不同密碼的查詢結果不會互相共用。
+ * 檔案來源不計算內容摘要：摘要需要讀取整個檔案，成本與表頭檢查相當甚至更高，快取便失去意義；
+ * 以相同路徑、相同大小且修改時間不變的方式替換內容時可能取得舊結果（最長為 TTL）。
+ * <p>
+ * DTO 為可變物件，寫入與取出時都複製一份，呼叫端修改回傳值不會影響快取內容。
+ */
+@Slf4j
+@Component
+public class PdfSecurityInfoCache {
+
+    /**
+     * 快取鍵
+     *
+     * @param source 來源識別（檔案實際路徑或內容摘要）
+     * @param size 內容大小
+     * @param lastModified 檔案修改時間（記憶體來源為 0）
+     * @param passwordFingerprint 密碼指紋
+     */
+    record Key(String source, long size, long lastModified, String passwordFingerprint) {
+    }
+
+    private final boolean enabled;
+    private final Cache<Key, PdfSecurityInfo> cache;
+    private final SecretKeySpec fingerprintKey;
+
+    public PdfSecurityInfoCache(
+            @Value("${pdf-factory.cache.security-info.enabled:true}") boolean enabled,
+            @Value("${pdf-factory.cache.security-info.max-size:10000}") long maxSize,
+            @Value("${pdf-factory.cache.security-info.ttl:10m}") Duration ttl,
+            MeterRegistry meterRegistry) {
+
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.fingerprintKey = new SecretKeySpec(secret, "HmacSHA256");
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "pdf.security-info");
+    }
+
+    /**
+     * 取得檔案的安全性資訊，未命中時呼叫 loader 讀取並寫入快取
+     *
+     * @param path PDF 檔案路徑
+     * @param password 密碼（可選）
+     * @param loader 實際讀取安全性資訊的函式
+     * @return PDF 安全性資訊
+     */
+    public PdfSecurityInfo get(Path path, String password, Supplier<PdfSecurityInfo> loader) {
+        Key key = enabled ? keyFor(path, password) : null;
+        if (key == null) {
+            return loader.get();
+        }
+        return copy(cache.get(key, k -> copy(loader.get())));
+    }
+
+    /**
+     * 取得記憶體中 PDF 的安全性資訊，未命中時呼叫 loader 讀取並寫入快取
+     *
+     * @param pdfBytes PDF 內容
+     * @param password 密碼（可選）
+     * @param loader 實際讀取安全性資訊的函式
+     * @return PDF 安全性資訊
+     */
+    public PdfSecurityInfo get(byte[] pdfBytes, String password, Supplier<PdfSecurityInfo> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        return copy(cache.get(keyFor(pdfBytes, password), k -> copy(loader.get())));
+    }
+
+    /**
+     * 將已知的安全性資訊寫入快取（例如重寫流程中已解析的原始檔與輸出檔）
+     *
+     * @param path PDF 檔案路徑
+     * @param password 開啟此檔案時使用的密碼
+     * @param securityInfo PDF 安全性資訊
+     */
+    public void put(Path path, String password, PdfSecurityInfo securityInfo) {
+        Key key = enabled ? keyFor(path, password) : null;
+        if (key != null) {
+            cache.put(key, copy(securityInfo));
+        }
+    }
+
+    private static PdfSecurityInfo copy(PdfSecurityInfo securityInfo) {
+        return securityInfo != null ? securityInfo.toBuilder().build() : null;
+    }
+
+    /**
+     * 建立檔案來源的快取鍵
+     *
+     * @return 快取鍵；無法取得檔案屬性時回傳 null（不使用快取）
+     */
+    private Key keyFor(Path path, String password) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return new Key(
+                    "file:" + path.toRealPath(),
+                    attributes.size(),
+                    attributes.lastModifiedTime().toMillis(),
+                    fingerprint(password));
+        } catch (IOException e) {
+            log.debug("無法取得檔案屬性，略過快取: {}", path, e);
+            return null;
+        }
+    }
+
+    /**
+     * 建立記憶體來源的快取鍵
+     */
+    private Key keyFor(byte[] pdfBytes, String password) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(pdfBytes);
+            return new Key("sha256:" + HexFormat.of().formatHex(digest), pdfBytes.length, 0L, fingerprint(password));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    /**
+     * 計算密碼指紋，不在快取中保存密碼本身
+     */
+    private String fingerprint(String password) {
+        if (password == null) {
+            return "";
+        }
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(fingerprintKey);
+            return HexFormat.of().formatHex(mac.doFinal(password.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 不可用", e);
+        }
+    }
+}
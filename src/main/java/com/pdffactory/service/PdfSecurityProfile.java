@@ -0,0 +1,21 @@
+package com.pdffactory.service;
+
+/**
+ * 已解析的安全性設定檔
+ * <p>
+ * 權限值與加密類型在建立時計算一次，套用到多份文件時直接重用，不需每份文件重新解析設定。
+ *
+ * @param name 設定檔名稱（單次套用的設定為 null）
+ * @param permissions 權限值（PdfWriter.ALLOW_* 的組合）
+ * @param encryptionType 加密類型（PdfWriter.STANDARD_ENCRYPTION_* / ENCRYPTION_AES_*）
+ * @param encryptionTypeName 加密類型名稱（RC4_40, RC4_128, AES_128, AES_256）
+ * @param userPassword 使用者密碼（可為 null）
+ * @param ownerPassword 擁有者密碼
+ */
+public record PdfSecurityProfile(String name,
+                                 int permissions,
+                                 int encryptionType,
+                                 String encryptionTypeName,
+                                 byte[] userPassword,
+                                 byte[] ownerPassword) {
+}
@@ -0,0 +1,47 @@
+package com.pdffactory.service;
+
+import com.pdffactory.exception.PdfProcessingException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 具名安全性設定檔登錄
+ * <p>
+ * 設定檔保存在記憶體中（含密碼），服務重新啟動後需重新註冊；同名註冊會覆蓋既有設定檔。
+ */
+@Slf4j
+@Component
+public class PdfSecurityProfileRegistry {
+
+    private final Map<String, PdfSecurityProfile> profiles = new ConcurrentHashMap<>();
+
+    /**
+     * 註冊設定檔
+     *
+     * @param profile 已解析的設定檔（名稱不可為空）
+     */
+    public void register(PdfSecurityProfile profile) {
+        if (profile.name() == null || profile.name().isBlank()) {
+            throw new PdfProcessingException("安全性設定檔名稱不可為空");
+        }
+        PdfSecurityProfile previous = profiles.put(profile.name(), profile);
+        log.info("{}安全性設定檔: {}", previous != null ? "更新" : "註冊", profile.name());
+    }
+
+    /**
+     * 取得設定檔
+     *
+     * @param name 設定檔名稱
+     * @return 設定檔
+     */
+    public PdfSecurityProfile get(String name) {
+        PdfSecurityProfile profile = name != null ? profiles.get(name) : null;
+        if (profile == null) {
+            throw new PdfProcessingException("找不到安全性設定檔: " + name);
+        }
+        return profile;
+    }
+}
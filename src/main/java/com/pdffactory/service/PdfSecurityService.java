@@ -5,6 +5,8 @@ import com.pdffactory.dto.PdfApplySecurityRequest;
 import com.pdffactory.dto.PdfApplySecurityResponse;
 import com.pdffactory.dto.PdfCreateSecuredRequest;
 import com.pdffactory.dto.PdfCreateSecuredResponse;
+import com.pdffactory.dto.PdfTemplateRequest;
+import com.pdffactory.dto.PdfTemplateResponse;
 import com.pdffactory.exception.PdfProcessingException;
 import com.lowagie.text.Document;
 import com.lowagie.text.DocumentException;
@@ -12,14 +14,27 @@ import com.lowagie.text.Paragraph;
 import com.lowagie.text.pdf.PdfReader;
 import com.lowagie.text.pdf.PdfStamper;
 import com.lowagie.text.pdf.PdfWriter;
+import com.lowagie.text.pdf.RandomAccessFileOrArray;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.commons.io.output.DeferredFileOutputStream;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * PDF 安全性服務
@@ -27,8 +42,81 @@ import java.util.Base64;
  */
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class PdfSecurityService {
 
+    /**
+     * Base64 套用安全性響應在 PDF 內容之前的部分（欄位順序與 PdfApplySecurityResponse 相同）
+     */
+    private static final byte[] BASE64_RESPONSE_PREFIX =
+            "{\"success\":true,\"message\":\"安全性設定套用成功\",\"pdfFileBase64\":\""
+                    .getBytes(StandardCharsets.UTF_8);
+
+    private final PdfWorkScheduler workScheduler;
+    private final PdfReaderService pdfReaderService;
+    private final PdfEncryptionEngine encryptionEngine;
+    private final PdfSecurityProfileRegistry profileRegistry;
+    private final PdfTemplateService templateService;
+    private final PdfFontCache fontCache;
+    private final PdfPipelineMetrics pipelineMetrics;
+
+    /**
+     * Base64 套用安全性的加密結果超過此大小時暫存於檔案，否則保留在記憶體
+     */
+    @Value("${pdf-factory.upload.temp-file-threshold:16MB}")
+    private DataSize spoolThreshold;
+
+    /**
+     * 解析安全性設定（計算權限值與加密類型）
+     *
+     * @param name 設定檔名稱（單次套用時為 null）
+     * @param settings 安全性設定 DTO
+     * @return 已解析的設定檔
+     */
+    public PdfSecurityProfile toProfile(String name, PdfSecuritySettingsDTO settings) {
+        byte[] userPwd = settings.getUserPassword() != null
+                ? settings.getUserPassword().getBytes()
+                : null;
+        byte[] ownerPwd = settings.getOwnerPassword() != null
+                ? settings.getOwnerPassword().getBytes()
+                : null;
+
+        if (ownerPwd == null || ownerPwd.length == 0) {
+            throw new PdfProcessingException("擁有者密碼不可為空");
+        }
+
+        return new PdfSecurityProfile(
+                name,
+                calculatePermissions(settings),
+                getEncryptionType(settings.getEncryptionType()),
+                settings.getEncryptionType(),
+                userPwd,
+                ownerPwd);
+    }
+
+    /**
+     * 註冊具名安全性設定檔，之後可用名稱套用到多份文件
+     *
+     * @param name 設定檔名稱
+     * @param settings 安全性設定 DTO
+     * @return 已註冊的設定檔
+     */
+    public PdfSecurityProfile registerProfile(String name, PdfSecuritySettingsDTO settings) {
+        PdfSecurityProfile profile = toProfile(name, settings);
+        profileRegistry.register(profile);
+        return profile;
+    }
+
+    /**
+     * 取得已註冊的安全性設定檔
+     *
+     * @param name 設定檔名稱
+     * @return 設定檔
+     */
+    public PdfSecurityProfile getProfile(String name) {
+        return profileRegistry.get(name);
+    }
+
     /**
      * 套用安全性設定到現有 PDF
      *
@@ -40,44 +128,165 @@ public class PdfSecurityService {
                                         PdfSecuritySettingsDTO settings)
             throws IOException, DocumentException {
 
-        log.info("開始套用安全性設定到現有 PDF");
-
+        PdfSecurityProfile profile = toProfile(null, settings);
         PdfReader reader = new PdfReader(inputPdf);
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        PdfStamper stamper = new PdfStamper(reader, outputStream);
+        workScheduler.run(reader.getFileLength(), reader.getNumberOfPages(),
+                () -> doApplySecurity(reader, profile, outputStream));
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * 套用安全性設定到現有 PDF，加密結果直接寫入輸出流
+     * <p>
+     * 來源以部分讀取模式開啟，輸出不經過中間緩衝區，可直接寫入 HTTP 回應或檔案。
+     * 來源會在處理完成後關閉；outputStream 不會被關閉。
+     *
+     * @param source 原始 PDF 來源（例如記憶體映射檔案或位元組陣列）
+     * @param settings 安全性設定 DTO
+     * @param outputStream 加密結果的輸出流
+     */
+    public void applySecuritySettings(RandomAccessFileOrArray source,
+                                      PdfSecuritySettingsDTO settings,
+                                      OutputStream outputStream)
+            throws IOException, DocumentException {
 
-        // 計算權限
-        int permissions = calculatePermissions(settings);
+        applyProfile(source, toProfile(null, settings), outputStream);
+    }
 
-        // 取得加密類型
-        int encryptionType = getEncryptionType(settings.getEncryptionType());
+    /**
+     * 套用已解析的安全性設定檔到現有 PDF，加密結果直接寫入輸出流
+     * <p>
+     * 來源會在處理完成後關閉；outputStream 不會被關閉。
+     *
+     * @param source 原始 PDF 來源
+     * @param profile 安全性設定檔
+     * @param outputStream 加密結果的輸出流
+     */
+    public void applyProfile(RandomAccessFileOrArray source,
+                             PdfSecurityProfile profile,
+                             OutputStream outputStream)
+            throws IOException, DocumentException {
 
-        // 設定加密
-        byte[] userPwd = settings.getUserPassword() != null
-                ? settings.getUserPassword().getBytes()
-                : null;
-        byte[] ownerPwd = settings.getOwnerPassword() != null
-                ? settings.getOwnerPassword().getBytes()
-                : null;
+        PdfReader reader = pipelineMetrics.time(PdfPipelineMetrics.Stage.READER_OPEN,
+                () -> pdfReaderService.getPdfReader(source, null));
+        workScheduler.run(reader.getFileLength(), reader.getNumberOfPages(),
+                () -> doApplySecurity(reader, profile, outputStream));
+    }
 
-        if (ownerPwd == null || ownerPwd.length == 0) {
-            throw new PdfProcessingException("擁有者密碼不可為空");
+    /**
+     * 套用安全性設定的實際處理（加密運算），完成後關閉 reader
+     * <p>
+     * 監控指標：整個 stamper 寫出過程記錄為 encryption 階段。
+     */
+    private Void doApplySecurity(PdfReader reader,
+                                 PdfSecurityProfile profile,
+                                 OutputStream outputStream)
+            throws IOException, DocumentException {
+
+        log.info("開始套用安全性設定到現有 PDF");
+
+        pipelineMetrics.describe(profile.encryptionType(), reader.getNumberOfPages());
+        long start = System.nanoTime();
+        try {
+            // PdfStamper 關閉時會一併關閉輸出流，由呼叫端負責關閉
+            PdfStamper stamper = new PdfStamper(reader, CloseShieldOutputStream.wrap(outputStream));
+            applySecurityToStamper(stamper, profile);
+
+            log.info("安全性設定已套用 - 加密類型: {}, 權限: {}",
+                    profile.encryptionTypeName(), Integer.toBinaryString(profile.permissions()));
+
+            stamper.close();
+            pipelineMetrics.record(PdfPipelineMetrics.Stage.ENCRYPTION, start, 0);
+            return null;
+        } finally {
+            reader.close();
         }
+    }
 
+    /**
+     * 設定 stamper 的加密（必須在寫出內容之前呼叫）
+     */
+    private void applySecurityToStamper(PdfStamper stamper, PdfSecurityProfile profile) throws DocumentException {
         stamper.setEncryption(
-            userPwd,           // 使用者密碼
-            ownerPwd,          // 擁有者密碼
-            permissions,       // 權限設定
-            encryptionType     // 加密類型
+            profile.userPassword(),    // 使用者密碼
+            profile.ownerPassword(),   // 擁有者密碼
+            profile.permissions(),     // 權限設定
+            profile.encryptionType()   // 加密類型
         );
+        encryptionEngine.configure(stamper.getWriter(), profile.encryptionType());
+    }
 
-        log.info("安全性設定已套用 - 加密類型: {}, 權限: {}",
-                settings.getEncryptionType(), Integer.toBinaryString(permissions));
+    /**
+     * 套用安全性設定到上傳的 PDF（串流二進位內容）
+     * <p>
+     * 上傳內容以固定大小緩衝區寫入暫存檔並以記憶體映射方式讀取，加密結果直接串流寫入回應，
+     * 不在記憶體中保留完整的輸入或輸出副本。設定錯誤或檔案損毀會在開始回應前拋出例外。
+     *
+     * @param pdfStream 原始 PDF 輸入流
+     * @param settings 安全性設定 DTO
+     * @return 寫出加密結果的串流回應內容
+     */
+    public StreamingResponseBody applySecurityToPdfStream(InputStream pdfStream,
+                                                          PdfSecuritySettingsDTO settings) {
+        PdfSecurityProfile profile = toProfile(null, settings);
 
-        stamper.close();
-        reader.close();
+        Path inputPath = null;
+        PdfPipelineMetrics.Recording recording = pipelineMetrics.start("apply-security/stream");
+        try {
+            inputPath = Files.createTempFile("pdf-factory", ".pdf");
+            long writeStart = System.nanoTime();
+            long uploadedBytes = Files.copy(pdfStream, inputPath, StandardCopyOption.REPLACE_EXISTING);
+            pipelineMetrics.record(PdfPipelineMetrics.Stage.TEMP_FILE_WRITE, writeStart, uploadedBytes);
+            recording.inFlight(uploadedBytes);
+            log.debug("已接收上傳內容 {} bytes", uploadedBytes);
+
+            Path mappedPath = inputPath;
+            PdfReader reader = pipelineMetrics.time(PdfPipelineMetrics.Stage.READER_OPEN,
+                    () -> pdfReaderService.getPdfReader(pdfReaderService.openMappedSource(mappedPath), null));
+
+            Path uploadedPath = inputPath;
+            recording.detach();
+            return outputStream -> {
+                PdfPipelineMetrics.Scope scope = recording.bind();
+                try {
+                    workScheduler.run(uploadedBytes, reader.getNumberOfPages(),
+                            () -> doApplySecurity(reader, profile, outputStream));
+                } catch (DocumentException e) {
+                    log.error("串流套用安全性設定失敗", e);
+                    throw new PdfProcessingException("串流套用安全性設定失敗: " + e.getMessage(), e);
+                } finally {
+                    scope.close();
+                    reader.close();
+                    deleteTempFile(uploadedPath);
+                    recording.close();
+                }
+            };
+
+        } catch (IOException | DocumentException e) {
+            log.error("PDF 串流上傳失敗", e);
+            deleteTempFile(inputPath);
+            recording.close();
+            throw new PdfProcessingException("PDF 串流上傳失敗: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            deleteTempFile(inputPath);
+            recording.close();
+            throw e;
+        }
+    }
 
-        return outputStream.toByteArray();
+    /**
+     * 刪除暫存檔案
+     */
+    private void deleteTempFile(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("清理暫存檔案失敗: {}", path, e);
+        }
     }
 
     /**
@@ -92,24 +301,13 @@ public class PdfSecurityService {
 
         log.info("建立新 PDF 並套用安全性設定");
 
-        int permissions = calculatePermissions(settings);
-        int encryptionType = getEncryptionType(settings.getEncryptionType());
-
-        byte[] userPwd = settings.getUserPassword() != null
-                ? settings.getUserPassword().getBytes()
-                : null;
-        byte[] ownerPwd = settings.getOwnerPassword() != null
-                ? settings.getOwnerPassword().getBytes()
-                : null;
-
-        if (ownerPwd == null || ownerPwd.length == 0) {
-            throw new PdfProcessingException("擁有者密碼不可為空");
-        }
-
-        writer.setEncryption(userPwd, ownerPwd, permissions, encryptionType);
+        PdfSecurityProfile profile = toProfile(null, settings);
+        writer.setEncryption(profile.userPassword(), profile.ownerPassword(),
+                profile.permissions(), profile.encryptionType());
+        encryptionEngine.configure(writer, profile.encryptionType());
 
         log.info("安全性設定已套用 - 加密類型: {}, 權限: {}",
-                settings.getEncryptionType(), Integer.toBinaryString(permissions));
+                profile.encryptionTypeName(), Integer.toBinaryString(profile.permissions()));
     }
 
     /**
@@ -125,8 +323,41 @@ public class PdfSecurityService {
                                    String content)
             throws DocumentException, IOException {
 
+        return createSecuredPdf(settings, title, content, null);
+    }
+
+    /**
+     * 建立範例 PDF 並套用安全性設定
+     *
+     * @param settings 安全性設定 DTO
+     * @param title PDF 標題
+     * @param content PDF 內容
+     * @param fontName 內容字型（見 {@link PdfFontCache}，null 時使用預設字型）
+     * @return 加密後的 PDF byte 陣列
+     */
+    public byte[] createSecuredPdf(PdfSecuritySettingsDTO settings,
+                                   String title,
+                                   String content,
+                                   String fontName)
+            throws DocumentException, IOException {
+
+        // 內容長度作為文件大小的估計（單頁起算）
+        return workScheduler.run(content != null ? content.length() : 0, 1,
+                () -> doCreateSecuredPdf(settings, title, content, fontName));
+    }
+
+    /**
+     * 建立安全 PDF 的實際處理（產生內容並加密），監控指標記錄為 encryption 階段
+     */
+    private byte[] doCreateSecuredPdf(PdfSecuritySettingsDTO settings,
+                                      String title,
+                                      String content,
+                                      String fontName)
+            throws DocumentException, IOException {
+
         log.info("建立新的安全 PDF - 標題: {}", title);
 
+        long start = System.nanoTime();
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         Document document = new Document();
         PdfWriter writer = PdfWriter.getInstance(document, baos);
@@ -141,29 +372,126 @@ public class PdfSecurityService {
 
         // 開啟文件並加入內容
         document.open();
-        document.add(new Paragraph(content != null ? content : "This is a secured PDF document."));
+        document.add(new Paragraph(content != null ? content : "This is a secured PDF document.",
+                fontCache.getFont(fontName, 12)));
+        pipelineMetrics.describe(getEncryptionType(settings.getEncryptionType()), writer.getPageNumber());
         document.close();
+        pipelineMetrics.record(PdfPipelineMetrics.Stage.ENCRYPTION, start, 0);
 
         log.info("安全 PDF 建立完成,大小: {} bytes", baos.size());
 
         return baos.toByteArray();
     }
 
+    /**
+     * 以已註冊的範本建立安全 PDF
+     * <p>
+     * 範本底稿與欄位字型已於註冊時解析，每份文件只複製已解析的底稿、蓋印變數欄位並加密。
+     *
+     * @param settings 安全性設定 DTO
+     * @param templateName 範本名稱
+     * @param title PDF 標題
+     * @param values 變數欄位值（欄位名稱 → 文字）
+     * @return 加密後的 PDF byte 陣列
+     */
+    public byte[] createSecuredPdfFromTemplate(PdfSecuritySettingsDTO settings,
+                                               String templateName,
+                                               String title,
+                                               Map<String, String> values)
+            throws DocumentException, IOException {
+
+        PdfSecurityProfile profile = toProfile(null, settings);
+        PdfDocumentTemplate template = templateService.get(templateName);
+        return workScheduler.run(template.getFileLength(), template.getPageCount(),
+                () -> doCreateSecuredPdfFromTemplate(template, profile, title, values));
+    }
+
+    /**
+     * 以範本建立安全 PDF 的實際處理（蓋印欄位並加密），監控指標記錄為 encryption 階段
+     */
+    private byte[] doCreateSecuredPdfFromTemplate(PdfDocumentTemplate template,
+                                                  PdfSecurityProfile profile,
+                                                  String title,
+                                                  Map<String, String> values)
+            throws DocumentException, IOException {
+
+        pipelineMetrics.describe(profile.encryptionType(), template.getPageCount());
+        long start = System.nanoTime();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(template.getFileLength() + 4096);
+        PdfReader reader = template.newReader();
+        try {
+            PdfStamper stamper = new PdfStamper(reader, baos);
+            applySecurityToStamper(stamper, profile);
+
+            Map<String, String> info = new HashMap<>();
+            info.put("Title", title != null ? title : "Secured PDF Document");
+            info.put("Creator", "PDF Security Service");
+            stamper.setInfoDictionary(info);
+
+            template.stamp(stamper, values);
+            stamper.close();
+        } finally {
+            reader.close();
+        }
+        pipelineMetrics.record(PdfPipelineMetrics.Stage.ENCRYPTION, start, 0);
+
+        log.debug("範本 {} 產生安全 PDF 完成，大小: {} bytes", template.getName(), baos.size());
+
+        return baos.toByteArray();
+    }
+
+    /**
+     * 註冊 PDF 範本
+     *
+     * @param request 範本註冊請求
+     * @return 範本註冊響應
+     */
+    public PdfTemplateResponse registerTemplate(PdfTemplateRequest request) {
+        try {
+            PdfDocumentTemplate template = templateService.register(request);
+
+            return PdfTemplateResponse.builder()
+                    .success(true)
+                    .message("PDF 範本註冊成功")
+                    .name(template.getName())
+                    .pageCount(template.getPageCount())
+                    .fields(template.getFieldNames())
+                    .build();
+
+        } catch (Exception e) {
+            log.error("註冊 PDF 範本失敗", e);
+            return PdfTemplateResponse.builder()
+                    .success(false)
+                    .message("註冊 PDF 範本失敗: " + e.getMessage())
+                    .name(request.getName())
+                    .build();
+        }
+    }
+
     /**
      * 套用安全性設定到 PDF（處理 Base64 編碼）
+     * <p>
+     * 加密在開始回應前完成，結果暫存於記憶體（超過 {@code pdf-factory.upload.temp-file-threshold} 時寫入暫存檔），
+     * 回應時再以 Base64 編碼直接寫入 JSON（欄位與 {@link PdfApplySecurityResponse} 相同），不保留 Base64 字串的完整副本。
+     * 設定錯誤、密碼錯誤、檔案損毀或加密失敗都會在開始回應前拋出例外，不會送出宣告成功卻被截斷的響應。
      *
      * @param request 套用安全性請求
-     * @return 套用安全性響應
+     * @return 寫出 JSON 響應的串流回應內容
      */
-    public PdfApplySecurityResponse applySecurityToBase64Pdf(PdfApplySecurityRequest request) {
+    public StreamingResponseBody applySecurityToBase64Pdf(PdfApplySecurityRequest request) {
+        PdfPipelineMetrics.Recording recording = pipelineMetrics.start("apply-security");
+        DeferredFileOutputStream spool = null;
         try {
             log.info("收到套用安全性設定請求: {}", request.getFileName());
 
             // 1. 解碼 Base64
+            long decodeStart = System.nanoTime();
             byte[] pdfBytes = Base64.getDecoder().decode(request.getPdfFileBase64());
+            pipelineMetrics.record(PdfPipelineMetrics.Stage.BASE64_DECODE, decodeStart, pdfBytes.length);
+            recording.inFlight(pdfBytes.length);
 
-            // 2. 建立安全性設定 DTO
-            PdfSecuritySettingsDTO settings = PdfSecuritySettingsDTO.builder()
+            // 2. 建立安全性設定
+            PdfSecurityProfile profile = toProfile(null, PdfSecuritySettingsDTO.builder()
                     .allowPrinting(request.getAllowPrinting())
                     .allowHighQualityPrinting(request.getAllowHighQualityPrinting())
                     .allowAssembly(request.getAllowAssembly())
@@ -175,27 +503,69 @@ public class PdfSecurityService {
                     .userPassword(request.getUserPassword())
                     .ownerPassword(request.getOwnerPassword())
                     .encryptionType(request.getEncryptionType())
-                    .build();
-
-            // 3. 套用安全性設定
-            byte[] result = applySecuritySettings(new ByteArrayInputStream(pdfBytes), settings);
-
-            // 4. 編碼為 Base64
-            String base64Result = Base64.getEncoder().encodeToString(result);
-
-            return PdfApplySecurityResponse.builder()
-                    .success(true)
-                    .message("安全性設定套用成功")
-                    .pdfFileBase64(base64Result)
-                    .fileSize((long) result.length)
-                    .build();
+                    .build());
+
+            // 3. 開始回應前開啟 PDF，檔案損毀時仍可返回錯誤響應
+            PdfReader reader = pipelineMetrics.time(PdfPipelineMetrics.Stage.READER_OPEN,
+                    () -> pdfReaderService.getPdfReader(new RandomAccessFileOrArray(pdfBytes), null));
+
+            // 4. 開始回應前先完成加密（結果超過門檻時寫入暫存檔），加密失敗時仍可返回錯誤響應
+            spool = DeferredFileOutputStream.builder()
+                    .setThreshold((int) Math.min(Integer.MAX_VALUE, spoolThreshold.toBytes()))
+                    .setPrefix("pdf-factory")
+                    .setSuffix(".pdf")
+                    .get();
+            DeferredFileOutputStream encrypted = spool;
+            try {
+                workScheduler.run(reader.getFileLength(), reader.getNumberOfPages(),
+                        () -> doApplySecurity(reader, profile, encrypted));
+            } finally {
+                encrypted.close();
+            }
 
-        } catch (Exception e) {
+            // 5. 加密結果以 Base64 編碼寫入回應
+            recording.detach();
+            return outputStream -> {
+                PdfPipelineMetrics.Scope scope = recording.bind();
+                try {
+                    long encodeStart = System.nanoTime();
+                    outputStream.write(BASE64_RESPONSE_PREFIX);
+                    try (OutputStream encoder = Base64.getEncoder().wrap(CloseShieldOutputStream.wrap(outputStream))) {
+                        encrypted.writeTo(encoder);
+                    }
+                    outputStream.write(("\",\"fileSize\":" + encrypted.getByteCount() + "}")
+                            .getBytes(StandardCharsets.US_ASCII));
+                    pipelineMetrics.record(PdfPipelineMetrics.Stage.OUTPUT_ENCODE, encodeStart, encrypted.getByteCount());
+                } finally {
+                    scope.close();
+                    deleteSpool(encrypted);
+                    recording.close();
+                }
+            };
+
+        } catch (IOException | DocumentException e) {
             log.error("套用安全性設定失敗", e);
-            return PdfApplySecurityResponse.builder()
-                    .success(false)
-                    .message("套用安全性設定失敗: " + e.getMessage())
-                    .build();
+            deleteSpool(spool);
+            recording.close();
+            throw new PdfProcessingException("套用安全性設定失敗: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            deleteSpool(spool);
+            recording.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 刪除加密結果的暫存檔（結果保留在記憶體時不做任何事）
+     */
+    private void deleteSpool(DeferredFileOutputStream spool) {
+        if (spool == null || spool.isInMemory()) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(spool.getPath());
+        } catch (IOException e) {
+            log.warn("刪除暫存檔案失敗: {}", spool.getPath(), e);
         }
     }
 
@@ -206,6 +576,7 @@ public class PdfSecurityService {
      * @return 建立安全 PDF 響應
      */
     public PdfCreateSecuredResponse createSecuredPdfBase64(PdfCreateSecuredRequest request) {
+        PdfPipelineMetrics.Recording recording = pipelineMetrics.start("create-secured");
         try {
             log.info("建立新的安全 PDF - 標題: {}, 加密類型: {}",
                     request.getTitle(), request.getEncryptionType());
@@ -225,11 +596,16 @@ public class PdfSecurityService {
                     .encryptionType(request.getEncryptionType())
                     .build();
 
-            // 2. 建立安全 PDF
-            byte[] result = createSecuredPdf(settings, request.getTitle(), request.getContent());
+            // 2. 建立安全 PDF（指定範本時以範本產生）
+            byte[] result = request.getTemplateName() != null
+                    ? createSecuredPdfFromTemplate(settings, request.getTemplateName(),
+                            request.getTitle(), request.getFields())
+                    : createSecuredPdf(settings, request.getTitle(), request.getContent(), request.getFontName());
 
             // 3. 編碼為 Base64
+            long encodeStart = System.nanoTime();
             String base64Result = Base64.getEncoder().encodeToString(result);
+            pipelineMetrics.record(PdfPipelineMetrics.Stage.OUTPUT_ENCODE, encodeStart, result.length);
 
             return PdfCreateSecuredResponse.builder()
                     .success(true)
@@ -244,6 +620,8 @@ public class PdfSecurityService {
                     .success(false)
                     .message("建立安全 PDF 失敗: " + e.getMessage())
                     .build();
+        } finally {
+            recording.close();
         }
     }
 
@@ -308,11 +686,7 @@ public class PdfSecurityService {
             case "RC4_40" -> PdfWriter.STANDARD_ENCRYPTION_40;
             case "RC4_128" -> PdfWriter.STANDARD_ENCRYPTION_128;
             case "AES_128" -> PdfWriter.ENCRYPTION_AES_128;
-            case "AES_256" -> {
-                // OpenPDF 1.3.34 不支援 AES_256，降級至 AES_128
-                log.warn("OpenPDF 1.3.34 不支援 AES_256，降級至 AES_128");
-                yield PdfWriter.ENCRYPTION_AES_128;
-            }
+            case "AES_256" -> PdfWriter.ENCRYPTION_AES_256_V3;
             default -> PdfWriter.STANDARD_ENCRYPTION_128;
         };
     }
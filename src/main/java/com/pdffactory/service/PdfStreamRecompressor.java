@@ -0,0 +1,135 @@
+package com.pdffactory.service;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.pdf.BadPdfFormatException;
+import com.lowagie.text.pdf.PRStream;
+import com.lowagie.text.pdf.PdfArray;
+import com.lowagie.text.pdf.PdfCopy;
+import com.lowagie.text.pdf.PdfName;
+import com.lowagie.text.pdf.PdfObject;
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.PdfSmartCopy;
+import com.lowagie.text.pdf.PdfStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * 重寫時重新壓縮串流
+ * <p>
+ * 建立的 PdfCopy 在複製每個串流時，依設定將未壓縮（或僅以 FlateDecode 壓縮）的串流以指定的 deflate 等級重新壓縮；
+ * 其他濾鏡（DCTDecode、JBIG2Decode 等）與 XMP metadata 串流保持原樣，重新壓縮後沒有變小時也保留原始內容。
+ * 只修改輸出端的串流副本，不影響來源 PdfReader。
+ */
+final class PdfStreamRecompressor {
+
+    private final int level;
+    private final boolean recompressFlate;
+    private long elapsedNanos;
+
+    /**
+     * @param level deflate 壓縮等級
+     * @param recompressFlate 是否一併重新壓縮已使用 FlateDecode 的串流（false 時只壓縮未壓縮的串流）
+     */
+    PdfStreamRecompressor(int level, boolean recompressFlate) {
+        this.level = level;
+        this.recompressFlate = recompressFlate;
+    }
+
+    /**
+     * 建立複製時重新壓縮串流的 PdfCopy
+     *
+     * @param smart 是否使用 PdfSmartCopy（合併重複資源）
+     */
+    PdfCopy createCopy(Document document, OutputStream outputStream, boolean smart) throws DocumentException {
+        return smart ? new RecompressingSmartCopy(document, outputStream) : new RecompressingCopy(document, outputStream);
+    }
+
+    /**
+     * 重新壓縮串流累計耗時（毫秒）
+     */
+    long getElapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+
+    /**
+     * 重新壓縮單一串流
+     *
+     * @param source 來源串流（用於讀取原始內容與濾鏡）
+     * @param copied 輸出端的串流副本
+     */
+    private void recompress(PRStream source, PdfStream copied) throws IOException {
+        if (!(copied instanceof PRStream stream) || PdfName.METADATA.equals(source.get(PdfName.TYPE))) {
+            return;
+        }
+
+        PdfObject filter = PdfReader.getPdfObjectRelease(source.get(PdfName.FILTER));
+        boolean flate = PdfName.FLATEDECODE.equals(filter)
+                || (filter instanceof PdfArray filters && filters.size() == 1
+                    && PdfName.FLATEDECODE.equals(filters.getPdfObject(0)));
+        if (filter != null && !(flate && recompressFlate)) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            int originalLength = source.getLength();
+            byte[] data = flate ? PdfReader.getStreamBytes(source) : PdfReader.getStreamBytesRaw(source);
+
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(32, originalLength));
+            Deflater deflater = new Deflater(level);
+            try (DeflaterOutputStream deflaterStream = new DeflaterOutputStream(compressed, deflater)) {
+                deflaterStream.write(data);
+            } finally {
+                deflater.end();
+            }
+            if (compressed.size() >= originalLength) {
+                return;
+            }
+
+            stream.setData(compressed.toByteArray(), false);
+            stream.put(PdfName.FILTER, PdfName.FLATEDECODE);
+            stream.remove(PdfName.DECODEPARMS);
+        } finally {
+            elapsedNanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * 複製時重新壓縮串流的 PdfCopy
+     */
+    private final class RecompressingCopy extends PdfCopy {
+
+        RecompressingCopy(Document document, OutputStream outputStream) throws DocumentException {
+            super(document, outputStream);
+        }
+
+        @Override
+        protected PdfStream copyStream(PRStream in) throws IOException, BadPdfFormatException {
+            PdfStream copied = super.copyStream(in);
+            recompress(in, copied);
+            return copied;
+        }
+    }
+
+    /**
+     * 複製時重新壓縮串流的 PdfSmartCopy（重複資源比對仍以原始串流內容為準）
+     */
+    private final class RecompressingSmartCopy extends PdfSmartCopy {
+
+        RecompressingSmartCopy(Document document, OutputStream outputStream) throws DocumentException {
+            super(document, outputStream);
+        }
+
+        @Override
+        protected PdfStream copyStream(PRStream in) throws IOException, BadPdfFormatException {
+            PdfStream copied = super.copyStream(in);
+            recompress(in, copied);
+            return copied;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.pdffactory.service;
+
+import com.pdffactory.dto.PdfTemplateFieldDTO;
+import com.pdffactory.dto.PdfTemplateRequest;
+import com.pdffactory.exception.PdfProcessingException;
+import com.lowagie.text.Document;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.PageSize;
+import com.lowagie.text.Rectangle;
+import com.lowagie.text.pdf.AcroFields;
+import com.lowagie.text.pdf.PdfContentByte;
+import com.lowagie.text.pdf.PdfName;
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.PdfStamper;
+import com.lowagie.text.pdf.PdfWriter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * PDF 範本服務
+ * <p>
+ * 註冊時解析底稿一次：表單文字欄位的位置轉為變數欄位後將表單平面化，
+ * 欄位字型取自 {@link PdfFontCache}（所有範本與文件共用）。範本保存在記憶體中，服務重新啟動後需重新註冊。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PdfTemplateService {
+
+    private final PdfFontCache fontCache;
+
+    private final Map<String, PdfDocumentTemplate> templates = new ConcurrentHashMap<>();
+
+    /**
+     * 註冊範本（同名註冊會覆蓋既有範本）
+     *
+     * @param request 範本註冊請求
+     * @return 已註冊的範本
+     */
+    public PdfDocumentTemplate register(PdfTemplateRequest request) throws IOException, DocumentException {
+        String name = request.getName();
+        if (name == null || name.isBlank()) {
+            throw new PdfProcessingException("範本名稱不可為空");
+        }
+
+        byte[] basePdf = request.getPdfFileBase64() != null
+                ? Base64.getDecoder().decode(request.getPdfFileBase64())
+                : createBlankPage(request.getPageSize());
+
+        Map<String, PdfTemplateFieldDTO> fieldDefinitions = new LinkedHashMap<>();
+        List<String> formFields;
+        byte[] masterPdf;
+        PdfReader source = new PdfReader(basePdf);
+        try {
+            if (source.isEncrypted()) {
+                throw new PdfProcessingException("範本 PDF 不可加密");
+            }
+            formFields = readFormFields(source, fieldDefinitions);
+            masterPdf = formFields.isEmpty() ? basePdf : flatten(source);
+        } finally {
+            source.close();
+        }
+
+        if (request.getFields() != null) {
+            for (PdfTemplateFieldDTO field : request.getFields()) {
+                fieldDefinitions.put(field.getName(), field);
+            }
+        }
+
+        PdfReader master = new PdfReader(masterPdf);
+        if (!formFields.isEmpty()) {
+            // 平面化後只剩下沒有欄位的 /AcroForm（預設資源），不需複製到每份輸出
+            master.getCatalog().remove(PdfName.ACROFORM);
+        }
+        List<PdfDocumentTemplate.Field> fields = new ArrayList<>(fieldDefinitions.size());
+        for (PdfTemplateFieldDTO definition : fieldDefinitions.values()) {
+            fields.add(toField(definition, master.getNumberOfPages()));
+        }
+
+        PdfDocumentTemplate template = new PdfDocumentTemplate(name, master, fields);
+        PdfDocumentTemplate previous = templates.put(name, template);
+        log.info("{}PDF 範本: {}，頁數: {}，變數欄位: {}", previous != null ? "更新" : "註冊",
+                name, template.getPageCount(), template.getFieldNames());
+        return template;
+    }
+
+    /**
+     * 取得已註冊的範本
+     *
+     * @param name 範本名稱
+     * @return 範本
+     */
+    public PdfDocumentTemplate get(String name) {
+        PdfDocumentTemplate template = name != null ? templates.get(name) : null;
+        if (template == null) {
+            throw new PdfProcessingException("找不到 PDF 範本: " + name);
+        }
+        return template;
+    }
+
+    /**
+     * 讀取底稿的表單文字欄位，以欄位矩形左側、垂直置中的位置作為蓋印位置
+     *
+     * @return 表單欄位名稱（含非文字欄位）
+     */
+    private List<String> readFormFields(PdfReader source, Map<String, PdfTemplateFieldDTO> fieldDefinitions) {
+        AcroFields form = source.getAcroFields();
+        List<String> names = new ArrayList<>();
+        names.addAll(form.getAllFields().keySet());
+        names.sort(null);
+
+        for (String fieldName : names) {
+            float[] positions = form.getFieldPositions(fieldName);
+            if (form.getFieldType(fieldName) != AcroFields.FIELD_TYPE_TEXT || positions == null) {
+                continue;
+            }
+            // positions: page, llx, lly, urx, ury（多個 widget 時取第一個）
+            float fontSize = Math.min(10f, Math.max(4f, (positions[4] - positions[2]) * 0.7f));
+            fieldDefinitions.put(fieldName, PdfTemplateFieldDTO.builder()
+                    .name(fieldName)
+                    .page((int) positions[0])
+                    .x(positions[1] + 2f)
+                    .y((positions[2] + positions[4]) / 2f - fontSize * 0.35f)
+                    .fontSize(fontSize)
+                    .build());
+        }
+        return names;
+    }
+
+    /**
+     * 將表單平面化（欄位外觀併入頁面內容並移除表單），避免每份輸出都帶著空白表單
+     */
+    private byte[] flatten(PdfReader source) throws IOException, DocumentException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(source.getFileLength());
+        PdfStamper stamper = new PdfStamper(source, outputStream);
+        stamper.setFormFlattening(true);
+        stamper.close();
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * 未提供底稿時建立單一空白頁
+     */
+    private byte[] createBlankPage(String pageSize) throws DocumentException {
+        Rectangle rectangle;
+        try {
+            rectangle = PageSize.getRectangle(pageSize != null ? pageSize : "A4");
+        } catch (RuntimeException e) {
+            throw new PdfProcessingException("不支援的頁面大小: " + pageSize, e);
+        }
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        Document document = new Document(rectangle);
+        PdfWriter writer = PdfWriter.getInstance(document, outputStream);
+        document.open();
+        writer.setPageEmpty(false);
+        document.close();
+        return outputStream.toByteArray();
+    }
+
+    private PdfDocumentTemplate.Field toField(PdfTemplateFieldDTO definition, int pageCount) {
+        if (definition.getName() == null || definition.getName().isBlank()) {
+            throw new PdfProcessingException("範本欄位名稱不可為空");
+        }
+        if (definition.getX() == null || definition.getY() == null) {
+            throw new PdfProcessingException("範本欄位缺少座標: " + definition.getName());
+        }
+        int page = definition.getPage() != null ? definition.getPage() : 1;
+        if (page < 1 || page > pageCount) {
+            throw new PdfProcessingException("範本欄位頁碼超出範圍: " + definition.getName());
+        }
+
+        return new PdfDocumentTemplate.Field(
+                definition.getName(),
+                page,
+                definition.getX(),
+                definition.getY(),
+                definition.getFontSize() != null ? definition.getFontSize() : 10f,
+                getAlignment(definition.getAlignment()),
+                fontCache.get(definition.getFontName()));
+    }
+
+    /**
+     * 解析對齊方式字串
+     */
+    private int getAlignment(String alignment) {
+        if (alignment == null) {
+            return PdfContentByte.ALIGN_LEFT;
+        }
+
+        return switch (alignment.toUpperCase(Locale.ROOT)) {
+            case "CENTER" -> PdfContentByte.ALIGN_CENTER;
+            case "RIGHT" -> PdfContentByte.ALIGN_RIGHT;
+            default -> PdfContentByte.ALIGN_LEFT;
+        };
+    }
+}
@@ -0,0 +1,331 @@
+package com.pdffactory.service;
+
+import com.pdffactory.exception.PdfProcessingException;
+import com.lowagie.text.DocumentException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 依文件大小排程的 PDF 工作執行器
+ * <p>
+ * 重寫與加密等 CPU 密集工作依位元組數與頁數分為小型與大型兩條佇列，各自由固定數量的工作執行緒處理，
+ * 執行緒數依 {@code small-weight : large-weight} 分配（兩條佇列至少各一個）。大型佇列的執行緒閒置時會取走小型工作
+ * （小型工作很快結束，不影響大型工作）；小型佇列的執行緒閒置時也會取走大型工作，但至少保留
+ * {@code reserved-small-threads} 個執行緒不處理大型工作，因此只有大型工作時仍可使用其餘所有核心，
+ * 而之後到達的小型請求不會排在數千頁的重寫後面。
+ * <p>
+ * 呼叫端執行緒等待工作完成（在 virtual thread 上等待時會釋放 carrier），
+ * 目前執行緒上的 {@link PdfPipelineMetrics.Recording} 會一併帶到工作執行緒上。
+ * 在工作執行緒上再次呼叫時直接執行，避免互相等待。
+ * <p>
+ * 監控指標：{@code pdf.scheduler.wait}（排隊時間）、{@code pdf.scheduler.queued}、{@code pdf.scheduler.running}，tag: lane。
+ */
+@Slf4j
+@Component
+public class PdfWorkScheduler {
+
+    /**
+     * 可拋出 PDF 處理例外的工作
+     */
+    @FunctionalInterface
+    public interface PdfTask<T> {
+        T call() throws IOException, DocumentException;
+    }
+
+    /**
+     * 工作佇列
+     */
+    public enum Lane {
+        SMALL,
+        LARGE
+    }
+
+    /**
+     * 排隊中的工作
+     */
+    private record Work(Lane lane, FutureTask<?> task, long enqueuedNanos) {
+    }
+
+    private static final ThreadLocal<Lane> WORKER_LANE = new ThreadLocal<>();
+
+    private final PdfPipelineMetrics pipelineMetrics;
+    private final MeterRegistry meterRegistry;
+    private final int workerThreads;
+    private final int smallWeight;
+    private final int largeWeight;
+    private final int reservedSmallThreads;
+    private final long largeThresholdBytes;
+    private final int largeThresholdPages;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    private final Map<Lane, Deque<Work>> queues = new EnumMap<>(Lane.class);
+    private final Map<Lane, AtomicInteger> running = new EnumMap<>(Lane.class);
+    private final Map<Lane, Timer> waitTimers = new EnumMap<>(Lane.class);
+    private final List<Thread> workers = new ArrayList<>();
+    private int smallThreads;
+    private int borrowedSmallThreads;
+    private boolean shutdown;
+
+    public PdfWorkScheduler(
+            PdfPipelineMetrics pipelineMetrics,
+            MeterRegistry meterRegistry,
+            @Value("${pdf-factory.scheduler.worker-threads:0}") int workerThreads,
+            @Value("${pdf-factory.scheduler.small-weight:3}") int smallWeight,
+            @Value("${pdf-factory.scheduler.large-weight:1}") int largeWeight,
+            @Value("${pdf-factory.scheduler.reserved-small-threads:1}") int reservedSmallThreads,
+            @Value("${pdf-factory.scheduler.large-threshold-bytes:16MB}") DataSize largeThresholdBytes,
+            @Value("${pdf-factory.scheduler.large-threshold-pages:200}") int largeThresholdPages) {
+
+        this.pipelineMetrics = pipelineMetrics;
+        this.meterRegistry = meterRegistry;
+        this.workerThreads = workerThreads;
+        this.smallWeight = smallWeight;
+        this.largeWeight = largeWeight;
+        this.reservedSmallThreads = Math.max(1, reservedSmallThreads);
+        this.largeThresholdBytes = largeThresholdBytes.toBytes();
+        this.largeThresholdPages = largeThresholdPages;
+
+        for (Lane lane : Lane.values()) {
+            queues.put(lane, new ArrayDeque<>());
+            running.put(lane, new AtomicInteger());
+        }
+    }
+
+    /**
+     * 註冊監控指標並啟動工作執行緒（建構完成後才公開 this 給 gauge 與工作執行緒）
+     */
+    @PostConstruct
+    void start() {
+        for (Lane lane : Lane.values()) {
+            String tag = lane.name().toLowerCase();
+            waitTimers.put(lane, Timer.builder("pdf.scheduler.wait")
+                    .description("工作排隊等待時間")
+                    .tag("lane", tag)
+                    .register(meterRegistry));
+            Gauge.builder("pdf.scheduler.queued", this, scheduler -> scheduler.queuedCount(lane))
+                    .description("排隊中的工作數")
+                    .tag("lane", tag)
+                    .register(meterRegistry);
+            Gauge.builder("pdf.scheduler.running", running.get(lane), AtomicInteger::get)
+                    .description("執行中的工作數")
+                    .tag("lane", tag)
+                    .register(meterRegistry);
+        }
+
+        // 兩條佇列至少各一個執行緒，大型佇列依權重分配其餘執行緒
+        int threads = Math.max(2, workerThreads > 0 ? workerThreads : Runtime.getRuntime().availableProcessors());
+        int weightSum = Math.max(1, smallWeight) + Math.max(1, largeWeight);
+        int largeThreads = Math.min(threads - 1, Math.max(1, threads * Math.max(1, largeWeight) / weightSum));
+        smallThreads = threads - largeThreads;
+        startWorkers(Lane.SMALL, smallThreads);
+        startWorkers(Lane.LARGE, largeThreads);
+        log.info("PDF 工作排程器已啟動：小型 {} 個執行緒（保留 {} 個不處理大型工作），大型 {} 個執行緒（門檻 {} bytes / {} 頁）",
+                smallThreads, Math.min(smallThreads, reservedSmallThreads), largeThreads,
+                largeThresholdBytes, largeThresholdPages);
+    }
+
+    /**
+     * 依位元組數與頁數決定工作佇列
+     *
+     * @param bytes 輸入大小（未知時為 0）
+     * @param pages 頁數（未知時為 0）
+     * @return 工作佇列
+     */
+    public Lane classify(long bytes, int pages) {
+        return bytes >= largeThresholdBytes || pages >= largeThresholdPages ? Lane.LARGE : Lane.SMALL;
+    }
+
+    /**
+     * 在對應的工作佇列上執行工作並等待結果
+     *
+     * @param bytes 輸入大小（未知時為 0）
+     * @param pages 頁數（未知時為 0）
+     * @param task 工作
+     * @return 工作結果
+     */
+    public <T> T run(long bytes, int pages, PdfTask<T> task) throws IOException, DocumentException {
+        if (WORKER_LANE.get() != null) {
+            return task.call();
+        }
+
+        Lane lane = classify(bytes, pages);
+        PdfPipelineMetrics.Recording recording = pipelineMetrics.current();
+        FutureTask<T> future = new FutureTask<>(() -> {
+            if (recording == null) {
+                return task.call();
+            }
+            PdfPipelineMetrics.Scope scope = recording.bind();
+            try {
+                return task.call();
+            } finally {
+                scope.close();
+            }
+        });
+
+        lock.lock();
+        try {
+            if (shutdown) {
+                throw new PdfProcessingException("PDF 工作排程器已關閉");
+            }
+            queues.get(lane).addLast(new Work(lane, future, System.nanoTime()));
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PdfProcessingException("PDF 工作被中斷", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof DocumentException documentException) {
+                throw documentException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new PdfProcessingException("PDF 工作執行失敗: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * 停止所有工作執行緒，尚未開始的工作一併取消
+     */
+    @PreDestroy
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            for (Deque<Work> queue : queues.values()) {
+                queue.forEach(work -> work.task().cancel(false));
+                queue.clear();
+            }
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        workers.forEach(Thread::interrupt);
+    }
+
+    private void startWorkers(Lane home, int count) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(
+                "pdf-" + home.name().toLowerCase() + "-");
+        for (int i = 0; i < count; i++) {
+            Thread worker = threadFactory.newThread(() -> workLoop(home));
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    private void workLoop(Lane home) {
+        WORKER_LANE.set(home);
+        while (true) {
+            Work work;
+            lock.lock();
+            try {
+                while ((work = next(home)) == null) {
+                    if (shutdown) {
+                        return;
+                    }
+                    workAvailable.await();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            waitTimers.get(work.lane()).record(System.nanoTime() - work.enqueuedNanos(), TimeUnit.NANOSECONDS);
+            AtomicInteger runningCount = running.get(work.lane());
+            runningCount.incrementAndGet();
+            try {
+                work.task().run();
+            } finally {
+                runningCount.decrementAndGet();
+                if (home == Lane.SMALL && work.lane() == Lane.LARGE) {
+                    returnBorrowedThread();
+                }
+                // 工作被中斷取消時清除中斷狀態，繼續處理下一個工作
+                Thread.interrupted();
+            }
+        }
+    }
+
+    /**
+     * 取出下一個工作（需持有 lock）：先取本身佇列；大型佇列的執行緒閒置時取小型工作，
+     * 小型佇列的執行緒閒置時取大型工作（保留 reserved-small-threads 個執行緒給小型工作）
+     */
+    private Work next(Lane home) {
+        if (shutdown) {
+            return null;
+        }
+        Work work = queues.get(home).pollFirst();
+        if (work != null) {
+            return work;
+        }
+        if (home == Lane.LARGE) {
+            return queues.get(Lane.SMALL).pollFirst();
+        }
+        if (borrowedSmallThreads < smallThreads - reservedSmallThreads) {
+            work = queues.get(Lane.LARGE).pollFirst();
+            if (work != null) {
+                borrowedSmallThreads++;
+            }
+        }
+        return work;
+    }
+
+    /**
+     * 小型佇列的執行緒完成大型工作，其他閒置的小型執行緒可再取大型工作
+     */
+    private void returnBorrowedThread() {
+        lock.lock();
+        try {
+            borrowedSmallThreads--;
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int queuedCount(Lane lane) {
+        lock.lock();
+        try {
+            return queues.get(lane).size();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.pdffactory.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdffactory.config.AdmissionControlProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 准入控制測試
+ */
+@SpringBootTest
+class AdmissionControlFilterTest {
+
+    @Autowired
+    private AdmissionControlProperties properties;
+
+    @Test
+    void testEndpointLimitsBound() {
+        // 含斜線的端點名稱需以 [] 設定
+        assertTrue(properties.getEndpoints().containsKey("rewrite/batch"));
+        assertTrue(properties.getEndpoints().containsKey("upload-and-rewrite/stream"));
+        assertFalse(properties.getEndpoints().containsKey("health"));
+    }
+
+    @Test
+    void testConcurrencyLimit() throws Exception {
+        EndpointLimiter limiter = new EndpointLimiter(1, 0, 0);
+
+        assertNull(limiter.tryAcquire(100));
+        assertEquals(EndpointLimiter.Rejection.CONCURRENCY, limiter.tryAcquire(100));
+        assertEquals(100, limiter.getInFlightBytes());
+
+        limiter.release(100);
+        assertNull(limiter.tryAcquire(100));
+        assertEquals(1, limiter.getActive());
+    }
+
+    @Test
+    void testInFlightBytesLimit() throws Exception {
+        EndpointLimiter limiter = new EndpointLimiter(0, 1000, 0);
+
+        // 沒有其他請求處理中時，超過上限的單一請求仍可通過
+        assertNull(limiter.tryAcquire(5000));
+        assertEquals(EndpointLimiter.Rejection.IN_FLIGHT_BYTES, limiter.tryAcquire(10));
+
+        limiter.release(5000);
+        assertNull(limiter.tryAcquire(600));
+        assertEquals(EndpointLimiter.Rejection.IN_FLIGHT_BYTES, limiter.tryAcquire(600));
+        assertNull(limiter.tryAcquire(400));
+        assertEquals(1000, limiter.getInFlightBytes());
+    }
+
+    @Test
+    void testFilterRejectsWhenConcurrencyFull() throws Exception {
+        EndpointLimiter limiter = new EndpointLimiter(1, 0, 0);
+        MockMvc mockMvc = mockMvc(limiter);
+
+        // 佔用唯一的許可，下一個請求立即以 429 拒絕
+        assertNull(limiter.tryAcquire(0));
+        mockMvc.perform(post("/api/pdf/test").content("pdf"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+
+        limiter.release(0);
+        mockMvc.perform(post("/api/pdf/test").content("pdf"))
+                .andExpect(status().isOk());
+        assertEquals(0, limiter.getActive());
+    }
+
+    @Test
+    void testFilterRejectsAfterQueueWaitTimeout() throws Exception {
+        EndpointLimiter limiter = new EndpointLimiter(1, 0, TimeUnit.MILLISECONDS.toNanos(50));
+        MockMvc mockMvc = mockMvc(limiter);
+
+        assertNull(limiter.tryAcquire(0));
+        mockMvc.perform(post("/api/pdf/test").content("pdf"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+        assertEquals(0, limiter.getQueued());
+    }
+
+    @Test
+    void testFilterRejectsWhenQueueFull() throws Exception {
+        Semaphore sharedQueueSlots = new Semaphore(1);
+        EndpointLimiter limiter = new EndpointLimiter(1, 0, TimeUnit.SECONDS.toNanos(10), 1, sharedQueueSlots);
+        EndpointLimiter other = new EndpointLimiter(1, 0, TimeUnit.SECONDS.toNanos(10), 0, sharedQueueSlots);
+        MockMvc mockMvc = mockMvc(limiter);
+
+        // 佔用許可後第一個請求排隊等待，之後的請求不再排隊而是立即拒絕
+        assertNull(limiter.tryAcquire(0));
+        assertNull(other.tryAcquire(0));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<EndpointLimiter.Rejection> waiting = executor.submit(() -> limiter.tryAcquire(0));
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (limiter.getQueued() < 1) {
+                assertTrue(System.currentTimeMillis() < deadline, "請求未進入排隊");
+                Thread.sleep(10);
+            }
+
+            // 端點的 max-queue-depth 已滿
+            mockMvc.perform(post("/api/pdf/test").content("pdf"))
+                    .andExpect(status().isTooManyRequests())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+            // 全部端點共用的排隊名額已滿
+            assertEquals(EndpointLimiter.Rejection.QUEUE_FULL, other.tryAcquire(0));
+
+            limiter.release(0);
+            assertNull(waiting.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, limiter.getQueued());
+        assertEquals(1, sharedQueueSlots.availablePermits());
+    }
+
+    @Test
+    void testFilterRequiresContentLengthWhenBytesLimited() throws Exception {
+        EndpointLimiter limiter = new EndpointLimiter(0, 1000, 0);
+        MockMvc mockMvc = mockMvc(limiter);
+
+        // 沒有 Content-Length（chunked 上傳）無法計入處理中位元組數
+        mockMvc.perform(post("/api/pdf/test"))
+                .andExpect(status().isLengthRequired())
+                .andExpect(header().doesNotExist(HttpHeaders.RETRY_AFTER));
+
+        mockMvc.perform(post("/api/pdf/test").content("pdf"))
+                .andExpect(status().isOk());
+        assertEquals(0, limiter.getInFlightBytes());
+    }
+
+    @Test
+    void testFilterReleasesAfterStreamingResponse() throws Exception {
+        EndpointLimiter limiter = new EndpointLimiter(1, 0, 0);
+        TestController controller = new TestController();
+        MockMvc mockMvc = mockMvc(limiter, controller);
+
+        MvcResult result = mockMvc.perform(get("/api/pdf/test"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // 串流尚未完成前許可維持佔用
+        assertEquals(1, limiter.getActive());
+        mockMvc.perform(get("/api/pdf/test"))
+                .andExpect(status().isTooManyRequests());
+
+        controller.streamRelease.countDown();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string("streamed"));
+        assertEquals(0, limiter.getActive());
+    }
+
+    private MockMvc mockMvc(EndpointLimiter limiter) {
+        return mockMvc(limiter, new TestController());
+    }
+
+    private MockMvc mockMvc(EndpointLimiter limiter, TestController controller) {
+        AdmissionControlFilter filter = new AdmissionControlFilter(
+                Map.of("test", limiter), 1, new ObjectMapper(), new SimpleMeterRegistry());
+        return MockMvcBuilders.standaloneSetup(controller)
+                .addFilter(filter, AdmissionControlFilter.API_PREFIX + "*")
+                .build();
+    }
+
+    /**
+     * 受控端點
+     */
+    @RestController
+    static class TestController {
+
+        private final CountDownLatch streamRelease = new CountDownLatch(1);
+
+        @PostMapping("/api/pdf/test")
+        String upload() {
+            return "ok";
+        }
+
+        @GetMapping("/api/pdf/test")
+        StreamingResponseBody stream() {
+            return outputStream -> {
+                try {
+                    streamRelease.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                outputStream.write("streamed".getBytes(StandardCharsets.UTF_8));
+            };
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.pdffactory.service;
+
+import com.pdffactory.dto.PdfSecurityInfo;
+import com.pdffactory.exception.PdfProcessingException;
+import com.lowagie.text.Document;
+import com.lowagie.text.PageSize;
+import com.lowagie.text.Paragraph;
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.PdfStamper;
+import com.lowagie.text.pdf.PdfWriter;
+import com.lowagie.text.pdf.parser.PdfTextExtractor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PDF 讀取服務測試
+ */
+@SpringBootTest
+class PdfReaderServiceTest {
+
+    @Autowired
+    private PdfReaderService pdfReaderService;
+
+    @Autowired
+    private PdfDerivedKeyCache derivedKeyCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Path testDir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        testDir = Files.createTempDirectory("pdf-reader-test");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try (Stream<Path> files = Files.list(testDir)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(testDir);
+    }
+
+    /**
+     * 建立多頁測試 PDF
+     */
+    private String createTestPdf(String name, String password) throws Exception {
+        String path = testDir.resolve(name).toString();
+        Document document = new Document(PageSize.A4);
+        PdfWriter writer = PdfWriter.getInstance(document, new FileOutputStream(path));
+        if (password != null) {
+            writer.setEncryption(null, password.getBytes(),
+                    PdfWriter.ALLOW_PRINTING, PdfWriter.STANDARD_ENCRYPTION_128);
+        }
+        document.addCreator("Test Creator");
+        document.open();
+        for (int i = 1; i <= 20; i++) {
+            document.add(new Paragraph("Page " + i));
+            document.newPage();
+        }
+        document.close();
+        return path;
+    }
+
+    /**
+     * 建立同時設定使用者與擁有者密碼的加密測試 PDF
+     */
+    private String createEncryptedPdf(String name, int encryptionType) throws Exception {
+        String path = testDir.resolve(name).toString();
+        Document document = new Document(PageSize.A4);
+        PdfWriter writer = PdfWriter.getInstance(document, new FileOutputStream(path));
+        writer.setEncryption("user".getBytes(), "owner".getBytes(), PdfWriter.ALLOW_PRINTING, encryptionType);
+        document.open();
+        for (int i = 1; i <= 5; i++) {
+            document.add(new Paragraph("Page " + i));
+            document.newPage();
+        }
+        document.close();
+        return path;
+    }
+
+    /**
+     * 檔案金鑰快取命中次數
+     */
+    private double derivedKeyHits() {
+        return meterRegistry.get("cache.gets")
+                .tag("cache", "pdf.derived-key")
+                .tag("result", "hit")
+                .functionCounter()
+                .count();
+    }
+
+    /**
+     * 安全性資訊快取命中次數
+     */
+    private double securityInfoHits() {
+        return meterRegistry.get("cache.gets")
+                .tag("cache", "pdf.security-info")
+                .tag("result", "hit")
+                .functionCounter()
+                .count();
+    }
+
+    /**
+     * 以完整 PdfReader 讀取安全性資訊作為比對基準
+     */
+    private PdfSecurityInfo readWithFullReader(String path, String password) throws Exception {
+        PdfReader reader = new PdfReader(path, password != null ? password.getBytes() : null);
+        try {
+            return pdfReaderService.extractSecurityInfo(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    void testHeaderInspectionMatchesFullReader() throws Exception {
+        String path = createTestPdf("plain.pdf", null);
+
+        PdfSecurityInfo expected = readWithFullReader(path, null);
+        PdfSecurityInfo actual = pdfReaderService.extractSecurityInfo(path, null);
+
+        assertEquals(expected, actual);
+        assertEquals("Test Creator", actual.getCreator());
+    }
+
+    @Test
+    void testHeaderInspectionFollowsIncrementalUpdates() throws Exception {
+        String original = createTestPdf("original.pdf", null);
+        String updated = testDir.resolve("updated.pdf").toString();
+
+        // 以附加模式更新 /Info，產生第二個 xref 區段
+        PdfReader reader = new PdfReader(original);
+        PdfStamper stamper = new PdfStamper(reader, new FileOutputStream(updated), '\0', true);
+        Map<String, String> info = new HashMap<>(reader.getInfo());
+        info.put("Producer", "Updated Producer");
+        stamper.setInfoDictionary(info);
+        stamper.close();
+        reader.close();
+
+        PdfSecurityInfo actual = pdfReaderService.extractSecurityInfo(updated, null);
+
+        assertEquals(readWithFullReader(updated, null), actual);
+        assertEquals("Updated Producer", actual.getProducer());
+    }
+
+    @Test
+    void testEncryptedPdfFallsBackToReader() throws Exception {
+        String path = createTestPdf("encrypted.pdf", "secret");
+
+        PdfSecurityInfo actual = pdfReaderService.extractSecurityInfo(path, "secret");
+
+        assertEquals(readWithFullReader(path, "secret"), actual);
+        assertTrue(actual.isEncrypted());
+        assertEquals("Test Creator", actual.getCreator());
+    }
+
+    @Test
+    void testSecurityInfoCachedPerPassword() throws Exception {
+        String path = createTestPdf("cached.pdf", "secret");
+
+        PdfSecurityInfo first = pdfReaderService.extractSecurityInfo(path, "secret");
+        double hits = securityInfoHits();
+        PdfSecurityInfo second = pdfReaderService.extractSecurityInfo(path, "secret");
+
+        // 相同檔案與密碼直接由快取返回（回傳副本，修改不影響快取內容）
+        assertEquals(hits + 1, securityInfoHits());
+        assertEquals(first, second);
+        second.setProducer("Modified");
+        assertEquals(first, pdfReaderService.extractSecurityInfo(path, "secret"));
+
+        // 不同密碼不可共用快取結果
+        assertThrows(PdfProcessingException.class,
+                () -> pdfReaderService.extractSecurityInfo(path, "wrong-password"));
+    }
+
+    @Test
+    void testOpenPdfInternalsAvailable() {
+        // KeyCachingPdfReader、PdfDerivedKeyCache 與 JceAesPdfEncryption 依賴 OpenPDF 未公開的欄位，
+        // 升級 OpenPDF 時需重新確認後再更新此版本
+        assertEquals("OpenPDF 1.3.34", Document.getVersion());
+        assertTrue(KeyCachingPdfReader.isAvailable(), String.valueOf(KeyCachingPdfReader.unavailableCause()));
+        assertTrue(derivedKeyCache.isEnabled());
+    }
+
+    @Test
+    void testDerivedKeyCacheOnlyForEncryptedInputs() throws Exception {
+        String plain = createTestPdf("plain.pdf", null);
+        String encrypted = createTestPdf("encrypted-classic.pdf", "secret");
+
+        // xref stream 的文件同樣由 trailer 判斷是否加密
+        String compressed = testDir.resolve("encrypted-compressed.pdf").toString();
+        Document document = new Document(PageSize.A4);
+        PdfWriter writer = PdfWriter.getInstance(document, new FileOutputStream(compressed));
+        writer.setFullCompression();
+        writer.setEncryption(null, "secret".getBytes(), PdfWriter.ALLOW_PRINTING, PdfWriter.ENCRYPTION_AES_128);
+        document.open();
+        document.add(new Paragraph("Page 1"));
+        document.close();
+
+        PdfReader plainReader = pdfReaderService.getPdfReader(plain, "secret");
+        PdfReader encryptedReader = pdfReaderService.getPdfReader(encrypted, "secret");
+        PdfReader compressedReader = pdfReaderService.getPdfReader(Files.readAllBytes(Path.of(compressed)), "secret");
+        try {
+            assertEquals(PdfReader.class, plainReader.getClass());
+            assertInstanceOf(KeyCachingPdfReader.class, encryptedReader);
+            assertInstanceOf(KeyCachingPdfReader.class, compressedReader);
+        } finally {
+            plainReader.close();
+            encryptedReader.close();
+            compressedReader.close();
+        }
+    }
+
+    @Test
+    void testDerivedKeyReusedOnReopen() throws Exception {
+        int[] encryptionTypes = {PdfWriter.STANDARD_ENCRYPTION_128, PdfWriter.ENCRYPTION_AES_128,
+                PdfWriter.ENCRYPTION_AES_256_V3};
+        for (int encryptionType : encryptionTypes) {
+            String path = createEncryptedPdf("derived-key-" + encryptionType + ".pdf", encryptionType);
+
+            for (String password : new String[]{"owner", "user"}) {
+                PdfReader expected = new PdfReader(path, password.getBytes());
+                try {
+                    for (int i = 0; i < 2; i++) {
+                        // 第二次開啟需由快取取得檔案金鑰，解密結果與完整推導一致
+                        double hits = derivedKeyHits();
+                        PdfReader reader = pdfReaderService.getPdfReader(path, password);
+                        try {
+                            assertEquals(i == 0 ? hits : hits + 1, derivedKeyHits());
+                            assertEquals(expected.getCryptoMode(), reader.getCryptoMode());
+                            assertEquals(expected.getPermissions(), reader.getPermissions());
+                            assertEquals(expected.isOpenedWithFullPermissions(), reader.isOpenedWithFullPermissions());
+                            assertTrue(new PdfTextExtractor(reader).getTextFromPage(3).contains("Page 3"));
+                        } finally {
+                            reader.close();
+                        }
+                    }
+                } finally {
+                    expected.close();
+                }
+            }
+
+            // 錯誤密碼不可命中快取
+            assertThrows(PdfProcessingException.class, () -> pdfReaderService.getPdfReader(path, "wrong-password"));
+        }
+    }
+}
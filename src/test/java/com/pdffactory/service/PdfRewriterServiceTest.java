@@ -1,29 +1,61 @@
 package com.pdffactory.service;
 
+import com.pdffactory.dto.PdfBatchRewriteItemResult;
+import com.pdffactory.dto.PdfRewriteJobResponse;
 import com.pdffactory.dto.PdfRewriteRequest;
 import com.pdffactory.dto.PdfRewriteResponse;
 import com.pdffactory.dto.PdfSecurityInfo;
+import com.pdffactory.dto.PdfUploadAndRewriteRequest;
 import com.lowagie.text.Document;
+import com.lowagie.text.Image;
 import com.lowagie.text.PageSize;
 import com.lowagie.text.Paragraph;
+import com.lowagie.text.pdf.PdfName;
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.PdfStream;
 import com.lowagie.text.pdf.PdfWriter;
+import com.lowagie.text.pdf.parser.PdfTextExtractor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
-
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
  * PDF 重寫服務測試
  */
-@SpringBootTest
+@SpringBootTest(properties = "pdf-factory.jobs.store-dir=target/pdf-factory-jobs")
 class PdfRewriterServiceTest {
 
     @Autowired
@@ -32,6 +64,18 @@ class PdfRewriterServiceTest {
     @Autowired
     private PdfReaderService pdfReaderService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PdfRewriteJobService pdfRewriteJobService;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     private Path testDir;
     private String testInputPath;
     private String testOutputPath;
@@ -116,6 +160,33 @@ class PdfRewriterServiceTest {
         assertEquals(originalSecurity.isAllowScreenReaders(), newSecurity.isAllowScreenReaders());
     }
 
+    @Test
+    void testNewSecurityInfoMatchesRewrittenFile() {
+        // 準備請求
+        PdfRewriteRequest request = PdfRewriteRequest.builder()
+                .inputPath(testInputPath)
+                .outputPath(testOutputPath)
+                .ownerPassword(testPassword)
+                .preserveSecurity(true)
+                .build();
+
+        // 執行重寫
+        PdfRewriteResponse response = pdfRewriterService.rewritePdf(request);
+        assertTrue(response.isSuccess());
+
+        // 由 writer 狀態產生的安全性資訊需與重新讀取輸出檔的結果一致
+        PdfSecurityInfo expected = pdfReaderService.extractSecurityInfo(testOutputPath, testPassword);
+        PdfSecurityInfo actual = response.getNewSecurityInfo();
+
+        assertEquals(expected.isEncrypted(), actual.isEncrypted());
+        assertEquals(expected.getEncryptionLevel(), actual.getEncryptionLevel());
+        assertEquals(expected.getEncryptionAlgorithm(), actual.getEncryptionAlgorithm());
+        assertEquals(expected.getPermissions(), actual.getPermissions());
+        assertEquals(expected.getPdfVersion(), actual.getPdfVersion());
+        assertEquals(expected.getCreator(), actual.getCreator());
+        assertEquals(expected.getProducer(), actual.getProducer());
+    }
+
     @Test
     void testRewritePdfToBytes() {
         // 準備請求（不提供 outputPath）
@@ -136,6 +207,369 @@ class PdfRewriterServiceTest {
         assertTrue(response.getFileSize() > 0);
     }
 
+    @Test
+    void testUploadAndRewritePdfStream() throws Exception {
+        // 準備請求（以串流方式提供原始 PDF）
+        PdfUploadAndRewriteRequest request = PdfUploadAndRewriteRequest.builder()
+                .fileName("test-input.pdf")
+                .ownerPassword(testPassword)
+                .preserveSecurity(true)
+                .build();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InputStream input = Files.newInputStream(Path.of(testInputPath))) {
+            pdfRewriterService.uploadAndRewritePdfStream(input, request).writeTo(output);
+        }
+
+        // 驗證輸出為可讀取的加密 PDF
+        PdfReader reader = new PdfReader(output.toByteArray(), testPassword.getBytes());
+        assertTrue(reader.isEncrypted());
+        assertEquals(1, reader.getNumberOfPages());
+        assertEquals("PDF Rewriter Application", reader.getInfo().get("Creator"));
+        reader.close();
+    }
+
+    @Test
+    void testUploadAndRewritePipelineMetrics() throws Exception {
+        List<String> stages = List.of("base64-decode", "reader-open", "security-extraction",
+                "encryption", "page-copy", "output-encode");
+        List<Long> before = new ArrayList<>();
+        for (String stage : stages) {
+            before.add(stageCount(stage));
+        }
+
+        PdfUploadAndRewriteRequest request = PdfUploadAndRewriteRequest.builder()
+                .fileName("test-input.pdf")
+                .pdfFileBase64(Base64.getEncoder().encodeToString(Files.readAllBytes(Path.of(testInputPath))))
+                .ownerPassword(testPassword)
+                .preserveSecurity(true)
+                .build();
+        assertTrue(pdfRewriterService.uploadAndRewritePdf(request).isSuccess());
+
+        // 各階段以外層端點、輸出加密類型與頁數區間標記，各記錄一次
+        for (int i = 0; i < stages.size(); i++) {
+            assertEquals(before.get(i) + 1, stageCount(stages.get(i)), stages.get(i));
+        }
+        assertTrue(meterRegistry.get("pdf.pipeline.stage.bytes")
+                .tags("endpoint", "upload-and-rewrite", "stage", "base64-decode")
+                .summary().totalAmount() > 0);
+
+        // 請求結束後處理中的大小與重寫數歸零
+        assertEquals(0.0, meterRegistry.get("pdf.pipeline.in-flight-bytes").gauge().value());
+        assertEquals(0.0, meterRegistry.get("pdf.pipeline.active-rewrites").gauge().value());
+    }
+
+    private long stageCount(String stage) {
+        Timer timer = meterRegistry.find("pdf.pipeline.stage")
+                .tags("endpoint", "upload-and-rewrite", "encryption", "AES_128", "pages", "1", "stage", stage)
+                .timer();
+        return timer != null ? timer.count() : 0;
+    }
+
+    @Test
+    void testRewriteJob() throws Exception {
+        // 提交工作（未提供 outputPath，結果保存在工作儲存區）
+        PdfRewriteJobResponse submitted = pdfRewriteJobService.submit(PdfRewriteRequest.builder()
+                .inputPath(testInputPath)
+                .ownerPassword(testPassword)
+                .preserveSecurity(true)
+                .build());
+        assertTrue(submitted.isSuccess());
+        assertNotNull(submitted.getJobId());
+
+        PdfRewriteJobResponse finished = awaitJob(submitted.getJobId());
+        assertEquals("SUCCEEDED", finished.getStatus());
+        assertEquals(1, finished.getTotalPages());
+        assertEquals(1, finished.getPagesCopied());
+        assertTrue(finished.getResult().getNewSecurityInfo().isEncrypted());
+
+        Path resultFile = pdfRewriteJobService.getResultFile(submitted.getJobId());
+        PdfReader reader = new PdfReader(Files.readAllBytes(resultFile), testPassword.getBytes());
+        assertTrue(reader.isEncrypted());
+        reader.close();
+
+        // 已完成的工作不保存密碼
+        Path jobFile = resultFile.resolveSibling(submitted.getJobId() + ".json");
+        assertFalse(Files.readString(jobFile).contains(testPassword));
+        // 儲存區含有密碼，目錄僅限擁有者存取
+        assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(jobFile.getParent())));
+
+        // 儲存區中未完成的工作在重新載入時重新排隊並完成
+        PdfRewriteJob pending = new PdfRewriteJob();
+        pending.setId("recovered-" + submitted.getJobId());
+        pending.setRequest(PdfRewriteRequest.builder()
+                .inputPath(testInputPath)
+                .outputPath(testOutputPath)
+                .ownerPassword(testPassword)
+                .build());
+        pending.setStatus(PdfRewriteJob.Status.RUNNING);
+        pending.setResultPath(testOutputPath);
+        pending.setSubmittedAt(System.currentTimeMillis());
+        objectMapper.writeValue(resultFile.resolveSibling(pending.getId() + ".json").toFile(), pending);
+
+        ReflectionTestUtils.invokeMethod(pdfRewriteJobService, "recover");
+        assertEquals("SUCCEEDED", awaitJob(pending.getId()).getStatus());
+        assertTrue(Files.size(Path.of(testOutputPath)) > 0);
+    }
+
+    private PdfRewriteJobResponse awaitJob(String jobId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        PdfRewriteJobResponse response = pdfRewriteJobService.getStatus(jobId);
+        while (("QUEUED".equals(response.getStatus()) || "RUNNING".equals(response.getStatus()))
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            response = pdfRewriteJobService.getStatus(jobId);
+        }
+        return response;
+    }
+
+    @Test
+    void testRewritePdfFromMemoryAndMappedSource() throws Exception {
+        PdfRewriteRequest request = PdfRewriteRequest.builder()
+                .ownerPassword(testPassword)
+                .preserveSecurity(true)
+                .build();
+
+        // 記憶體來源（不建立暫存檔案）
+        byte[] inputBytes = Files.readAllBytes(Path.of(testInputPath));
+        PdfRewriteResponse fromBytes = pdfRewriterService.rewritePdf(inputBytes, request);
+        assertTrue(fromBytes.isSuccess());
+        assertTrue(fromBytes.getOriginalSecurityInfo().isEncrypted());
+        assertTrue(fromBytes.getFileSize() > 0);
+
+        // 記憶體映射來源
+        PdfRewriteResponse fromMapped = pdfRewriterService.rewritePdf(
+                pdfReaderService.openMappedSource(Path.of(testInputPath)), request);
+        assertTrue(fromMapped.isSuccess());
+        assertEquals(fromBytes.getNewSecurityInfo().getPermissions(),
+                fromMapped.getNewSecurityInfo().getPermissions());
+    }
+
+    @Test
+    void testRewritePdfBatch() throws Exception {
+        String secondOutputPath = testDir.resolve("test-output-2.pdf").toString();
+        List<PdfRewriteRequest> items = List.of(
+                PdfRewriteRequest.builder()
+                        .inputPath(testInputPath)
+                        .outputPath(testOutputPath)
+                        .ownerPassword(testPassword)
+                        .build(),
+                PdfRewriteRequest.builder()
+                        .inputPath(testDir.resolve("missing.pdf").toString())
+                        .outputPath(testDir.resolve("missing-output.pdf").toString())
+                        .build(),
+                PdfRewriteRequest.builder()
+                        .inputPath(testInputPath)
+                        .outputPath(secondOutputPath)
+                        .ownerPassword(testPassword)
+                        .build());
+
+        List<PdfBatchRewriteItemResult> results = new ArrayList<>();
+        pdfRewriterService.rewritePdfBatch(items, results::add);
+
+        // 每個項目都有結果，單一項目失敗不影響其他項目
+        assertEquals(3, results.size());
+        results.sort(Comparator.comparingInt(PdfBatchRewriteItemResult::getIndex));
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertTrue(results.get(2).isSuccess());
+        assertTrue(new File(secondOutputPath).exists());
+
+        Files.deleteIfExists(Path.of(secondOutputPath));
+        Files.deleteIfExists(testDir.resolve("missing-output.pdf"));
+    }
+
+    @Test
+    void testRewritePdfBatchStreamTimeout() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+        byte[] body = objectMapper.writeValueAsBytes(Map.of("items", List.of(Map.of(
+                "inputPath", testInputPath,
+                "outputPath", testOutputPath,
+                "ownerPassword", testPassword))));
+
+        MvcResult result = mockMvc.perform(post("/api/pdf/rewrite/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // 批次串流不套用全域 spring.mvc.async.request-timeout（600000），預設不設逾時
+        assertEquals(0L, result.getRequest().getAsyncContext().getTimeout());
+        // asyncDispatch 以請求的逾時作為等待時間，不設逾時時需先等待串流完成
+        result.getAsyncResult(30_000);
+
+        String ndjson = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        PdfBatchRewriteItemResult item = objectMapper.readValue(ndjson.trim(), PdfBatchRewriteItemResult.class);
+        assertTrue(item.isSuccess());
+    }
+
+    @Test
+    void testRewritePdfDedupeResources() throws Exception {
+        // 建立每頁各自嵌入相同圖片的 PDF（模擬每頁重複 logo 的對帳單）
+        BufferedImage logo = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 64; y++) {
+            for (int x = 0; x < 64; x++) {
+                logo.setRGB(x, y, (x * 4) << 16 | (y * 4) << 8 | ((x ^ y) & 0xFF));
+            }
+        }
+        ByteArrayOutputStream source = new ByteArrayOutputStream();
+        Document document = new Document(PageSize.A4);
+        PdfWriter.getInstance(document, source);
+        document.open();
+        for (int i = 1; i <= 20; i++) {
+            document.add(Image.getInstance(logo, null));
+            document.add(new Paragraph("Statement page " + i));
+            document.newPage();
+        }
+        document.close();
+
+        PdfRewriteResponse plain = pdfRewriterService.rewritePdf(source.toByteArray(),
+                PdfRewriteRequest.builder().build());
+        PdfRewriteResponse deduped = pdfRewriterService.rewritePdf(source.toByteArray(),
+                PdfRewriteRequest.builder().dedupeResources(true).build());
+
+        // 相同圖片只寫入一次，輸出明顯縮小且頁數不變
+        assertTrue(plain.isSuccess());
+        assertTrue(deduped.isSuccess());
+        assertTrue(deduped.getFileSize() * 3 < plain.getFileSize(),
+                "dedupe: " + deduped.getFileSize() + ", plain: " + plain.getFileSize());
+        PdfReader reader = new PdfReader(deduped.getPdfBytes());
+        assertEquals(20, reader.getNumberOfPages());
+        reader.close();
+    }
+
+    @Test
+    void testRewritePdfInParallelSegments() throws Exception {
+        // 建立 45 頁的 PDF（未加密與加密各一份），並暫時調低平行分段門檻（每段 7 頁）
+        String plainPath = createPagedPdf("test-large.pdf", 45, null);
+        String encryptedPath = createPagedPdf("test-large-encrypted.pdf", 45, testPassword);
+
+        ReflectionTestUtils.setField(pdfRewriterService, "parallelMinPages", 10);
+        ReflectionTestUtils.setField(pdfRewriterService, "segmentPages", 7);
+        List<Integer> plainProgress = new ArrayList<>();
+        List<Integer> encryptedProgress = new ArrayList<>();
+        try {
+            // 合併資源避免改為只替換 metadata
+            PdfRewriteResponse response = pdfRewriterService.rewritePdf(PdfRewriteRequest.builder()
+                    .inputPath(plainPath)
+                    .outputPath(testOutputPath)
+                    .build(), (copied, total) -> plainProgress.add(copied));
+            assertTrue(response.isSuccess(), response.getMessage());
+
+            response = pdfRewriterService.rewritePdf(PdfRewriteRequest.builder()
+                    .inputPath(encryptedPath)
+                    .outputPath(encryptedPath)
+                    .ownerPassword(testPassword)
+                    .build(), (copied, total) -> encryptedProgress.add(copied));
+            assertTrue(response.isSuccess(), response.getMessage());
+
+            // 加密文件不分段（分段暫存檔為明文），逐頁回報進度且保留加密設定
+            assertEquals(46, encryptedProgress.size());
+            PdfReader encrypted = new PdfReader(encryptedPath, testPassword.getBytes());
+            assertTrue(encrypted.isEncrypted());
+            assertEquals(45, encrypted.getNumberOfPages());
+            encrypted.close();
+        } finally {
+            ReflectionTestUtils.setField(pdfRewriterService, "parallelMinPages", 0);
+            ReflectionTestUtils.setField(pdfRewriterService, "segmentPages", 250);
+            Files.deleteIfExists(Path.of(plainPath));
+            Files.deleteIfExists(Path.of(encryptedPath));
+        }
+
+        // 未加密文件依分段回報進度，頁序正確
+        assertEquals(List.of(0, 7, 14, 21, 28, 35, 42, 45), plainProgress);
+        PdfReader reader = new PdfReader(testOutputPath);
+        assertEquals(45, reader.getNumberOfPages());
+        PdfTextExtractor extractor = new PdfTextExtractor(reader);
+        for (int i = 1; i <= 45; i++) {
+            assertTrue(extractor.getTextFromPage(i).contains("Page " + i), "第 " + i + " 頁順序錯誤");
+        }
+        reader.close();
+    }
+
+    /**
+     * 建立每頁標示頁碼的 PDF
+     *
+     * @param password 擁有者密碼（null 表示不加密）
+     */
+    private String createPagedPdf(String fileName, int pages, String password) throws Exception {
+        String path = testDir.resolve(fileName).toString();
+        Document document = new Document(PageSize.A4);
+        PdfWriter writer = PdfWriter.getInstance(document, new FileOutputStream(path));
+        if (password != null) {
+            writer.setEncryption(null, password.getBytes(), PdfWriter.ALLOW_PRINTING, PdfWriter.ENCRYPTION_AES_128);
+        }
+        document.open();
+        for (int i = 1; i <= pages; i++) {
+            document.add(new Paragraph("Page " + i));
+            document.newPage();
+        }
+        document.close();
+        return path;
+    }
+
+    @Test
+    void testRewritePdfCompressionProfile() throws Exception {
+        // 建立內容串流未壓縮的加密 PDF
+        String uncompressedPath = testDir.resolve("test-uncompressed.pdf").toString();
+        Document document = new Document(PageSize.A4);
+        PdfWriter writer = PdfWriter.getInstance(document, new FileOutputStream(uncompressedPath));
+        writer.setCompressionLevel(PdfStream.NO_COMPRESSION);
+        writer.setEncryption(null, testPassword.getBytes(), PdfWriter.ALLOW_PRINTING, PdfWriter.ENCRYPTION_AES_128);
+        document.open();
+        for (int i = 1; i <= 30; i++) {
+            for (int line = 1; line <= 20; line++) {
+                document.add(new Paragraph("Page " + i + " line " + line + " - repeated statement text"));
+            }
+            document.newPage();
+        }
+        document.close();
+
+        try {
+            PdfRewriteResponse fast = pdfRewriterService.rewritePdf(PdfRewriteRequest.builder()
+                    .inputPath(uncompressedPath)
+                    .ownerPassword(testPassword)
+                    .compressionProfile("fast")
+                    .build());
+            PdfRewriteResponse max = pdfRewriterService.rewritePdf(PdfRewriteRequest.builder()
+                    .inputPath(uncompressedPath)
+                    .ownerPassword(testPassword)
+                    .compressionProfile("MAX")
+                    .build());
+
+            assertTrue(fast.isSuccess(), fast.getMessage());
+            assertTrue(max.isSuccess(), max.getMessage());
+            assertEquals("FAST", fast.getCompressionProfile());
+            assertEquals("MAX", max.getCompressionProfile());
+            assertEquals(Files.size(Path.of(uncompressedPath)), max.getOriginalFileSize());
+            assertNotNull(max.getCompressionMillis());
+
+            // MAX 壓縮所有內容串流並使用物件串流，輸出明顯小於 FAST
+            assertTrue(max.getFileSize() * 2 < fast.getFileSize(),
+                    "max: " + max.getFileSize() + ", fast: " + fast.getFileSize());
+
+            // 重新壓縮後內容與加密設定不變
+            PdfReader reader = new PdfReader(max.getPdfBytes(), testPassword.getBytes());
+            assertTrue(reader.isEncrypted());
+            assertEquals(30, reader.getNumberOfPages());
+            assertTrue(new PdfTextExtractor(reader).getTextFromPage(30).contains("Page 30 line 20"));
+            reader.close();
+
+            // 無法辨識的壓縮設定不可默默改用預設行為
+            PdfRewriteResponse unknown = pdfRewriterService.rewritePdf(PdfRewriteRequest.builder()
+                    .inputPath(uncompressedPath)
+                    .ownerPassword(testPassword)
+                    .compressionProfile("ULTRA")
+                    .build());
+            assertFalse(unknown.isSuccess());
+            assertTrue(unknown.getMessage().contains("不支援的壓縮設定: ULTRA"), unknown.getMessage());
+        } finally {
+            Files.deleteIfExists(Path.of(uncompressedPath));
+        }
+    }
+
     @Test
     void testExtractSecurityInfo() {
         // 提取安全性資訊
@@ -155,7 +589,12 @@ class PdfRewriterServiceTest {
         // 建立無加密的測試 PDF
         String unencryptedPath = testDir.resolve("test-unencrypted.pdf").toString();
         Document document = new Document(PageSize.A4);
-        PdfWriter.getInstance(document, new FileOutputStream(unencryptedPath));
+        // 版本與目錄項目不影響增量更新：原始內容原樣保留
+        PdfWriter writer = PdfWriter.getInstance(document, new FileOutputStream(unencryptedPath));
+        writer.setPdfVersion(PdfWriter.VERSION_1_7);
+        writer.setViewerPreferences(PdfWriter.PageModeUseOutlines);
+        document.addTitle("Unencrypted Title");
+        document.addProducer("iText");
         document.open();
         document.add(new Paragraph("Unencrypted PDF"));
         document.close();
@@ -178,7 +617,119 @@ class PdfRewriterServiceTest {
         assertNotNull(originalSecurity);
         assertFalse(originalSecurity.isEncrypted());
 
+        // 未要求增量更新時完整重寫
+        assertEquals("full", response.getRewriteMode());
+        PdfReader rewritten = new PdfReader(testOutputPath);
+        try {
+            assertEquals("PDF Rewriter Application", rewritten.getInfo().get("Creator"));
+            assertEquals("OpenPDF Library", rewritten.getInfo().get("Producer"));
+            assertTrue(new PdfTextExtractor(rewritten).getTextFromPage(1).contains("Unencrypted PDF"));
+        } finally {
+            rewritten.close();
+        }
+
+        // 要求增量更新時只需替換 metadata：原始內容原樣複製，附加的 xref 區段可直接讀取（不需修復）
+        request.setIncrementalUpdate(true);
+        response = pdfRewriterService.rewritePdf(request);
+        assertTrue(response.isSuccess(), response.getMessage());
+        assertEquals("incremental", response.getRewriteMode());
+        byte[] original = Files.readAllBytes(Path.of(unencryptedPath));
+        byte[] output = Files.readAllBytes(Path.of(testOutputPath));
+        assertArrayEquals(original, Arrays.copyOf(output, original.length));
+        assertEquals(output.length, response.getFileSize());
+
+        PdfReader reader = new PdfReader(testOutputPath);
+        try {
+            assertFalse(reader.isRebuilt());
+            assertEquals('7', reader.getPdfVersion());
+            assertEquals(PdfName.USEOUTLINES, reader.getCatalog().get(PdfName.PAGEMODE));
+            assertEquals("PDF Rewriter Application", reader.getInfo().get("Creator"));
+            assertEquals("OpenPDF Library", reader.getInfo().get("Producer"));
+            assertEquals("Unencrypted Title", reader.getInfo().get("Title"));
+            String xmp = new String(reader.getMetadata(), StandardCharsets.UTF_8);
+            assertTrue(xmp.contains("OpenPDF Library"), xmp);
+            assertTrue(new PdfTextExtractor(reader).getTextFromPage(1).contains("Unencrypted PDF"));
+        } finally {
+            reader.close();
+        }
+
         // 清理
         Files.deleteIfExists(Path.of(unencryptedPath));
     }
+
+    @Test
+    void testRewritePdfIncrementalUpdate() throws Exception {
+        PdfRewriteRequest request = PdfRewriteRequest.builder()
+                .inputPath(testInputPath)
+                .outputPath(testOutputPath)
+                .ownerPassword(testPassword)
+                .incrementalUpdate(true)
+                .build();
+
+        PdfRewriteResponse response = pdfRewriterService.rewritePdf(request);
+        assertTrue(response.isSuccess(), response.getMessage());
+        assertEquals("incremental", response.getRewriteMode());
+
+        // 原始內容原樣保留，只在檔尾附加 Info 字典與 XMP metadata
+        byte[] original = Files.readAllBytes(Path.of(testInputPath));
+        byte[] output = Files.readAllBytes(Path.of(testOutputPath));
+        assertTrue(output.length > original.length);
+        assertArrayEquals(original, Arrays.copyOf(output, original.length));
+
+        PdfReader reader = new PdfReader(testOutputPath, testPassword.getBytes());
+        try {
+            assertTrue(reader.isEncrypted());
+            assertEquals("PDF Rewriter Application", reader.getInfo().get("Creator"));
+            assertEquals("OpenPDF Library", reader.getInfo().get("Producer"));
+            // XMP 與 Info 字典一致
+            String xmp = new String(reader.getMetadata(), StandardCharsets.UTF_8);
+            assertTrue(xmp.contains("OpenPDF Library") && xmp.contains("PDF Rewriter Application"), xmp);
+            assertTrue(new PdfTextExtractor(reader).getTextFromPage(1).contains("This is a test PDF document."));
+        } finally {
+            reader.close();
+        }
+
+        // 需要變更密碼時仍完整重寫
+        request.setNewOwnerPassword("newOwner456");
+        response = pdfRewriterService.rewritePdf(request);
+        assertTrue(response.isSuccess(), response.getMessage());
+        assertEquals("full", response.getRewriteMode());
+    }
+
+    @Test
+    void testRewritePdfToFileWithPreallocationAndSync() throws Exception {
+        // 既有輸出檔在 rename 時整個被取代
+        Files.write(Path.of(testOutputPath), new byte[64 * 1024]);
+
+        ReflectionTestUtils.setField(pdfRewriterService, "outputPreallocate", true);
+        ReflectionTestUtils.setField(pdfRewriterService, "outputSync", PdfFileOutput.SyncPolicy.DIRECTORY);
+        try {
+            PdfRewriteResponse response = pdfRewriterService.rewritePdf(PdfRewriteRequest.builder()
+                    .inputPath(testInputPath)
+                    .outputPath(testOutputPath)
+                    .ownerPassword(testPassword)
+                    .build());
+            assertTrue(response.isSuccess(), response.getMessage());
+            assertEquals("full", response.getRewriteMode());
+            // 預先配置的長度已截斷為實際大小
+            assertEquals(Files.size(Path.of(testOutputPath)), response.getFileSize());
+        } finally {
+            ReflectionTestUtils.setField(pdfRewriterService, "outputPreallocate", false);
+            ReflectionTestUtils.setField(pdfRewriterService, "outputSync", PdfFileOutput.SyncPolicy.NONE);
+        }
+
+        PdfReader reader = new PdfReader(testOutputPath, testPassword.getBytes());
+        try {
+            assertFalse(reader.isRebuilt());
+            assertTrue(reader.isEncrypted());
+            assertTrue(new PdfTextExtractor(reader).getTextFromPage(1).contains("This is a test PDF document."));
+        } finally {
+            reader.close();
+        }
+
+        // 暫存檔已 rename 為輸出檔
+        try (var files = Files.list(testDir)) {
+            assertTrue(files.noneMatch(file -> file.getFileName().toString().endsWith(".tmp")));
+        }
+    }
 }
@@ -0,0 +1,473 @@
+package com.pdffactory.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdffactory.dto.PdfApplySecurityRequest;
+import com.pdffactory.dto.PdfApplySecurityResponse;
+import com.pdffactory.dto.PdfCreateSecuredRequest;
+import com.pdffactory.dto.PdfCreateSecuredResponse;
+import com.pdffactory.dto.PdfSecurityInfo;
+import com.pdffactory.dto.PdfSecuritySettingsDTO;
+import com.pdffactory.dto.PdfTemplateFieldDTO;
+import com.pdffactory.dto.PdfTemplateRequest;
+import com.pdffactory.dto.PdfTemplateResponse;
+import com.pdffactory.exception.PdfProcessingException;
+import com.lowagie.text.Document;
+import com.lowagie.text.PageSize;
+import com.lowagie.text.Paragraph;
+import com.lowagie.text.Rectangle;
+import com.lowagie.text.pdf.PdfDictionary;
+import com.lowagie.text.pdf.PdfName;
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.PdfWriter;
+import com.lowagie.text.pdf.TextField;
+import com.lowagie.text.pdf.parser.PdfTextExtractor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+/**
+ * PDF 安全性服務測試
+ */
+@SpringBootTest(properties = "pdf-factory.font.dirs=/usr/share/fonts/truetype/dejavu")
+class PdfSecurityServiceTest {
+
+    @Autowired
+    private PdfSecurityService pdfSecurityService;
+
+    @Autowired
+    private PdfReaderService pdfReaderService;
+
+    @Autowired
+    private PdfEncryptionEngine pdfEncryptionEngine;
+
+    @Autowired
+    private PdfWorkScheduler workScheduler;
+
+    @Autowired
+    private PdfBulkSecurityService pdfBulkSecurityService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final String ownerPassword = "ownerPassword123";
+
+    /**
+     * 建立未加密的測試 PDF
+     */
+    private byte[] createTestPdf() throws Exception {
+        return createTestPdf(5);
+    }
+
+    private byte[] createTestPdf(int pages) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        Document document = new Document(PageSize.A4);
+        PdfWriter.getInstance(document, outputStream);
+        document.open();
+        for (int i = 1; i <= pages; i++) {
+            document.add(new Paragraph("Page " + i));
+            document.newPage();
+        }
+        document.close();
+        return outputStream.toByteArray();
+    }
+
+    private PdfSecuritySettingsDTO createSettings(String ownerPassword) {
+        return createSettings(ownerPassword, "AES_128");
+    }
+
+    private PdfSecuritySettingsDTO createSettings(String ownerPassword, String encryptionType) {
+        return PdfSecuritySettingsDTO.builder()
+                .allowPrinting("Y")
+                .allowCopy("N")
+                .ownerPassword(ownerPassword)
+                .encryptionType(encryptionType)
+                .build();
+    }
+
+    @Test
+    void testApplySecurityToPdfStream() throws Exception {
+        byte[] pdfBytes = createTestPdf();
+
+        StreamingResponseBody body = pdfSecurityService.applySecurityToPdfStream(
+                new ByteArrayInputStream(pdfBytes), createSettings(ownerPassword));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        body.writeTo(outputStream);
+
+        // 串流輸出需可用擁有者密碼開啟，且已加密並保留頁數
+        PdfReader reader = new PdfReader(outputStream.toByteArray(), ownerPassword.getBytes());
+        try {
+            assertTrue(reader.isEncrypted());
+            assertEquals(5, reader.getNumberOfPages());
+            assertEquals(0, reader.getPermissions() & PdfWriter.ALLOW_COPY);
+        } finally {
+            reader.close();
+        }
+
+        // 擁有者密碼為空時需在開始串流前失敗
+        assertThrows(PdfProcessingException.class, () -> pdfSecurityService.applySecurityToPdfStream(
+                new ByteArrayInputStream(pdfBytes), createSettings("")));
+    }
+
+    @Test
+    void testApplySecurityToBase64Pdf() throws Exception {
+        byte[] pdfBytes = createTestPdf();
+
+        StreamingResponseBody body = pdfSecurityService.applySecurityToBase64Pdf(PdfApplySecurityRequest.builder()
+                .pdfFileBase64(Base64.getEncoder().encodeToString(pdfBytes))
+                .allowPrinting("Y")
+                .allowCopy("N")
+                .ownerPassword(ownerPassword)
+                .encryptionType("AES_128")
+                .build());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        body.writeTo(outputStream);
+
+        // 串流寫出的 JSON 與 PdfApplySecurityResponse 欄位一致
+        PdfApplySecurityResponse response = objectMapper.readValue(
+                outputStream.toByteArray(), PdfApplySecurityResponse.class);
+        assertTrue(response.isSuccess());
+        byte[] encrypted = Base64.getDecoder().decode(response.getPdfFileBase64());
+        assertEquals(encrypted.length, response.getFileSize());
+        PdfReader reader = new PdfReader(encrypted, ownerPassword.getBytes());
+        try {
+            assertTrue(reader.isEncrypted());
+            assertEquals(5, reader.getNumberOfPages());
+        } finally {
+            reader.close();
+        }
+
+        // 加密失敗時同樣在開始回應前拋出例外，不會送出宣告成功卻被截斷的響應
+        PdfEncryptionEngine failingEngine = mock(PdfEncryptionEngine.class);
+        doThrow(new PdfProcessingException("encryption failed")).when(failingEngine).configure(any(), anyInt());
+        Object encryptionEngine = ReflectionTestUtils.getField(pdfSecurityService, "encryptionEngine");
+        ReflectionTestUtils.setField(pdfSecurityService, "encryptionEngine", failingEngine);
+        try {
+            assertThrows(PdfProcessingException.class, () -> pdfSecurityService.applySecurityToBase64Pdf(
+                    PdfApplySecurityRequest.builder()
+                            .pdfFileBase64(Base64.getEncoder().encodeToString(pdfBytes))
+                            .ownerPassword(ownerPassword)
+                            .encryptionType("AES_128")
+                            .build()));
+        } finally {
+            ReflectionTestUtils.setField(pdfSecurityService, "encryptionEngine", encryptionEngine);
+        }
+
+        // 檔案損毀時需在開始回應前失敗
+        assertThrows(PdfProcessingException.class, () -> pdfSecurityService.applySecurityToBase64Pdf(
+                PdfApplySecurityRequest.builder()
+                        .pdfFileBase64(Base64.getEncoder().encodeToString("not a pdf".getBytes()))
+                        .ownerPassword(ownerPassword)
+                        .build()));
+    }
+
+    @Test
+    void testApplySecuritySettingsAesEngines() throws Exception {
+        byte[] pdfBytes = createTestPdf();
+
+        // 目前使用的 OpenPDF 版本需可存取 JCE 加密所需的內部欄位（升級 OpenPDF 時需重新確認）
+        assertTrue(JceAesPdfEncryption.isAvailable(), String.valueOf(JceAesPdfEncryption.unavailableCause()));
+
+        try {
+            // JCE 與 OpenPDF 內建加密的輸出皆需可正確解密
+            for (boolean jceAes : new boolean[]{true, false}) {
+                ReflectionTestUtils.setField(pdfEncryptionEngine, "jceAesEnabled", jceAes);
+
+                for (String encryptionType : new String[]{"AES_128", "AES_256"}) {
+                    byte[] secured = pdfSecurityService.applySecuritySettings(
+                            new ByteArrayInputStream(pdfBytes), createSettings(ownerPassword, encryptionType));
+
+                    PdfReader reader = new PdfReader(secured, ownerPassword.getBytes());
+                    try {
+                        PdfSecurityInfo securityInfo = pdfReaderService.extractSecurityInfo(reader);
+                        assertEquals("AES_256".equals(encryptionType) ? 256 : 128, securityInfo.getEncryptionLevel());
+                        assertEquals(5, reader.getNumberOfPages());
+                        assertTrue(new PdfTextExtractor(reader).getTextFromPage(3).contains("Page 3"));
+                    } finally {
+                        reader.close();
+                    }
+                }
+            }
+        } finally {
+            ReflectionTestUtils.setField(pdfEncryptionEngine, "jceAesEnabled", true);
+        }
+    }
+
+    @Test
+    void testApplyProfileBulkPreservesInputOrder() throws Exception {
+        pdfSecurityService.registerProfile("invoice", createSettings(ownerPassword));
+
+        // 輸入：頁數遞減的文件（後面的先完成）、一份損毀文件與一份重複檔名
+        ByteArrayOutputStream zipInput = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(zipInput)) {
+            String[] names = {"2024/a.pdf", "2024/b.pdf", "2024/broken.pdf", "2025/a.pdf"};
+            int[] pages = {8, 4, 0, 2};
+            for (int i = 0; i < names.length; i++) {
+                zip.putNextEntry(new ZipEntry(names[i]));
+                zip.write(pages[i] > 0 ? createTestPdf(pages[i]) : "not a pdf".getBytes());
+                zip.closeEntry();
+            }
+        }
+
+        StreamingResponseBody body = pdfBulkSecurityService.applyProfileToZip(
+                pdfSecurityService.getProfile("invoice"), new ByteArrayInputStream(zipInput.toByteArray()));
+        ByteArrayOutputStream zipOutput = new ByteArrayOutputStream();
+        body.writeTo(zipOutput);
+
+        List<String> entryNames = new ArrayList<>();
+        List<Integer> pageCounts = new ArrayList<>();
+        JsonNode manifest = null;
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(zipOutput.toByteArray()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                byte[] content = zip.readAllBytes();
+                if (PdfBulkSecurityService.MANIFEST_ENTRY.equals(entry.getName())) {
+                    manifest = objectMapper.readTree(content);
+                    continue;
+                }
+                entryNames.add(entry.getName());
+                PdfReader reader = new PdfReader(content, ownerPassword.getBytes());
+                try {
+                    assertTrue(reader.isEncrypted());
+                    pageCounts.add(reader.getNumberOfPages());
+                } finally {
+                    reader.close();
+                }
+            }
+        }
+
+        // 輸出依輸入順序排列，損毀文件只記錄在 manifest
+        assertEquals(List.of("a.pdf", "b.pdf", "3-a.pdf"), entryNames);
+        assertEquals(List.of(8, 4, 2), pageCounts);
+        assertNotNull(manifest);
+        assertEquals(4, manifest.size());
+        for (int i = 0; i < manifest.size(); i++) {
+            assertEquals(i, manifest.get(i).get("index").asInt());
+            assertEquals(i != 2, manifest.get(i).get("success").asBoolean());
+        }
+
+        // 未註冊的設定檔
+        assertThrows(PdfProcessingException.class, () -> pdfSecurityService.getProfile("unknown"));
+    }
+
+    @Test
+    void testCreateSecuredPdfFromTemplate() throws Exception {
+        // 底稿：靜態文字與一個表單文字欄位
+        ByteArrayOutputStream basePdf = new ByteArrayOutputStream();
+        Document document = new Document(PageSize.A4);
+        PdfWriter writer = PdfWriter.getInstance(document, basePdf);
+        document.open();
+        document.add(new Paragraph("Payment Notice"));
+        writer.addAnnotation(new TextField(writer, new Rectangle(72, 600, 300, 620), "customerName").getTextField());
+        document.close();
+
+        PdfTemplateResponse registered = pdfSecurityService.registerTemplate(PdfTemplateRequest.builder()
+                .name("notice")
+                .pdfFileBase64(Base64.getEncoder().encodeToString(basePdf.toByteArray()))
+                .fields(List.of(PdfTemplateFieldDTO.builder().name("amount").x(520f).y(500f).alignment("RIGHT").build()))
+                .build());
+        assertTrue(registered.isSuccess(), registered.getMessage());
+        assertEquals(List.of("customerName", "amount"), registered.getFields());
+
+        // 同一範本連續產生，前一份的欄位值不可殘留在底稿中
+        for (String customer : new String[]{"Alice", "Bob"}) {
+            PdfCreateSecuredResponse response = pdfSecurityService.createSecuredPdfBase64(PdfCreateSecuredRequest.builder()
+                    .templateName("notice")
+                    .fields(Map.of("customerName", customer, "amount", "1200"))
+                    .ownerPassword(ownerPassword)
+                    .encryptionType("AES_128")
+                    .build());
+            assertTrue(response.isSuccess(), response.getMessage());
+
+            PdfReader reader = new PdfReader(Base64.getDecoder().decode(response.getPdfFileBase64()), ownerPassword.getBytes());
+            try {
+                assertTrue(reader.isEncrypted());
+                assertNull(reader.getCatalog().get(PdfName.ACROFORM));
+                String text = new PdfTextExtractor(reader).getTextFromPage(1);
+                assertTrue(text.contains("Payment Notice"));
+                assertTrue(text.contains(customer));
+                assertTrue(text.contains("1200"));
+                assertFalse(text.contains("Alice".equals(customer) ? "Bob" : "Alice"));
+            } finally {
+                reader.close();
+            }
+        }
+
+        // 未註冊的範本
+        assertFalse(pdfSecurityService.createSecuredPdfBase64(PdfCreateSecuredRequest.builder()
+                .templateName("unknown")
+                .ownerPassword(ownerPassword)
+                .build()).isSuccess());
+    }
+
+    @Test
+    void testCreateSecuredPdfWithCachedTrueTypeFont() throws Exception {
+        Path fontFile = Path.of("/usr/share/fonts/truetype/dejavu/DejaVuSans.ttf");
+        assumeTrue(Files.exists(fontFile), "需要 DejaVu Sans 字型檔");
+
+        double hitsBefore = meterRegistry.get("cache.gets").tag("cache", "pdf.font").tag("result", "hit")
+                .functionCounter().count();
+
+        // 同一字型產生兩份文件：只解析一次，每份文件各自嵌入使用字元的子集
+        for (String content : new String[]{"Ελληνικά", "Кириллица"}) {
+            PdfCreateSecuredResponse response = pdfSecurityService.createSecuredPdfBase64(PdfCreateSecuredRequest.builder()
+                    .content(content)
+                    .fontName("DejaVuSans.ttf")
+                    .ownerPassword(ownerPassword)
+                    .build());
+            assertTrue(response.isSuccess(), response.getMessage());
+
+            PdfReader reader = new PdfReader(Base64.getDecoder().decode(response.getPdfFileBase64()), ownerPassword.getBytes());
+            try {
+                assertTrue(new PdfTextExtractor(reader).getTextFromPage(1).contains(content));
+                PdfDictionary fonts = reader.getPageN(1).getAsDict(PdfName.RESOURCES).getAsDict(PdfName.FONT);
+                String baseFont = fonts.getAsDict(fonts.getKeys().iterator().next()).getAsName(PdfName.BASEFONT).toString();
+                assertTrue(baseFont.matches("/[A-Z]{6}\\+DejaVuSans"), baseFont);
+            } finally {
+                reader.close();
+            }
+        }
+
+        assertEquals(1, meterRegistry.get("pdf.font.parse").tag("type", "truetype").timer().count());
+        assertTrue(meterRegistry.get("cache.gets").tag("cache", "pdf.font").tag("result", "hit")
+                .functionCounter().count() >= hitsBefore + 1);
+
+        // 字型檔只能取自 pdf-factory.font.dirs：絕對路徑與 .. 一律拒絕
+        for (String fontName : new String[]{fontFile.toString(), "../dejavu/DejaVuSans.ttf"}) {
+            PdfCreateSecuredResponse rejected = pdfSecurityService.createSecuredPdfBase64(PdfCreateSecuredRequest.builder()
+                    .content("test")
+                    .fontName(fontName)
+                    .ownerPassword(ownerPassword)
+                    .build());
+            assertFalse(rejected.isSuccess(), fontName);
+        }
+    }
+
+    @Test
+    void testSmallJobNotBlockedByLargeJob() throws Exception {
+        assertEquals(PdfWorkScheduler.Lane.LARGE, workScheduler.classify(64L * 1024 * 1024, 1));
+        assertEquals(PdfWorkScheduler.Lane.LARGE, workScheduler.classify(1024, 5000));
+        assertEquals(PdfWorkScheduler.Lane.SMALL, workScheduler.classify(1024, 1));
+
+        // 以大型工作佔住大型佇列，小型請求仍由小型佇列的執行緒處理
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> largeJob = CompletableFuture.supplyAsync(() -> {
+            try {
+                return workScheduler.run(Long.MAX_VALUE, 0, () -> {
+                    try {
+                        return release.await(60, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        try {
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (meterRegistry.get("pdf.scheduler.running").tag("lane", "large").gauge().value() < 1) {
+                assertTrue(System.currentTimeMillis() < deadline, "大型工作未開始執行");
+                Thread.sleep(10);
+            }
+
+            PdfCreateSecuredResponse response = CompletableFuture.supplyAsync(() ->
+                            pdfSecurityService.createSecuredPdfBase64(PdfCreateSecuredRequest.builder()
+                                    .content("small")
+                                    .ownerPassword("owner")
+                                    .build()))
+                    .get(30, TimeUnit.SECONDS);
+            assertTrue(response.isSuccess(), response.getMessage());
+            assertFalse(largeJob.isDone());
+            assertTrue(meterRegistry.get("pdf.scheduler.wait").tag("lane", "small").timer().count() >= 1);
+        } finally {
+            release.countDown();
+        }
+        assertTrue(largeJob.get(30, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testLargeJobsUseIdleSmallThreads() throws Exception {
+        // 4 個執行緒（小型 3、大型 1），保留 1 個小型執行緒：只有大型工作時同時執行 3 個
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PdfWorkScheduler scheduler = new PdfWorkScheduler(new PdfPipelineMetrics(registry), registry,
+                4, 3, 1, 1, DataSize.ofMegabytes(16), 200);
+        scheduler.start();
+
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<CompletableFuture<Boolean>> largeJobs = new ArrayList<>();
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        try {
+            for (int i = 0; i < 4; i++) {
+                largeJobs.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return scheduler.run(0, 5000, () -> {
+                            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+                            try {
+                                return release.await(60, TimeUnit.SECONDS);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                return false;
+                            } finally {
+                                concurrent.decrementAndGet();
+                            }
+                        });
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }, callers));
+            }
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (maxConcurrent.get() < 3) {
+                assertTrue(System.currentTimeMillis() < deadline, "大型工作未使用閒置的小型執行緒");
+                Thread.sleep(10);
+            }
+            Thread.sleep(100);
+            assertEquals(3, maxConcurrent.get());
+            assertEquals(1.0, registry.get("pdf.scheduler.queued").tag("lane", "large").gauge().value());
+        } finally {
+            release.countDown();
+        }
+        for (CompletableFuture<Boolean> largeJob : largeJobs) {
+            assertTrue(largeJob.get(30, TimeUnit.SECONDS));
+        }
+        callers.shutdown();
+        scheduler.shutdown();
+    }
+}